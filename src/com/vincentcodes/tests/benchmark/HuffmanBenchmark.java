@@ -0,0 +1,122 @@
+package com.vincentcodes.tests.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.vincentcodes.tests.http2.HpackCodecUtilsTest;
+import com.vincentcodes.webserver.http2.constants.CanonicalHuffmanCode;
+
+/**
+ * Compares {@link CanonicalHuffmanCode} with the previous implementation
+ * (binary strings and map lookups, kept in {@link StringHuffmanCode}) on
+ * the vectors of {@link HpackCodecUtilsTest}.
+ * <pre>
+ * java -cp classes:lib/* com.vincentcodes.tests.benchmark.HuffmanBenchmark [iterations]
+ * </pre>
+ */
+public class HuffmanBenchmark {
+    private static volatile Object sink;
+
+    public static void main(String[] args){
+        int iterations = args.length > 0? Integer.parseInt(args[0]) : 200000;
+
+        String[] strings = new String[HpackCodecUtilsTest.HUFFMAN_VECTORS.length];
+        byte[][] encoded = new byte[strings.length][];
+        for(int i = 0; i < strings.length; i++){
+            strings[i] = (String)HpackCodecUtilsTest.HUFFMAN_VECTORS[i][0];
+            encoded[i] = HpackCodecUtilsTest.toBytes((int[])HpackCodecUtilsTest.HUFFMAN_VECTORS[i][1]);
+        }
+
+        System.out.println(strings.length + " vectors x " + iterations + " iterations");
+        for(int round = 0; round < 2; round++){
+            // 1st round is the warm up
+            boolean print = round == 1;
+            measure("encode (strings)", print, iterations, () -> {
+                for(String str : strings) sink = StringHuffmanCode.encode(str);
+            });
+            measure("encode (table)", print, iterations, () -> {
+                for(String str : strings) sink = CanonicalHuffmanCode.encode(str);
+            });
+            measure("decode (strings)", print, iterations, () -> {
+                for(byte[] data : encoded) sink = StringHuffmanCode.decode(data);
+            });
+            measure("decode (table)", print, iterations, () -> {
+                for(byte[] data : encoded) sink = CanonicalHuffmanCode.decode(data);
+            });
+        }
+    }
+
+    private static void measure(String name, boolean print, int iterations, Runnable task){
+        int runs = print? iterations : iterations/4;
+        long start = System.nanoTime();
+        for(int i = 0; i < runs; i++)
+            task.run();
+        long elapsed = System.nanoTime() - start;
+        if(print)
+            System.out.printf("%-18s %10.1f ns/op%n", name, (double)elapsed / runs);
+    }
+
+    /**
+     * The string based implementation which is replaced
+     */
+    private static class StringHuffmanCode {
+        private static final Map<String, Integer> codeToSym = new HashMap<>();
+
+        static{
+            for(int sym = 0; sym <= 256; sym++)
+                codeToSym.put(CanonicalHuffmanCode.getCodeFromSym(sym), sym);
+        }
+
+        static String decode(byte[] buf){
+            String combinedBin = "";
+            for(byte b : buf){
+                combinedBin += padStart(Integer.toBinaryString(Byte.toUnsignedInt(b)), 8, "0");
+            }
+            String result = "";
+            Integer ch;
+            for(int i = 1, j = 0; i <= combinedBin.length(); i++){
+                if(i-j > 4){
+                    if((ch = codeToSym.get(combinedBin.substring(j, i))) != null){
+                        j += (i-j);
+                        result += (char)ch.intValue();
+                    }
+                }
+            }
+            return result;
+        }
+
+        static byte[] encode(String str){
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            String combinedBin = "";
+            byte[] strBytes = str.getBytes(StandardCharsets.UTF_8);
+            for(int i = 0; i < strBytes.length; i++){
+                combinedBin += CanonicalHuffmanCode.getCodeFromSym(strBytes[i] & 0xff);
+            }
+            if(combinedBin.length() % 8 != 0){
+                combinedBin = padEnd(combinedBin, (int)Math.ceil((double)(combinedBin.length())/8)*8, "1");
+            }
+            for(int i = 1, j = 0; i <= combinedBin.length(); i++){
+                if(i - j >= 8){
+                    os.write(Integer.parseInt(combinedBin.substring(j, i), 2));
+                    j += (i - j);
+                }
+            }
+            return os.toByteArray();
+        }
+
+        private static String padStart(String target, int maxLength, String padStr){
+            while(target.length() < maxLength){
+                target = padStr + target;
+            }
+            return target;
+        }
+        private static String padEnd(String target, int maxLength, String padStr){
+            while(target.length() < maxLength){
+                target += padStr;
+            }
+            return target;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.vincentcodes.tests.benchmark;
+
+import com.vincentcodes.webserver.annotaion.HttpHandler;
+import com.vincentcodes.webserver.annotaion.request.HttpGet;
+import com.vincentcodes.webserver.annotaion.request.RequestMapping;
+import com.vincentcodes.webserver.annotaion.response.Mutatable;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+
+/**
+ * Simulates a handler waiting on blocking IO (eg. a database or remote server)
+ */
+@HttpHandler
+public class SlowHandler {
+    public static final int DELAY_MILSEC = 20;
+
+    @HttpGet
+    @Mutatable
+    @RequestMapping("/slow")
+    public String handleSlowGet(HttpRequest req, ResponseBuilder res) throws InterruptedException{
+        Thread.sleep(DELAY_MILSEC);
+        res.setResponseCode(200);
+        return "done";
+    }
+}
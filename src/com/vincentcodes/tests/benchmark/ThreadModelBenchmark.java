@@ -0,0 +1,123 @@
+package com.vincentcodes.tests.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vincentcodes.logger.Logger.LogType;
+import com.vincentcodes.webserver.HttpHandlerRegister;
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.helper.ThreadProvider;
+
+/**
+ * Compares the fixed pool of {@link WebServer#MAX_THREAD_POOL_SIZE}
+ * platform threads with virtual threads. Many clients keep their
+ * connection open while a slow handler blocks.
+ * <p>
+ * Virtual threads are only measured on Java 21+.
+ * <pre>
+ * java -cp classes:lib/* com.vincentcodes.tests.benchmark.ThreadModelBenchmark [connections] [requests per connection]
+ * </pre>
+ */
+public class ThreadModelBenchmark {
+    private static final int PORT = 5052;
+
+    public static void main(String[] args) throws Exception{
+        int connections = args.length > 0? Integer.parseInt(args[0]) : 1000;
+        int requestsPerConnection = args.length > 1? Integer.parseInt(args[1]) : 5;
+
+        WebServer.logger.disable(LogType.DEBUG);
+        WebServer.logger.disable(LogType.INFO);
+        HttpHandlerRegister.clear();
+        HttpHandlerRegister.register(SlowHandler.class);
+
+        System.out.println(connections + " connections x " + requestsPerConnection + " requests, handler delay " + SlowHandler.DELAY_MILSEC + "ms");
+        run("platform threads (fixed " + WebServer.MAX_THREAD_POOL_SIZE + ")", false, connections, requestsPerConnection);
+        if(ThreadProvider.isVirtualThreadSupported()){
+            run("virtual threads", true, connections, requestsPerConnection);
+        }else{
+            System.out.println("virtual threads: skipped, requires Java 21+ (running " + System.getProperty("java.version") + ")");
+        }
+        System.exit(0);
+    }
+
+    private static void run(String name, boolean useVirtualThreads, int connections, int requestsPerConnection) throws Exception{
+        WebServer server = new WebServer.Builder()
+            .setPort(PORT)
+            .setUseDefaultHandlers(false)
+            .setUseMultithread(true)
+            .setUseVirtualThreads(useVirtualThreads)
+            .build();
+        Thread serverThread = new Thread(server::start);
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(connections);
+        List<Thread> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for(int i = 0; i < connections; i++){
+            Thread client = new Thread(() -> {
+                try{
+                    runClient(requestsPerConnection);
+                }catch(IOException e){
+                    failures.incrementAndGet();
+                }finally{
+                    done.countDown();
+                }
+            });
+            client.setDaemon(true);
+            client.start();
+            clients.add(client);
+        }
+        done.await();
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+        server.close();
+
+        int requests = connections * requestsPerConnection;
+        System.out.printf("%s: %d ms, %.0f req/s, %d failed connections%n",
+            name, elapsedMs, requests * 1000.0 / Math.max(1, elapsedMs), failures.get());
+    }
+
+    private static void runClient(int requests) throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(60000);
+            OutputStream os = socket.getOutputStream();
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            for(int i = 0; i < requests; i++){
+                String connection = i == requests-1? "close" : "keep-alive";
+                os.write(("GET /slow HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: " + connection + "\r\n\r\n").getBytes());
+                os.flush();
+                readResponse(is);
+            }
+        }
+    }
+
+    /**
+     * Reads a response which has a content-length
+     */
+    private static void readResponse(InputStream is) throws IOException{
+        StringBuilder head = new StringBuilder();
+        int b;
+        while(!head.toString().endsWith("\r\n\r\n")){
+            if((b = is.read()) == -1)
+                throw new IOException("Connection closed before the response is received");
+            head.append((char)b);
+        }
+        if(!head.toString().startsWith("HTTP/1.1 200"))
+            throw new IOException("Unexpected response: " + head);
+        int contentLength = 0;
+        for(String line : head.toString().split("\r\n")){
+            if(line.toLowerCase().startsWith("content-length:"))
+                contentLength = Integer.parseInt(line.substring(15).trim());
+        }
+        if(is.readNBytes(contentLength).length != contentLength)
+            throw new IOException("Incomplete response body");
+    }
+}
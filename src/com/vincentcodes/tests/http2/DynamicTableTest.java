@@ -0,0 +1,107 @@
+package com.vincentcodes.tests.http2;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.http2.DynamicTable;
+import com.vincentcodes.webserver.http2.Http2Configuration;
+import com.vincentcodes.webserver.http2.Http2TableEntry;
+import com.vincentcodes.webserver.http2.StaticTable;
+import com.vincentcodes.webserver.http2.hpack.HpackDecoder;
+import com.vincentcodes.webserver.http2.hpack.HpackEncoder;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class DynamicTable")
+public class DynamicTableTest {
+    private static final int BASE = StaticTable.instance.size()+1;
+
+    private DynamicTable newTable(int maxSize){
+        Http2Configuration config = new Http2Configuration();
+        config.setHeaderTableSize(maxSize);
+        return new DynamicTable(config, BASE);
+    }
+
+    @Test
+    public void newest_entry_has_the_smallest_index(){
+        DynamicTable table = newTable(8192);
+        for(int i = 0; i < 100; i++)
+            table.addHeader("x-name", "value-" + i);
+        table.addHeader("x-other", "value-0");
+
+        assertEquals(101, table.size());
+        assertEquals("x-other", table.getEntry(BASE).getName());
+        assertEquals("value-99", table.getEntry(BASE+1).getValue());
+        assertEquals("value-0", table.getEntry(BASE+100).getValue());
+        assertNull(table.getEntry(BASE+101));
+        assertEquals(BASE+1, table.getFirstEntryIndex("x-name"));
+        assertEquals(BASE+100, table.getFirstEntryIndex("x-name", "value-0"));
+        assertEquals(BASE, table.getFirstEntryIndex("x-other", "value-0"));
+        assertEquals(-1, table.getFirstEntryIndex("x-name", "value-100"));
+    }
+
+    @Test
+    public void entries_are_evicted_by_size(){
+        // each entry takes 4 + 4 + 32 bytes
+        DynamicTable table = newTable(100);
+        table.addHeader("aaaa", "0000");
+        table.addHeader("bbbb", "0000");
+        assertEquals(80, table.sizeInBytes());
+
+        table.addHeader("aaaa", "1111");
+        assertEquals(2, table.size());
+        assertEquals(80, table.sizeInBytes());
+        assertEquals(-1, table.getFirstEntryIndex("aaaa", "0000"));
+        assertEquals(BASE, table.getFirstEntryIndex("aaaa"));
+        assertEquals(BASE+1, table.getFirstEntryIndex("bbbb", "0000"));
+
+        // the newer "aaaa" entry is kept in the index after the older one is evicted
+        table.addHeader("cccc", "0000");
+        assertEquals(BASE+1, table.getFirstEntryIndex("aaaa"));
+        assertEquals(-1, table.getFirstEntryIndex("bbbb"));
+    }
+
+    @Test
+    public void max_size_can_be_changed_within_the_limit(){
+        DynamicTable table = newTable(4096);
+        table.addHeader("aaaa", "0000");
+        table.addHeader("bbbb", "0000");
+
+        table.setMaxSize(40);
+        assertEquals(1, table.size());
+        assertEquals("bbbb", table.getEntry(BASE).getName());
+        table.addHeader("cccc", "00000");
+        assertEquals(0, table.size());
+
+        table.setMaxSize(4096);
+        assertThrows(IllegalArgumentException.class, () -> table.setMaxSize(4097));
+    }
+
+    @Test
+    public void table_size_updates_are_sent_with_the_next_header_block() throws IOException{
+        HpackEncoder encoder = new HpackEncoder();
+        DynamicTable decoderTable = newTable(4096);
+        HpackDecoder decoder = new HpackDecoder(decoderTable);
+        List<Http2TableEntry> headers = Arrays.asList(new Http2TableEntry(":method", "GET"));
+
+        encoder.setMaxTableSize(0);
+        encoder.setMaxTableSize(65536);
+        // 0, then 4096 (the encoder never uses more than its initial size)
+        byte[] block = encoder.encode(headers, false);
+        assertArrayEquals(new byte[]{0x20, 0x3f, (byte)0xe1, 0x1f, (byte)0x82}, block);
+        assertEquals(headers.get(0).getValue(), decoder.decode(block).get(0).getValue());
+        assertEquals(4096, decoderTable.getMaxSize());
+
+        assertArrayEquals(new byte[]{(byte)0x82}, encoder.encode(headers, false));
+    }
+}
@@ -1,11 +1,15 @@
 package com.vincentcodes.tests.http2;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 
+import com.vincentcodes.webserver.http2.constants.CanonicalHuffmanCode;
+import com.vincentcodes.webserver.http2.errors.DecodeError;
 import com.vincentcodes.webserver.http2.hpack.HpackCodecUtils;
 
 import org.junit.jupiter.api.DisplayName;
@@ -65,4 +69,59 @@ public class HpackCodecUtilsTest {
     public void test_static_decodeInteger_8_bit_prefix_decoding_42() throws IOException{
         assertEquals(42, HpackCodecUtils.decodeInteger(new byte[]{(byte)42}, 8)[1]);
     }
+
+    /**
+     * @see https://tools.ietf.org/html/rfc7541#appendix-C.4
+     * @see https://tools.ietf.org/html/rfc7541#appendix-C.6
+     */
+    public static final Object[][] HUFFMAN_VECTORS = new Object[][]{
+        {"no-cache", new int[]{0xa8, 0xeb, 0x10, 0x64, 0x9c, 0xbf}},
+        {"custom-key", new int[]{0x25, 0xa8, 0x49, 0xe9, 0x5b, 0xa9, 0x7d, 0x7f}},
+        {"custom-value", new int[]{0x25, 0xa8, 0x49, 0xe9, 0x5b, 0xb8, 0xe8, 0xb4, 0xbf}},
+        {"private", new int[]{0xae, 0xc3, 0x77, 0x1a, 0x4b}},
+        {"Mon, 21 Oct 2013 20:13:21 GMT", new int[]{0xd0, 0x7a, 0xbe, 0x94, 0x10, 0x54, 0xd4, 0x44, 0xa8, 0x20, 0x05, 0x95, 0x04, 0x0b, 0x81, 0x66, 0xe0, 0x82, 0xa6, 0x2d, 0x1b, 0xff}},
+        {"https://www.example.com", new int[]{0x9d, 0x29, 0xad, 0x17, 0x18, 0x63, 0xc7, 0x8f, 0x0b, 0x97, 0xc8, 0xe9, 0xae, 0x82, 0xae, 0x43, 0xd3}},
+        {"foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1", new int[]{
+            0x94, 0xe7, 0x82, 0x1d, 0xd7, 0xf2, 0xe6, 0xc7, 0xb3, 0x35, 0xdf, 0xdf, 0xcd, 0x5b, 0x39, 0x60, 
+            0xd5, 0xaf, 0x27, 0x08, 0x7f, 0x36, 0x72, 0xc1, 0xab, 0x27, 0x0f, 0xb5, 0x29, 0x1f, 0x95, 0x87, 
+            0x31, 0x60, 0x65, 0xc0, 0x03, 0xed, 0x4e, 0xe5, 0xb1, 0x06, 0x3d, 0x50, 0x07}},
+    };
+
+    public static byte[] toBytes(int[] values){
+        byte[] bytes = new byte[values.length];
+        for(int i = 0; i < values.length; i++)
+            bytes[i] = (byte)values[i];
+        return bytes;
+    }
+
+    @Test
+    public void test_static_huffman_encode_rfc_examples(){
+        for(Object[] vector : HUFFMAN_VECTORS){
+            assertArrayEquals(toBytes((int[])vector[1]), CanonicalHuffmanCode.encode((String)vector[0]));
+        }
+    }
+
+    @Test
+    public void test_static_huffman_decode_rfc_examples(){
+        for(Object[] vector : HUFFMAN_VECTORS){
+            assertEquals(vector[0], CanonicalHuffmanCode.decode(toBytes((int[])vector[1])));
+        }
+    }
+
+    @Test
+    public void test_static_encodeStringHuffman_all_ascii() throws IOException{
+        StringBuilder sb = new StringBuilder();
+        for(char c = 0; c < 128; c++)
+            sb.append(c);
+        byte[] encoded = HpackCodecUtils.encodeStringHuffman(sb.toString());
+        assertEquals(sb.toString(), HpackCodecUtils.decodeString(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    public void test_static_decodeString_invalid_huffman(){
+        // '0' followed by 3 bits of '0' padding
+        assertThrows(DecodeError.class, () -> HpackCodecUtils.decodeString(new ByteArrayInputStream(new byte[]{(byte)0x81, 0x00})));
+        // EOS
+        assertThrows(DecodeError.class, () -> HpackCodecUtils.decodeString(new ByteArrayInputStream(new byte[]{(byte)0x84, -1, -1, -1, -1})));
+    }
 }
@@ -1,6 +1,7 @@
 package com.vincentcodes.tests.http2;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -9,18 +10,22 @@ import java.util.Arrays;
 import java.util.List;
 
 import com.vincentcodes.webserver.exception.CannotParseRequestException;
+import com.vincentcodes.webserver.http2.DynamicTable;
 import com.vincentcodes.webserver.http2.Http2Configuration;
 import com.vincentcodes.webserver.http2.Http2Frame;
 import com.vincentcodes.webserver.http2.Http2FrameGenerator;
 import com.vincentcodes.webserver.http2.Http2RequestParser;
 import com.vincentcodes.webserver.http2.Http2TableEntry;
 import com.vincentcodes.webserver.http2.SettingParameter;
+import com.vincentcodes.webserver.http2.StaticTable;
 import com.vincentcodes.webserver.http2.constants.CanonicalHuffmanCode;
 import com.vincentcodes.webserver.http2.constants.FrameTypes;
+import com.vincentcodes.webserver.http2.hpack.HeaderIndexingPolicy;
 import com.vincentcodes.webserver.http2.hpack.HpackCodecUtils;
 import com.vincentcodes.webserver.http2.hpack.HpackDecoder;
 import com.vincentcodes.webserver.http2.hpack.HpackEncoder;
 import com.vincentcodes.webserver.http2.types.SettingsFrame;
+import com.vincentcodes.webserver.util.HttpDate;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -137,4 +142,44 @@ public class HpackEncoderTest {
         byte[] buf = Http2Frame.toBytes(frameGenerator.responseHeadersFrame(404, 2, true, true));
         System.out.println(parser.parse(new ByteArrayInputStream(buf)));
     }
+
+    @Test
+    public void encode_cached_date_header() throws IOException{
+        List<Http2TableEntry> headers = List.of(new Http2TableEntry("date", HttpDate.now()));
+        byte[] first = encoder.encode(headers, true);
+        byte[] second = new HpackEncoder().encode(headers, true);
+        assertEquals(Arrays.toString(first), Arrays.toString(second));
+        assertEquals(headers.get(0).getValue(), new HpackDecoder().decode(second).get(0).getValue());
+    }
+
+    @Test
+    public void encode_repeated_response_headers_with_indexing_policy() throws IOException{
+        DynamicTable encoderTable = new DynamicTable(new Http2Configuration(), StaticTable.instance.size()+1);
+        HpackEncoder indexingEncoder = new HpackEncoder(encoderTable, HeaderIndexingPolicy.RESPONSE);
+        HpackDecoder decoder = new HpackDecoder();
+        List<Http2TableEntry> headers = List.of(
+            new Http2TableEntry(":status", "200"),
+            new Http2TableEntry("server", "vws"),
+            new Http2TableEntry("content-type", "application/json"),
+            new Http2TableEntry("cache-control", "no-store"),
+            new Http2TableEntry("date", HttpDate.now()),
+            new Http2TableEntry("content-length", "1234"),
+            new Http2TableEntry("set-cookie", "session=secret"));
+
+        byte[] first = indexingEncoder.encode(headers, true);
+        byte[] second = indexingEncoder.encode(headers, true);
+        // server, content-type and cache-control only
+        assertEquals(3, encoderTable.size());
+        assertTrue(second.length < first.length);
+        // each of them is an "Indexed Header Field" now
+        assertEquals(3, indexingEncoder.encode(headers.subList(1, 4), true).length);
+
+        for(byte[] block : new byte[][]{first, second}){
+            List<Http2TableEntry> decoded = decoder.decode(block);
+            assertEquals(headers.toString(), decoded.toString());
+        }
+        // the last field is "Literal Header Field Never Indexed" (0001xxxx)
+        byte[] cookie = indexingEncoder.encode(List.of(headers.get(6)), true);
+        assertEquals(0b00010000, cookie[0] & 0xf0);
+    }
 }
@@ -5,15 +5,24 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
 import com.vincentcodes.webserver.component.header.HttpHeaders;
 import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
 import com.vincentcodes.webserver.http2.Http2Configuration;
+import com.vincentcodes.webserver.http2.Http2Frame;
 import com.vincentcodes.webserver.http2.Http2FrameGenerator;
 import com.vincentcodes.webserver.http2.Http2RequestConverter;
+import com.vincentcodes.webserver.http2.Http2Stream;
 import com.vincentcodes.webserver.http2.errors.StreamError;
 import com.vincentcodes.webserver.http2.hpack.HpackEncoder;
+import com.vincentcodes.webserver.http2.types.DataFrame;
+import com.vincentcodes.webserver.http2.types.HeadersFrame;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -119,4 +128,22 @@ public class RequestConverterTest {
         });
         converter.reset();
     }
+
+    @Test
+    public void chunked_response_is_sent_as_data_frames() throws Exception{
+        List<Http2Frame> sent = new ArrayList<>();
+        Http2Stream stream = new Http2Stream(1, (st, frame)->{}, (st, frame)-> sent.add(frame), generator);
+        Iterator<String> chunks = List.of("first", "second").iterator();
+        ResponseBuilder response = ResponseBuilder.getDefault(HttpBodyChunkedStream.fromSupplier(() -> chunks.hasNext()? chunks.next().getBytes() : null));
+        response.getHeaders().add("transfer-encoding", "chunked");
+
+        converter.streamResponseToStream(response, -1, stream);
+        assertEquals(4, sent.size());
+        assertTrue(sent.get(0).payload instanceof HeadersFrame);
+        assertFalse(response.getHeaders().hasHeader("transfer-encoding"));
+        assertEquals("first", new String(((DataFrame)sent.get(1).payload).data));
+        assertEquals("second", new String(((DataFrame)sent.get(2).payload).data));
+        assertEquals(0, ((DataFrame)sent.get(3).payload).data.length);
+        assertEquals(DataFrame.END_STREAM, sent.get(3).flags & DataFrame.END_STREAM);
+    }
 }
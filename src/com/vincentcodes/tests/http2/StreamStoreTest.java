@@ -0,0 +1,96 @@
+package com.vincentcodes.tests.http2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.http2.Http2Configuration;
+import com.vincentcodes.webserver.http2.Http2FrameGenerator;
+import com.vincentcodes.webserver.http2.Http2Stream;
+import com.vincentcodes.webserver.http2.StreamStore;
+import com.vincentcodes.webserver.http2.hpack.HpackEncoder;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class StreamStore")
+public class StreamStoreTest {
+    private Http2FrameGenerator generator;
+
+    @BeforeAll
+    public void setup(){
+        generator = new Http2FrameGenerator(new HpackEncoder(), new Http2Configuration());
+    }
+
+    private Http2Stream newStream(int id, StreamStore store){
+        Http2Stream stream = new Http2Stream(id, (s, frame)->{}, (s, frame)->{}, generator);
+        stream.setCloseListener(store::removeStream);
+        return stream;
+    }
+
+    @Test
+    public void closed_streams_are_removed() throws Exception{
+        StreamStore store = new StreamStore();
+        store.addStream(newStream(0, store));
+        int streamCount = 100000;
+        for(int id = 1; id < streamCount*2; id += 2){
+            Http2Stream stream = newStream(id, store);
+            assertTrue(store.addStream(stream));
+            assertSame(stream, store.findStream(id).get());
+            stream.process(generator.requestHeadersFrame("get", id, true, true));
+            stream.send(generator.responseHeadersFrame(200, id, true, true));
+        }
+        assertEquals(1, store.size());
+        assertEquals(0, store.getActiveStreamCount());
+        assertEquals(streamCount*2 - 1, store.getHighestStreamId());
+        assertTrue(store.isClosed(101));
+        assertFalse(store.findStream(101).isPresent());
+        assertFalse(store.isClosed(0));
+    }
+
+    @Test
+    public void streams_can_be_found_after_removals() throws Exception{
+        StreamStore store = new StreamStore();
+        Http2Stream[] streams = new Http2Stream[200];
+        for(int i = 0; i < streams.length; i++){
+            streams[i] = newStream(i*2+1, store);
+            store.addStream(streams[i]);
+        }
+        for(int i = 0; i < streams.length; i += 3)
+            streams[i].send(generator.rstStreamFrame(streams[i].getStreamId()));
+
+        for(int i = 0; i < streams.length; i++){
+            if(i % 3 == 0)
+                assertFalse(store.findStream(streams[i].getStreamId()).isPresent());
+            else assertSame(streams[i], store.findStream(streams[i].getStreamId()).get());
+        }
+    }
+
+    @Test
+    public void streams_beyond_max_concurrent_streams_are_refused() throws Exception{
+        StreamStore store = new StreamStore(2);
+        assertTrue(store.addStream(newStream(0, store)));
+        Http2Stream first = newStream(1, store);
+        assertTrue(store.addStream(first));
+        assertTrue(store.addStream(newStream(3, store)));
+        assertFalse(store.addStream(newStream(5, store)));
+        assertTrue(store.isClosed(5));
+
+        first.send(generator.rstStreamFrame(1));
+        assertTrue(store.addStream(newStream(7, store)));
+        assertEquals(2, store.getActiveStreamCount());
+    }
+
+    @Test
+    public void stream_ids_must_increase(){
+        StreamStore store = new StreamStore();
+        store.addStream(newStream(3, store));
+        assertThrows(IllegalArgumentException.class, () -> store.addStream(newStream(1, store)));
+    }
+}
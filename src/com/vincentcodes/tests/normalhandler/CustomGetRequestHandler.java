@@ -4,6 +4,7 @@ import com.vincentcodes.webserver.annotaion.HttpHandler;
 import com.vincentcodes.webserver.annotaion.request.HttpGet;
 import com.vincentcodes.webserver.annotaion.request.RequestMapping;
 import com.vincentcodes.webserver.annotaion.response.Mutatable;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
 
@@ -23,4 +24,16 @@ public class CustomGetRequestHandler {
         res.setResponseCode(200);
         return "response";
     }
+
+    @HttpGet
+    @Mutatable
+    @RequestMapping("/chunked")
+    public void handleChunkedGet(HttpRequest req, ResponseBuilder res){
+        res.setResponseCode(200);
+        res.setBody(new HttpBodyChunkedStream(os -> {
+            os.write("first ".getBytes());
+            os.flush();
+            os.write("second".getBytes());
+        }));
+    }
 }
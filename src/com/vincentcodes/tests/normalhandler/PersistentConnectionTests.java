@@ -0,0 +1,181 @@
+package com.vincentcodes.tests.normalhandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.tests.utils.RequestGenerator;
+import com.vincentcodes.webserver.HttpHandlerRegister;
+import com.vincentcodes.webserver.WebServer;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing persistent connections and pipelining of ServerThread")
+public class PersistentConnectionTests {
+    private static final int PORT = 5052;
+    private static final int KEEP_ALIVE_TIMEOUT = 1000;
+    private static final int MAX_REQUESTS = 3;
+    private WebServer server;
+
+    @BeforeAll
+    public void setup() throws IOException, ReflectiveOperationException{
+        HttpHandlerRegister.clear();
+        HttpHandlerRegister.register(CustomGetRequestHandler.class);
+        HttpHandlerRegister.register(TestPostRequestHandler.class);
+        HttpHandlerRegister.register(PipelineTestHandler.class);
+        server = new WebServer.Builder()
+            .setPort(PORT)
+            .setUseDefaultHandlers(false)
+            .setUseMultithread(true)
+            .setKeepAliveTimeout(KEEP_ALIVE_TIMEOUT)
+            .setMaxRequestsPerConnection(MAX_REQUESTS)
+            .build();
+        Thread serverThread = new Thread(server::start);
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @Test
+    public void idle_connection_is_closed_after_timeout() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            OutputStream os = socket.getOutputStream();
+            for(int i = 0; i < 2; i++){
+                os.write(RequestGenerator.GET.generateRequest("/asd2").getBytes());
+                String response = readResponse(is);
+                assertTrue(response.startsWith("HTTP/1.1 200"));
+                assertTrue(response.contains("connection: keep-alive"));
+                assertTrue(response.endsWith("response"));
+            }
+            long start = System.currentTimeMillis();
+            assertEquals(-1, is.read());
+            long idle = System.currentTimeMillis() - start;
+            assertTrue(idle >= KEEP_ALIVE_TIMEOUT/2 && idle < 4000, "closed after " + idle + "ms");
+        }
+    }
+
+    @Test
+    public void connection_is_closed_after_max_requests() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            OutputStream os = socket.getOutputStream();
+            for(int i = 1; i <= MAX_REQUESTS; i++){
+                os.write(RequestGenerator.GET.generateRequest("/asd2").getBytes());
+                String response = readResponse(is);
+                assertTrue(response.startsWith("HTTP/1.1 200"));
+                if(i < MAX_REQUESTS)
+                    assertTrue(response.contains("keep-alive: timeout=1, max=" + MAX_REQUESTS));
+                else assertTrue(response.contains("connection: close"));
+            }
+            assertEquals(-1, is.read());
+        }
+    }
+
+    @Test
+    public void connection_close_is_respected() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            String request = RequestGenerator.GET.generateRequest("/asd2").replace("\r\n\r\n", "\r\nConnection: close\r\n\r\n");
+            socket.getOutputStream().write(request.getBytes());
+            String response = readResponse(is);
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.contains("connection: close"));
+            assertEquals(-1, is.read());
+        }
+    }
+
+    @Test
+    public void http1_0_connection_is_closed() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            String request = RequestGenerator.GET.generateRequest("/asd2").replace("HTTP/1.1", "HTTP/1.0");
+            socket.getOutputStream().write(request.getBytes());
+            String response = readResponse(is);
+            assertTrue(response.contains("connection: close"));
+            assertEquals(-1, is.read());
+        }
+    }
+
+    @Test
+    public void pipelined_responses_are_sent_in_request_order() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            // the fast request is handled while the slow one is still running
+            String slow = RequestGenerator.GET.generateRequest("/slow?key=order");
+            String fast = RequestGenerator.GET.generateRequest("/asd2");
+            socket.getOutputStream().write((slow + fast).getBytes());
+            assertTrue(readResponse(is).endsWith("slow"));
+            assertTrue(readResponse(is).endsWith("response"));
+        }
+    }
+
+    @Test
+    public void pipelined_post_waits_for_requests_before_it() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            String slow = RequestGenerator.GET.generateRequest("/slow?key=post");
+            String post = RequestGenerator.POST.generateRequest("/slow_finished?key=post", "");
+            socket.getOutputStream().write((slow + post).getBytes());
+            assertTrue(readResponse(is).endsWith("slow"));
+            assertTrue(readResponse(is).endsWith("true"));
+        }
+    }
+
+    @Test
+    public void unsent_pipelined_responses_are_closed() throws IOException, InterruptedException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            // the connection is taken over (and closed) by the first request
+            String tunnel = RequestGenerator.GET.generateRequest("/broken_tunnel");
+            String tracked = RequestGenerator.GET.generateRequest("/tracked");
+            socket.getOutputStream().write((tunnel + tracked).getBytes());
+            assertEquals(-1, is.read());
+            assertTrue(PipelineTestHandler.trackedBodyClosed.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Reads 1 response with a content-length
+     */
+    static String readResponse(InputStream is) throws IOException{
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int b;
+        while((b = is.read()) != -1){
+            head.write(b);
+            if(head.toString().endsWith("\r\n\r\n"))
+                break;
+        }
+        String headString = head.toString();
+        int contentLength = 0;
+        for(String line : headString.split("\r\n")){
+            if(line.toLowerCase().startsWith("content-length:"))
+                contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+        }
+        return headString + new String(is.readNBytes(contentLength));
+    }
+
+    @AfterAll
+    public void teardown() throws IOException{
+        server.close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.vincentcodes.tests.normalhandler;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import com.vincentcodes.webserver.annotaion.HttpHandler;
+import com.vincentcodes.webserver.annotaion.request.HttpGet;
+import com.vincentcodes.webserver.annotaion.request.HttpPost;
+import com.vincentcodes.webserver.annotaion.request.RequestMapping;
+import com.vincentcodes.webserver.annotaion.response.Mutatable;
+import com.vincentcodes.webserver.component.body.HttpBodyStream;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+
+@HttpHandler
+public class PipelineTestHandler {
+    public static final Set<String> finishedSlowRequests = ConcurrentHashMap.newKeySet();
+    public static final CountDownLatch trackedBodyClosed = new CountDownLatch(1);
+
+    @HttpGet
+    @RequestMapping("/slow")
+    public String handleSlowGet(HttpRequest req) throws InterruptedException{
+        Thread.sleep(300);
+        finishedSlowRequests.add(req.getBasicInfo().getParameters().get("key"));
+        return "slow";
+    }
+
+    /**
+     * @return whether the slow request with the key is answered already
+     */
+    @HttpPost
+    @RequestMapping("/slow_finished")
+    public String handleSlowFinishedPost(HttpRequest req){
+        return Boolean.toString(finishedSlowRequests.contains(req.getBasicInfo().getParameters().get("key")));
+    }
+
+    /**
+     * Nothing is listening on port 1, the connection is closed once the
+     * tunnel fails to open
+     */
+    @HttpGet
+    @Mutatable
+    @RequestMapping("/broken_tunnel")
+    public void handleBrokenTunnelGet(HttpRequest req, ResponseBuilder res){
+        res.setResponseCode(200);
+        res.getHeaders().add("X-Vws-Raw-Tunnel", "127.0.0.1:1");
+        res.getHeaders().add("X-Vws-Req-Policy", "none");
+    }
+
+    @HttpGet
+    @Mutatable
+    @RequestMapping("/tracked")
+    public void handleTrackedGet(HttpRequest req, ResponseBuilder res) throws IOException{
+        res.setResponseCode(200);
+        HttpBodyStream body = new HttpBodyStream(){
+            @Override
+            public void close() throws IOException{
+                super.close();
+                trackedBodyClosed.countDown();
+            }
+        };
+        body.writeToBody("tracked".getBytes());
+        res.setBody(body);
+    }
+}
@@ -0,0 +1,123 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.logger.Logger.LogType;
+import com.vincentcodes.webserver.helper.AsyncLogger;
+import com.vincentcodes.webserver.helper.AsyncLogger.OverflowPolicy;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class AsyncLogger")
+public class AsyncLoggerTest {
+    @Test
+    public void messages_are_written_in_order(){
+        AsyncLogger logger = new AsyncLogger("logs/test", false, false, 256);
+        logger.setOverflowPolicy(OverflowPolicy.DROP);
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(captured, true));
+        try{
+            for(int i = 0; i < 200; i++)
+                logger.info("async-test " + i);
+            logger.debug("async-test hidden");
+            logger.flush();
+        }finally{
+            System.setOut(stdout);
+        }
+        List<String> lines = Arrays.stream(captured.toString().split("\n"))
+            .filter(line -> line.contains("async-test"))
+            .collect(Collectors.toList());
+        assertEquals(200, lines.size());
+        assertTrue(lines.get(0).endsWith("INFO : async-test 0"));
+        for(int i = 1; i < lines.size(); i++){
+            int previous = Integer.parseInt(lines.get(i-1).substring(lines.get(i-1).lastIndexOf(' ') + 1));
+            int current = Integer.parseInt(lines.get(i).substring(lines.get(i).lastIndexOf(' ') + 1));
+            assertTrue(previous < current);
+        }
+    }
+
+    @Test
+    public void drop_when_full(){
+        AsyncLogger logger = new AsyncLogger("logs/test", false, false, 16);
+        logger.enable(LogType.DEBUG);
+        logger.setOverflowPolicy(OverflowPolicy.DROP);
+        // the writer cannot drain while the lock is held
+        synchronized(logger){
+            for(int i = 0; i < 20; i++)
+                logger.debug("drop-test " + i);
+            assertEquals(4, logger.getDroppedCount());
+        }
+        muteAndFlush(logger);
+    }
+
+    @Test
+    public void sample_debug_messages_but_keep_warnings(){
+        AsyncLogger logger = new AsyncLogger("logs/test", false, false, 16);
+        logger.enable(LogType.DEBUG);
+        logger.setOverflowPolicy(OverflowPolicy.SAMPLE);
+        logger.setSampleRate(4);
+        synchronized(logger){
+            // half of the ring is filled, 1 in 4 afterwards
+            for(int i = 0; i < 12; i++)
+                logger.debug("sample-test " + i);
+            assertEquals(3, logger.getDroppedCount());
+            for(int i = 0; i < 7; i++)
+                logger.warn("sample-test warning " + i);
+            assertEquals(3, logger.getDroppedCount());
+        }
+        muteAndFlush(logger);
+    }
+
+    @Test
+    public void lazy_messages_are_built_by_the_writer() throws InterruptedException{
+        AsyncLogger logger = new AsyncLogger("logs/test", false, false, 16);
+        List<Thread> builtOn = new CopyOnWriteArrayList<>();
+        logger.debug(() -> {
+            builtOn.add(Thread.currentThread());
+            return "lazy-test hidden";
+        });
+        logger.enable(LogType.DEBUG);
+        logger.debug(() -> {
+            builtOn.add(Thread.currentThread());
+            return "lazy-test shown";
+        });
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try{
+            for(int i = 0; i < 100 && builtOn.isEmpty(); i++)
+                Thread.sleep(20);
+        }finally{
+            System.setOut(stdout);
+        }
+        assertEquals(1, builtOn.size());
+        assertNotSame(Thread.currentThread(), builtOn.get(0));
+    }
+
+    private static void muteAndFlush(AsyncLogger logger){
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        PrintStream discard = new PrintStream(new ByteArrayOutputStream());
+        System.setOut(discard);
+        System.setErr(discard);
+        try{
+            logger.flush();
+        }finally{
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+    }
+}
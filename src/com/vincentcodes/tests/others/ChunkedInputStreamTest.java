@@ -0,0 +1,78 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.body.ChunkedInputStream;
+import com.vincentcodes.webserver.component.body.HttpBodyLazyStream;
+import com.vincentcodes.webserver.component.header.HttpHeaders;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.request.RequestParser;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class ChunkedInputStream")
+public class ChunkedInputStreamTest {
+    private static final String POST = "POST /upload HTTP/1.1\r\nHost: 127.0.0.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+        + "6;ext=1\r\nhello \r\n5\r\nworld\r\n0\r\nChecksum: abc\r\n\r\n";
+    private static final String GET = "GET / HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n";
+
+    @Test
+    public void decode_chunks_and_trailers() throws IOException{
+        HttpHeaders trailers = new HttpHeaders();
+        InputStream is = new ByteArrayInputStream("a\r\n0123456789\r\n1A\r\nabcdefghijklmnopqrstuvwxyz\r\n0\r\nX-Count: 2\r\n\r\nrest".getBytes());
+        ChunkedInputStream chunked = new ChunkedInputStream(is, trailers);
+        assertEquals("0123456789abcdefghijklmnopqrstuvwxyz", new String(chunked.readAllBytes()));
+        assertTrue(chunked.isEndReached());
+        assertEquals("2", trailers.getHeader("x-count"));
+        assertEquals("rest", new String(is.readAllBytes()));
+    }
+
+    @Test
+    public void malformed_chunks_are_rejected(){
+        assertThrows(IOException.class, () -> new ChunkedInputStream(new ByteArrayInputStream("zz\r\nabc\r\n0\r\n\r\n".getBytes())).readAllBytes());
+        assertThrows(IOException.class, () -> new ChunkedInputStream(new ByteArrayInputStream("2\r\nabc\r\n0\r\n\r\n".getBytes())).readAllBytes());
+        assertThrows(IOException.class, () -> new ChunkedInputStream(new ByteArrayInputStream("5\r\nab".getBytes())).readAllBytes());
+    }
+
+    @Test
+    public void lazy_request_body_is_decoded_incrementally() throws IOException{
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream((POST + GET).getBytes()));
+        HttpRequest request = RequestParser.parse(is, 1024, true);
+        HttpBodyLazyStream body = (HttpBodyLazyStream)request.getBody();
+        assertFalse(body.isFullyRead());
+
+        byte[] first = new byte[6];
+        assertEquals(6, body.getInputStream().read(first));
+        assertEquals("hello ", new String(first));
+        assertEquals("world", new String(body.getInputStream().readAllBytes()));
+        assertTrue(body.isFullyRead());
+        assertEquals("abc", request.getTrailers().getHeader("checksum"));
+        assertEquals("/", RequestParser.parse(is, 1024, true).getBasicInfo().getPath().get());
+    }
+
+    @Test
+    public void eager_request_body_is_buffered() throws IOException{
+        HttpRequest request = RequestParser.parse(POST);
+        assertTrue(request.isValid());
+        assertEquals("hello world", request.getBody().string());
+        assertEquals(11, request.getBody().length());
+        assertEquals("abc", request.getTrailers().getHeader("checksum"));
+    }
+
+    @Test
+    public void unknown_transfer_encoding_is_invalid(){
+        assertFalse(RequestParser.parse(POST.replace("chunked", "gzip")).isValid());
+    }
+}
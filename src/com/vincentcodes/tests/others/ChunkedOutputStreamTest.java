@@ -0,0 +1,91 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.ServerThreadUtils;
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.body.ChunkedOutputStream;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class ChunkedOutputStream")
+public class ChunkedOutputStreamTest {
+    @Test
+    public void flush_sends_a_chunk() throws IOException{
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ChunkedOutputStream chunkedOs = new ChunkedOutputStream(os);
+        chunkedOs.write("hello ".getBytes());
+        chunkedOs.flush();
+        assertEquals("6\r\nhello \r\n", os.toString());
+        chunkedOs.write("world".getBytes());
+        chunkedOs.finish();
+        assertEquals("6\r\nhello \r\n5\r\nworld\r\n0\r\n\r\n", os.toString());
+    }
+
+    @Test
+    public void full_buffer_is_sent() throws IOException{
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ChunkedOutputStream chunkedOs = new ChunkedOutputStream(os, 4);
+        chunkedOs.write("abcdef".getBytes());
+        chunkedOs.write('g');
+        chunkedOs.finish();
+        assertEquals("6\r\nabcdef\r\n1\r\ng\r\n0\r\n\r\n", os.toString());
+    }
+
+    @Test
+    public void empty_body() throws IOException{
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ChunkedOutputStream chunkedOs = new ChunkedOutputStream(os);
+        chunkedOs.flush();
+        chunkedOs.close();
+        assertEquals("0\r\n\r\n", os.toString());
+        assertThrows(IOException.class, () -> chunkedOs.write('a'));
+    }
+
+    @Test
+    public void chunked_body_can_be_buffered() throws IOException{
+        HttpBodyChunkedStream body = new HttpBodyChunkedStream(os -> os.write("streamed".getBytes()));
+        assertEquals(-1, body.length());
+        assertEquals("streamed", body.string());
+        assertEquals("stream", new String(body.getBytes(6)));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        body.streamBytesTo(os);
+        assertEquals("streamed", os.toString());
+    }
+
+    @Test
+    public void http1_1_clients_get_chunks() throws IOException{
+        ResponseBuilder response = ResponseBuilder.getDefault(new HttpBodyChunkedStream(os -> os.write("streamed".getBytes())));
+        ServerThreadUtils.prepareConnectionHeaders(response, true, "HTTP/1.1", new WebServer.Configuration());
+        assertEquals("chunked", response.getHeaders().getHeader("transfer-encoding"));
+        assertEquals("keep-alive", response.getHeaders().getHeader("connection"));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ServerThreadUtils.streamChunkedBodyTo(response, os);
+        assertEquals("8\r\nstreamed\r\n0\r\n\r\n", os.toString());
+    }
+
+    @Test
+    public void other_clients_get_the_raw_body_until_close() throws IOException{
+        ResponseBuilder response = ResponseBuilder.getDefault(new HttpBodyChunkedStream(os -> os.write("streamed".getBytes())));
+        ServerThreadUtils.prepareConnectionHeaders(response, true, "HTTP/1.0", new WebServer.Configuration());
+        assertNull(response.getHeaders().getHeader("transfer-encoding"));
+        assertNull(response.getHeaders().getHeader("content-length"));
+        assertEquals("close", response.getHeaders().getHeader("connection"));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ServerThreadUtils.streamChunkedBodyTo(response, os);
+        assertEquals("streamed", os.toString());
+    }
+}
@@ -0,0 +1,38 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.header.EntityEncodings;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class EntityEncodings")
+public class EntityEncodingsTest {
+    @Test
+    public void listed_encodings_are_accepted(){
+        assertTrue(EntityEncodings.isAccepted("gzip", EntityEncodings.GZIP));
+        assertTrue(EntityEncodings.isAccepted("deflate, GZIP;q=0.5", EntityEncodings.GZIP));
+        assertFalse(EntityEncodings.isAccepted("deflate, br", EntityEncodings.GZIP));
+        assertFalse(EntityEncodings.isAccepted("x-gzip", EntityEncodings.GZIP));
+        assertFalse(EntityEncodings.isAccepted(null, EntityEncodings.GZIP));
+    }
+
+    @Test
+    public void encodings_with_zero_q_value_are_not_accepted(){
+        assertFalse(EntityEncodings.isAccepted("gzip;q=0", EntityEncodings.GZIP));
+        assertFalse(EntityEncodings.isAccepted("br, gzip ; q=0.000", EntityEncodings.GZIP));
+        assertFalse(EntityEncodings.isAccepted("gzip;q=0, *", EntityEncodings.GZIP));
+    }
+
+    @Test
+    public void wildcard_applies_to_unlisted_encodings(){
+        assertTrue(EntityEncodings.isAccepted("br, *;q=0.1", EntityEncodings.GZIP));
+        assertFalse(EntityEncodings.isAccepted("br, *;q=0", EntityEncodings.GZIP));
+        assertTrue(EntityEncodings.isAccepted("*;q=0, gzip", EntityEncodings.GZIP));
+    }
+}
@@ -0,0 +1,62 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.body.HttpBodyFileStream;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class HttpBodyFileStream")
+public class HttpBodyFileStreamTest {
+    private File file;
+    private byte[] content;
+
+    @BeforeAll
+    public void setup() throws IOException{
+        content = new byte[20000];
+        for(int i = 0; i < content.length; i++)
+            content[i] = (byte)i;
+        file = File.createTempFile("body-test", null);
+        Files.write(file.toPath(), content);
+    }
+
+    @Test
+    public void stream_range_only() throws IOException{
+        try(HttpBodyFileStream body = new HttpBodyFileStream(file, 10000)){
+            body.skip(500);
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            body.streamBytesTo(os);
+            assertArrayEquals(Arrays.copyOfRange(content, 500, 10500), os.toByteArray());
+        }
+    }
+
+    @Test
+    public void transfer_range_to_channel() throws IOException{
+        try(HttpBodyFileStream body = new HttpBodyFileStream(file, 10000)){
+            body.skip(500);
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            assertEquals(10000, body.transferTo(Channels.newChannel(os)));
+            assertArrayEquals(Arrays.copyOfRange(content, 500, 10500), os.toByteArray());
+            assertEquals(0, body.remainingLength());
+        }
+    }
+
+    @AfterAll
+    public void teardown(){
+        file.delete();
+    }
+}
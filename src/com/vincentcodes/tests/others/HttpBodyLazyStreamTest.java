@@ -0,0 +1,104 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.body.HttpBodyLazyStream;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.request.RequestParser;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class HttpBodyLazyStream")
+public class HttpBodyLazyStreamTest {
+    private static final String POST = "POST /upload HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Length: 11\r\n\r\nhello world";
+    private static final String GET = "GET / HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n";
+
+    @Test
+    public void body_is_left_on_the_connection() throws IOException{
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream((POST + GET).getBytes()));
+        HttpRequest request = RequestParser.parse(is, 1024, true);
+        HttpBodyLazyStream body = (HttpBodyLazyStream)request.getBody();
+        assertEquals(11, body.length());
+        assertFalse(body.isFullyRead());
+
+        assertEquals("hello world", new String(body.getInputStream().readAllBytes()));
+        assertTrue(body.isFullyRead());
+        // the next request is untouched
+        assertEquals("/", RequestParser.parse(is, 1024, true).getBasicInfo().getPath().get());
+    }
+
+    @Test
+    public void discard_unread_body() throws IOException{
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream((POST + GET).getBytes()));
+        HttpBodyLazyStream body = (HttpBodyLazyStream)RequestParser.parse(is, 1024, true).getBody();
+        assertEquals('h', body.getInputStream().read());
+        assertFalse(body.discardRemaining(5));
+        assertTrue(body.discardRemaining(100));
+        assertEquals("/", RequestParser.parse(is, 1024, true).getBasicInfo().getPath().get());
+    }
+
+    @Test
+    public void stream_without_buffering() throws IOException{
+        HttpBodyLazyStream body = new HttpBodyLazyStream(new ByteArrayInputStream("abcdef".getBytes()), 4, 1024);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        body.streamBytesTo(os);
+        assertEquals("abcd", os.toString());
+        assertTrue(body.isFullyRead());
+    }
+
+    @Test
+    public void spill_to_disk() throws IOException{
+        byte[] content = new byte[5000];
+        for(int i = 0; i < content.length; i++)
+            content[i] = (byte)i;
+        try(HttpBodyLazyStream body = new HttpBodyLazyStream(new ByteArrayInputStream(content), -1, 1024)){
+            assertArrayEquals(content, body.getBytes());
+            assertEquals(5000, body.length());
+        }
+    }
+
+    @Test
+    public void temporary_file_is_deleted_if_reading_fails() throws IOException{
+        InputStream brokenConnection = new InputStream(){
+            @Override
+            public int read() throws IOException{
+                throw new IOException("Connection reset");
+            }
+        };
+        InputStream is = new SequenceInputStream(new ByteArrayInputStream(new byte[5000]), brokenConnection);
+        int tempFileCount = countTempFiles();
+        try(HttpBodyLazyStream body = new HttpBodyLazyStream(is, -1, 1024)){
+            assertThrows(UncheckedIOException.class, () -> body.getBytes());
+        }
+        assertEquals(tempFileCount, countTempFiles());
+    }
+
+    private static int countTempFiles(){
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles((dir, name) -> name.startsWith("webserver-res"));
+        return files == null? 0 : files.length;
+    }
+
+    @Test
+    public void eager_parsing_is_unchanged() throws IOException{
+        HttpRequest request = RequestParser.parse(POST);
+        assertFalse(request.getBody() instanceof HttpBodyLazyStream);
+        assertEquals("hello world", request.getBody().string());
+    }
+}
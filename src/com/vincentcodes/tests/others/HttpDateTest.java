@@ -0,0 +1,38 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.util.HttpDate;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class HttpDate")
+public class HttpDateTest {
+    @Test
+    public void format_imf_fixdate(){
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDate.format(784111777000L));
+    }
+
+    @Test
+    public void current_date_is_shared_within_a_second(){
+        String first, second;
+        byte[] bytes;
+        long before;
+        do{
+            before = System.currentTimeMillis() / 1000;
+            first = HttpDate.now();
+            second = HttpDate.now();
+            bytes = HttpDate.nowBytes();
+        }while(before != System.currentTimeMillis() / 1000);
+        assertSame(first, second);
+        assertEquals(first, new String(bytes, StandardCharsets.US_ASCII));
+        assertEquals(HttpDate.format(before * 1000), first);
+    }
+}
@@ -0,0 +1,74 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.reflect.HandlerShape;
+import com.vincentcodes.webserver.reflect.MethodDecorator;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class MethodDecorator")
+public class MethodDecoratorTest {
+    @Test
+    public void shapes_are_detected() throws Exception{
+        assertEquals(HandlerShape.REQUEST, decorate("request", HttpRequest.class).getShape());
+        assertEquals(HandlerShape.REQUEST_RESPONSE, decorate("requestResponse", HttpRequest.class, ResponseBuilder.class).getShape());
+        assertEquals(HandlerShape.OTHER, decorate("add", int.class, int.class).getShape());
+        assertTrue(decorate("requestResponse", HttpRequest.class, ResponseBuilder.class).returnsVoid());
+    }
+
+    @Test
+    public void invoke_handlers() throws Exception{
+        HttpRequest request = new HttpRequest();
+        assertEquals("handled", decorate("request", HttpRequest.class).invoke(request));
+        assertNull(decorate("requestResponse", HttpRequest.class, ResponseBuilder.class).invoke(request, null));
+        assertEquals(3, decorate("add", int.class, int.class).invoke(1, 2));
+        assertThrows(IllegalArgumentException.class, () -> decorate("add", int.class, int.class).invoke(1));
+    }
+
+    @Test
+    public void mismatched_arguments_are_not_invoked() throws Exception{
+        MethodDecorator add = decorate("add", int.class, int.class);
+        assertThrows(IllegalArgumentException.class, () -> add.invoke(1, null));
+        assertThrows(IllegalArgumentException.class, () -> add.invoke(1, "2"));
+        assertThrows(IllegalArgumentException.class, () -> add.invoke(1, 2L));
+        MethodDecorator request = decorate("request", HttpRequest.class);
+        assertThrows(IllegalArgumentException.class, () -> request.invoke(new Object[]{"request"}));
+        assertEquals("handled", request.invoke(new Object[]{null}));
+    }
+
+    @Test
+    public void exceptions_are_wrapped() throws Exception{
+        MethodDecorator method = decorate("fail", HttpRequest.class);
+        InvocationTargetException e = assertThrows(InvocationTargetException.class, () -> method.invoke(new HttpRequest()));
+        assertEquals("failed", e.getCause().getMessage());
+    }
+
+    private static MethodDecorator decorate(String name, Class<?>... parameterTypes) throws NoSuchMethodException{
+        return new MethodDecorator(new Handlers(), Handlers.class.getDeclaredMethod(name, parameterTypes));
+    }
+
+    private static class Handlers {
+        public String request(HttpRequest req){
+            return "handled";
+        }
+        public void requestResponse(HttpRequest req, ResponseBuilder res){}
+        private int add(int a, int b){
+            return a + b;
+        }
+        public String fail(HttpRequest req){
+            throw new IllegalStateException("failed");
+        }
+    }
+}
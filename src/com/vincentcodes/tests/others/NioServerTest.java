@@ -0,0 +1,166 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.tests.normalhandler.CustomGetRequestHandler;
+import com.vincentcodes.tests.normalhandler.TestPostRequestHandler;
+import com.vincentcodes.tests.utils.RequestGenerator;
+import com.vincentcodes.webserver.HttpHandlerRegister;
+import com.vincentcodes.webserver.WebServer;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing NIO mode of WebServer")
+public class NioServerTest {
+    private static final int PORT = 5051;
+    private WebServer server;
+
+    @BeforeAll
+    public void setup() throws IOException, ReflectiveOperationException{
+        HttpHandlerRegister.clear();
+        HttpHandlerRegister.register(CustomGetRequestHandler.class);
+        HttpHandlerRegister.register(TestPostRequestHandler.class);
+        server = new WebServer.Builder()
+            .setPort(PORT)
+            .setUseDefaultHandlers(false)
+            .setUseNio(true)
+            .build();
+        Thread serverThread = new Thread(server::start);
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @Test
+    public void pipelined_requests_are_answered_in_order() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            OutputStream os = socket.getOutputStream();
+            String keepAlive = RequestGenerator.GET.generateRequest("/asd2");
+            String notFound = RequestGenerator.GET.generateRequest("/asd");
+            String close = keepAlive.replace("\r\n\r\n", "\r\nConnection: close\r\n\r\n");
+            os.write((keepAlive + notFound + close).getBytes());
+            os.flush();
+
+            String responses = readAll(socket.getInputStream());
+            assertEquals(3, responses.split("HTTP/1.1 ").length - 1);
+            int first = responses.indexOf("HTTP/1.1 200");
+            int second = responses.indexOf("HTTP/1.1 404");
+            int third = responses.lastIndexOf("HTTP/1.1 200");
+            assertTrue(first < second && second < third);
+            assertTrue(responses.endsWith("response"));
+        }
+    }
+
+    @Test
+    public void malformed_request_closes_connection() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write("GET\r\n\r\n".getBytes());
+            assertTrue(readAll(socket.getInputStream()).startsWith("HTTP/1.1 400"));
+        }
+    }
+
+    @Test
+    public void chunked_body_is_streamed() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            String request = RequestGenerator.GET.generateRequest("/chunked").replace("\r\n\r\n", "\r\nConnection: close\r\n\r\n");
+            socket.getOutputStream().write(request.getBytes());
+            String response = readAll(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.contains("transfer-encoding: chunked"));
+            assertTrue(response.endsWith("\r\n\r\n6\r\nfirst \r\n6\r\nsecond\r\n0\r\n\r\n"));
+        }
+    }
+
+    @Test
+    public void chunked_request_is_framed() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            OutputStream os = socket.getOutputStream();
+            String post = "POST /test HTTP/1.1\r\nHost: 127.0.0.1\r\nTransfer-Encoding: chunked\r\n\r\n";
+            String close = RequestGenerator.GET.generateRequest("/asd2").replace("\r\n\r\n", "\r\nConnection: close\r\n\r\n");
+            // the body arrives in pieces, the request must not be dispatched before its last chunk
+            os.write((post + "5\r\nhel").getBytes());
+            os.flush();
+            sleep(100);
+            os.write("lo\r\n6\r\n world\r\n0\r\n".getBytes());
+            os.flush();
+            sleep(100);
+            os.write(("\r\n" + close).getBytes());
+            os.flush();
+
+            String responses = readAll(socket.getInputStream());
+            assertTrue(responses.startsWith("HTTP/1.1 200"));
+            assertTrue(responses.contains("hello world"));
+            assertTrue(responses.endsWith("response"));
+        }
+    }
+
+    @Test
+    public void many_small_chunks_are_framed() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            socket.setTcpNoDelay(true);
+            OutputStream os = socket.getOutputStream();
+            os.write("POST /test HTTP/1.1\r\nHost: 127.0.0.1\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n".getBytes());
+            for(int i = 0; i < 300; i++){
+                os.write("1\r\na\r\n".getBytes());
+                os.flush();
+            }
+            os.write("0\r\n\r\n".getBytes());
+            os.flush();
+
+            String response = readAll(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.endsWith("a".repeat(300)));
+        }
+    }
+
+    @Test
+    public void large_body_is_streamed() throws IOException{
+        try(Socket socket = new Socket("127.0.0.1", PORT)){
+            socket.setSoTimeout(5000);
+            OutputStream os = socket.getOutputStream();
+            // larger than the input buffer and the spill threshold
+            String body = "a".repeat(3 * 1024 * 1024);
+            String post = RequestGenerator.POST.generateRequest("/test", body);
+            String close = RequestGenerator.GET.generateRequest("/asd2").replace("\r\n\r\n", "\r\nConnection: close\r\n\r\n");
+            os.write((post + close).getBytes());
+            os.flush();
+
+            String responses = readAll(socket.getInputStream());
+            assertTrue(responses.startsWith("HTTP/1.1 200"));
+            assertTrue(responses.contains("content-length: " + body.length()));
+            assertTrue(responses.contains("\r\n\r\n" + body + "HTTP/1.1 200"));
+            assertTrue(responses.endsWith("response"));
+        }
+    }
+
+    private static void sleep(long millis){
+        try{
+            Thread.sleep(millis);
+        }catch(InterruptedException ignored){}
+    }
+
+    private static String readAll(InputStream is) throws IOException{
+        return new String(is.readAllBytes());
+    }
+
+    @AfterAll
+    public void teardown() throws IOException{
+        server.close();
+    }
+}
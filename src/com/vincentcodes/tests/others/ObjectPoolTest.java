@@ -0,0 +1,81 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.helper.ObjectPool;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class ObjectPool")
+public class ObjectPoolTest {
+    @Test
+    public void find_instances_by_supertype(){
+        ObjectPool pool = new ObjectPool();
+        ArrayList<String> list = new ArrayList<>();
+        pool.put(list);
+        assertSame(list, pool.get(ArrayList.class));
+        assertSame(list, pool.getInstanceOf(List.class));
+        assertSame(list, pool.getInstanceOf(Iterable.class));
+        assertTrue(pool.hasInstanceOf(java.util.AbstractList.class));
+        assertFalse(pool.hasInstanceOf(Set.class));
+        assertNull(pool.getInstanceOf(Set.class));
+
+        // the index follows replaced instances
+        ArrayList<String> replacement = new ArrayList<>();
+        pool.put(replacement);
+        assertSame(replacement, pool.getInstanceOf(List.class));
+    }
+
+    @Test
+    public void concurrent_creation_gives_one_instance() throws Exception{
+        ObjectPool pool = new ObjectPool();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            CountDownLatch start = new CountDownLatch(1);
+            List<Callable<Object>> tasks = new ArrayList<>();
+            for(int i = 0; i < threads; i++){
+                tasks.add(() -> {
+                    start.await();
+                    return pool.getButCreateIfAbsent(PooledObject.class);
+                });
+            }
+            List<Future<Object>> futures = new ArrayList<>();
+            for(Callable<Object> task : tasks)
+                futures.add(executor.submit(task));
+            start.countDown();
+            Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+            for(Future<Object> future : futures)
+                instances.add(future.get());
+            assertEquals(1, instances.size());
+            assertSame(pool.get(PooledObject.class), instances.iterator().next());
+            assertSame(pool.get(PooledObject.class), pool.getInstanceOf(Runnable.class));
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    public static class PooledObject implements Runnable {
+        @Override
+        public void run(){}
+    }
+}
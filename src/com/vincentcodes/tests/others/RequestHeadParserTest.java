@@ -0,0 +1,74 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.header.HttpHeaders;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.request.RequestHeadParser;
+import com.vincentcodes.webserver.component.request.RequestParser;
+import com.vincentcodes.webserver.exception.CannotParseRequestException;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class RequestHeadParser")
+public class RequestHeadParserTest {
+    private static final String HEAD = "GET /a%20b?x=1 HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection:  keep-alive \r\nX-Custom-Header: Some Value\r\n\r\n";
+
+    @Test
+    public void tokenize_head() throws Exception{
+        RequestHeadParser parser = new RequestHeadParser();
+        HttpHeaders headers = new HttpHeaders();
+        assertTrue(parser.readHead(new ByteArrayInputStream(HEAD.getBytes())));
+        parser.parse(headers);
+
+        assertSame("GET", parser.getMethod());
+        assertSame("HTTP/1.1", parser.getVersion());
+        assertEquals("/a%20b?x=1", parser.getRawPath());
+        assertSame("keep-alive", headers.getHeader("connection"));
+        assertEquals("Some Value", headers.getHeader("x-custom-header"));
+        assertEquals(HEAD, parser.headString());
+    }
+
+    @Test
+    public void stream_is_left_after_head() throws Exception{
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream((HEAD + "body" + HEAD).getBytes()));
+        RequestHeadParser parser = new RequestHeadParser();
+        assertTrue(parser.readHead(is));
+        assertEquals("body", new String(is.readNBytes(4)));
+        assertTrue(parser.readHead(is));
+        parser.parse(new HttpHeaders());
+        assertEquals("/a%20b?x=1", parser.getRawPath());
+        assertFalse(parser.readHead(is));
+    }
+
+    @Test
+    public void bare_line_feeds_are_accepted() throws IOException{
+        HttpRequest request = RequestParser.parse("\r\nPOST /test HTTP/1.1\nContent-Length: 2\n\nhi");
+        assertTrue(request.isValid());
+        assertEquals("/test", request.getBasicInfo().getPath().get());
+        assertEquals("hi", request.getBody().string());
+    }
+
+    @Test
+    public void malformed_heads_are_invalid() throws IOException{
+        assertFalse(RequestParser.parse("GET\r\n\r\n").isValid());
+        assertFalse(RequestParser.parse("GET / HTTP/1.1\r\nNoColon\r\n\r\n").isValid());
+        assertFalse(RequestParser.parse("BREW / HTTP/1.1\r\n\r\n").isValid());
+
+        String huge = "GET / HTTP/1.1\r\nX-Large: " + "a".repeat(RequestHeadParser.MAX_HEAD_SIZE) + "\r\n\r\n";
+        assertThrows(CannotParseRequestException.class, () -> new RequestHeadParser().readHead(new ByteArrayInputStream(huge.getBytes())));
+    }
+}
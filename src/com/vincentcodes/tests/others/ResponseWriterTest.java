@@ -0,0 +1,83 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.body.HttpBodyStream;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.component.response.ResponseWriter;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class ResponseWriter")
+public class ResponseWriterTest {
+    @Test
+    public void head_is_the_same_as_as_string() throws IOException{
+        ResponseBuilder response = ResponseBuilder.getInstance(404, new HttpBodyStream());
+        response.getHeaders().add("Content-Type", "text/plain");
+        response.getHeaders().add("X-Custom", "some value");
+        response.getHeaders().add("Content-Disposition", "attachment; filename=\"文件.txt\"");
+        assertArrayEquals(response.asString().getBytes(StandardCharsets.UTF_8), ResponseWriter.encode(response));
+
+        response.empty();
+        assertEquals(0, ResponseWriter.encode(response).length);
+    }
+
+    @Test
+    public void small_body_is_sent_in_one_write() throws IOException{
+        ResponseBuilder response = ResponseBuilder.getDefault(new HttpBodyStream());
+        response.getBody().writeToBody("hello".getBytes());
+        response.getHeaders().add("Content-Length", "5");
+        CountingOutputStream os = new CountingOutputStream();
+        assertTrue(ResponseWriter.write(response, os, true));
+        assertEquals(1, os.writes);
+        assertEquals(response.asString() + "hello", os.toString());
+    }
+
+    @Test
+    public void large_body_is_left_to_the_caller() throws IOException{
+        ResponseBuilder response = ResponseBuilder.getDefault(new HttpBodyStream());
+        response.getBody().writeToBody(new byte[ResponseWriter.SMALL_BODY_SIZE + 1]);
+        CountingOutputStream os = new CountingOutputStream();
+        assertFalse(ResponseWriter.write(response, os, true));
+        assertEquals(response.asString(), os.toString());
+
+        // HEAD requests
+        os = new CountingOutputStream();
+        assertTrue(ResponseWriter.write(response, os, false));
+        assertEquals(response.asString(), os.toString());
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int writes = 0;
+
+        @Override
+        public void write(int b){
+            writes++;
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len){
+            writes++;
+            bytes.write(b, off, len);
+        }
+
+        @Override
+        public String toString(){
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
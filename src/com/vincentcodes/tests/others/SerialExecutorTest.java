@@ -0,0 +1,81 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.helper.SerialExecutor;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class SerialExecutor")
+public class SerialExecutorTest {
+    @Test
+    public void queues_share_threads_and_keep_order() throws Exception{
+        ExecutorService shared = Executors.newFixedThreadPool(2);
+        try{
+            int queueCount = 20, tasksPerQueue = 200;
+            CountDownLatch done = new CountDownLatch(queueCount * tasksPerQueue);
+            List<List<Integer>> results = new ArrayList<>();
+            for(int i = 0; i < queueCount; i++){
+                SerialExecutor queue = new SerialExecutor(shared);
+                List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+                results.add(result);
+                for(int j = 0; j < tasksPerQueue; j++){
+                    int value = j;
+                    queue.execute(() -> {
+                        result.add(value);
+                        done.countDown();
+                    });
+                }
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            for(List<Integer> result : results){
+                for(int j = 0; j < tasksPerQueue; j++)
+                    assertEquals(j, result.get(j));
+            }
+        }finally{
+            shared.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdown_drops_pending_tasks() throws Exception{
+        ExecutorService shared = Executors.newSingleThreadExecutor();
+        try{
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch blocked = new CountDownLatch(1);
+            List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+            SerialExecutor queue = new SerialExecutor(shared);
+            queue.execute(() -> {
+                started.countDown();
+                try{
+                    blocked.await();
+                }catch(InterruptedException ignored){}
+                result.add(0);
+            });
+            queue.execute(() -> result.add(1));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            queue.shutdown();
+            queue.execute(() -> result.add(2));
+            blocked.countDown();
+
+            shared.submit(() -> {}).get(5, TimeUnit.SECONDS);
+            assertTrue(queue.isShutdown());
+            assertEquals(List.of(0), result);
+        }finally{
+            shared.shutdown();
+        }
+    }
+}
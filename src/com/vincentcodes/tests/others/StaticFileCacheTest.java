@@ -0,0 +1,116 @@
+package com.vincentcodes.tests.others;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.component.response.StaticFileCache;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class StaticFileCache")
+public class StaticFileCacheTest {
+    private File directory;
+    private File index;
+    private File image;
+    private StaticFileCache cache;
+
+    @BeforeAll
+    public void setup() throws IOException{
+        directory = Files.createTempDirectory("cache-test").toFile();
+        index = new File(directory, "index.html");
+        image = new File(directory, "logo.png");
+    }
+
+    @BeforeEach
+    public void reset() throws IOException{
+        Files.writeString(index.toPath(), "<html>" + "hello world ".repeat(100) + "</html>");
+        Files.write(image.toPath(), new byte[2000]);
+        cache = new StaticFileCache(4096, null);
+    }
+
+    @Test
+    public void serve_from_memory_once_cached() throws IOException{
+        assertNull(cache.get(index, false));
+        ResponseBuilder first = cache.useWholeFileAsBody(index, false);
+        assertTrue(cache.isCached(index));
+
+        // not watched, the old content is still served
+        Files.writeString(index.toPath(), "changed");
+        ResponseBuilder second = cache.get(index, false);
+        assertNotNull(second);
+        assertEquals(first.getBody().string(), second.getBody().string());
+        assertEquals("text/html; charset=utf-8", second.getHeaders().getHeader("content-type"));
+        assertEquals(first.getHeaders().getHeader("content-length"), second.getHeaders().getHeader("content-length"));
+        assertNotNull(second.getHeaders().getHeader("last-modified"));
+    }
+
+    @Test
+    public void invalidate_on_file_change() throws IOException{
+        cache.useWholeFileAsBody(index, false);
+        Files.writeString(index.toPath(), "changed");
+        cache.handleOnFileModified(index.toPath());
+        assertFalse(cache.isCached(index));
+        assertEquals("changed", cache.useWholeFileAsBody(index, false).getBody().string());
+    }
+
+    @Test
+    public void invalidate_whole_directory() throws IOException{
+        cache.useWholeFileAsBody(index, false);
+        cache.handleOnFileDeleted(directory.toPath());
+        assertFalse(cache.isCached(index));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void serve_gzip_variant() throws IOException{
+        String original = cache.useWholeFileAsBody(index, false).getBody().string();
+        ResponseBuilder response = cache.get(index, true);
+        assertEquals("gzip", response.getHeaders().getHeader("content-encoding"));
+        byte[] compressed = response.getBody().getBytes();
+        assertEquals(Integer.toString(compressed.length), response.getHeaders().getHeader("content-length"));
+        try(GZIPInputStream gzis = new GZIPInputStream(new ByteArrayInputStream(compressed))){
+            assertEquals(original, new String(gzis.readAllBytes()));
+        }
+    }
+
+    @Test
+    public void evict_least_recently_used() throws IOException{
+        cache.useWholeFileAsBody(index, false);
+        cache.useWholeFileAsBody(image, false);
+        assertTrue(cache.isCached(index));
+        cache.get(index, false);
+
+        File other = new File(directory, "other.png");
+        Files.write(other.toPath(), new byte[1000]);
+        cache.useWholeFileAsBody(other, false);
+        assertFalse(cache.isCached(image));
+        assertTrue(cache.isCached(index));
+        assertTrue(cache.isCached(other));
+        assertTrue(cache.size() <= 4096);
+        other.delete();
+    }
+
+    @AfterAll
+    public void teardown(){
+        index.delete();
+        image.delete();
+        directory.delete();
+    }
+}
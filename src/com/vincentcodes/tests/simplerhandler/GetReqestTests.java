@@ -1,9 +1,14 @@
 package com.vincentcodes.tests.simplerhandler;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import org.junit.jupiter.api.AfterAll;
@@ -14,9 +19,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
 
+import com.vincentcodes.json.ObjectMapper;
+import com.vincentcodes.json.ObjectMapperConfig;
 import com.vincentcodes.tests.utils.RequestGenerator;
 import com.vincentcodes.webserver.ExtensionRegister;
+import com.vincentcodes.webserver.ServerThreadUtils;
 import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.request.RequestParser;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
@@ -83,6 +92,48 @@ public class GetReqestTests {
         assertEquals(500, response.getResponseCode());
     }
 
+    @Test
+    public void test_if_large_json_array_is_streamed() throws Exception{
+        request = RequestParser.parse(RequestGenerator.GET.generateRequest("/large_array"));
+        response = dispatcher.dispatchObjectToHandlers(request);
+        assertEquals(200, response.getResponseCode());
+        assertTrue(response.getBody() instanceof HttpBodyChunkedStream);
+        assertEquals("application/json", response.getHeaders().getHeader("content-type"));
+
+        ObjectMapper objectMapper = new ObjectMapper(new ObjectMapperConfig.Builder().setSerializableAnnotationRequired(true).build());
+        String expected = objectMapper.objectToJson(new TestSimpleHttpHandler().returnsLargeJsonArray());
+        assertEquals(expected, new String(response.getBody().getBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_if_streamed_json_array_is_aborted_on_error() throws Exception{
+        request = RequestParser.parse(RequestGenerator.GET.generateRequest("/large_array_with_unknown_object"));
+        response = dispatcher.dispatchObjectToHandlers(request);
+        assertEquals(200, response.getResponseCode());
+        ServerThreadUtils.prepareConnectionHeaders(response, true, "HTTP/1.1", server.getConfiguration());
+        assertEquals("chunked", response.getHeaders().getHeader("transfer-encoding"));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        assertThrows(IOException.class, () -> ServerThreadUtils.streamChunkedBodyTo(response, os));
+        // no last chunk, the client cannot take the body as complete
+        assertFalse(os.toString().endsWith("0\r\n\r\n"));
+    }
+
+    @Test
+    public void test_if_void_handler_is_invoked() throws InvocationTargetException{
+        request = RequestParser.parse(RequestGenerator.GET.generateRequest("/void?id=42"));
+        response = dispatcher.dispatchObjectToHandlers(request);
+        assertEquals(200, response.getResponseCode());
+        assertEquals(42, TestSimpleHttpHandler.lastId);
+    }
+
+    @Test
+    public void test_if_missing_param_gives_404() throws InvocationTargetException{
+        request = RequestParser.parse(RequestGenerator.GET.generateRequest("/void"));
+        response = dispatcher.dispatchObjectToHandlers(request);
+        assertEquals(404, response.getResponseCode());
+    }
+
     @AfterEach
     public void close() throws IOException{
         if(request != null) request.close();
@@ -1,6 +1,8 @@
 package com.vincentcodes.tests.simplerhandler;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.vincentcodes.json.CannotMapFromObjectException;
 import com.vincentcodes.tests.simplerhandler.entity.Person;
@@ -11,6 +13,8 @@ import com.vincentcodes.webserver.annotaion.response.JsonResponse;
 
 @SimplerHttpHandler
 public class TestSimpleHttpHandler {
+    public static int lastId = -1;
+
     @RequestMapping("/readme.txt")
     public String handleSomethingMethod(String param1, @RequestParam("get") double get, @RequestParam(value = "json", payloadType = RequestParam.Type.JSON) Person person){
         return String.format("%s %f %s", param1, get, person);
@@ -40,4 +44,26 @@ public class TestSimpleHttpHandler {
     public File returnUnknownObject() throws CannotMapFromObjectException{
         return new File("./");
     }
+
+    @RequestMapping("/void")
+    public void returnsNothing(@RequestParam("id") int id){
+        lastId = id;
+    }
+
+    @JsonResponse
+    @RequestMapping("/large_array")
+    public List<Person> returnsLargeJsonArray(){
+        List<Person> people = new ArrayList<>();
+        for(int i = 0; i < 100; i++)
+            people.add(new Person("person" + i, i, i % 2 == 0? null : "\u00e9"));
+        return people;
+    }
+
+    @JsonResponse
+    @RequestMapping("/large_array_with_unknown_object")
+    public List<Object> returnsLargeJsonArrayWithUnknownObject(){
+        List<Object> elements = new ArrayList<>(returnsLargeJsonArray());
+        elements.set(70, new File("./"));
+        return elements;
+    }
 }
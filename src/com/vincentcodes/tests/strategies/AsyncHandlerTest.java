@@ -0,0 +1,98 @@
+package com.vincentcodes.tests.strategies;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.tests.utils.RequestGenerator;
+import com.vincentcodes.webserver.HttpHandlerRegister;
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.annotaion.HttpHandler;
+import com.vincentcodes.webserver.annotaion.request.HttpGet;
+import com.vincentcodes.webserver.annotaion.request.RequestMapping;
+import com.vincentcodes.webserver.annotaion.response.Mutatable;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.request.RequestParser;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.dispatcher.HttpRequestDispatcher;
+import com.vincentcodes.webserver.dispatcher.operation.OperationStrategyFactory;
+import com.vincentcodes.webserver.dispatcher.operation.OperationStrategyFactory.InvocationTypes;
+import com.vincentcodes.webserver.dispatcher.operation.impl.HttpDispatcherOperation;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing handlers returning CompletableFuture")
+public class AsyncHandlerTest {
+    private static CompletableFuture<String> later;
+
+    private WebServer server;
+    private HttpRequestDispatcher dispatcher;
+
+    @BeforeAll
+    public void setup() throws IOException, ReflectiveOperationException{
+        HttpHandlerRegister.clear();
+        HttpHandlerRegister.register(AsyncHandler.class);
+        server = new WebServer.Builder()
+            .setHomeDirectory("./")
+            .setUseDefaultHandlers(false)
+            .build();
+        OperationStrategyFactory factory = new OperationStrategyFactory(server.getConfiguration());
+        dispatcher = HttpRequestDispatcher.createInstance(Arrays.asList(new HttpDispatcherOperation(factory.create(InvocationTypes.NORMAL_HTTP))));
+    }
+
+    @Test
+    public void response_is_created_once_future_completes() throws Exception{
+        later = new CompletableFuture<>();
+        try(HttpRequest request = RequestParser.parse(RequestGenerator.GET.generateRequest("/later"))){
+            CompletableFuture<ResponseBuilder> pending = dispatcher.dispatchAsync(request);
+            assertFalse(pending.isDone());
+
+            later.complete("done");
+            try(ResponseBuilder response = pending.get(5, TimeUnit.SECONDS)){
+                assertEquals(200, response.getResponseCode());
+                assertEquals("done", response.getBody().string());
+                assertEquals("yes", response.getHeaders().getHeader("x-async"));
+            }
+        }
+    }
+
+    @Test
+    public void failed_future_gives_500() throws Exception{
+        try(HttpRequest request = RequestParser.parse(RequestGenerator.GET.generateRequest("/failed"));
+            ResponseBuilder response = dispatcher.dispatchObjectToHandlers(request)){
+            assertEquals(500, response.getResponseCode());
+        }
+    }
+
+    @AfterAll
+    public void closeEverything() throws IOException{
+        server.close();
+    }
+
+    @HttpHandler
+    public static class AsyncHandler {
+        @HttpGet
+        @Mutatable
+        @RequestMapping("/later")
+        public CompletableFuture<String> later(HttpRequest request, ResponseBuilder response){
+            response.getHeaders().add("x-async", "yes");
+            return later;
+        }
+
+        @HttpGet
+        @RequestMapping("/failed")
+        public CompletableFuture<String> failed(HttpRequest request){
+            return CompletableFuture.failedFuture(new IllegalStateException("expected failure"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.vincentcodes.tests.strategies;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.tests.utils.RequestGenerator;
+import com.vincentcodes.webserver.annotaion.request.HttpGet;
+import com.vincentcodes.webserver.annotaion.request.HttpPost;
+import com.vincentcodes.webserver.annotaion.request.RequestMapping;
+import com.vincentcodes.webserver.annotaion.response.Mutatable;
+import com.vincentcodes.webserver.annotaion.wrapper.InvocationCondition;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.request.RequestParser;
+import com.vincentcodes.webserver.dispatcher.HandlerDescriptor;
+import com.vincentcodes.webserver.dispatcher.reflect.ConditionalWrapper;
+import com.vincentcodes.webserver.dispatcher.reflect.DispatcherEnvironment;
+import com.vincentcodes.webserver.reflect.MethodDecorator;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class HandlerDescriptor")
+public class HandlerDescriptorTest {
+    @Test
+    public void compile_annotations() throws Exception{
+        HandlerDescriptor handler = compile(new Handlers(), "handle");
+        assertEquals(2, handler.getRequestMethods().size());
+        assertTrue(handler.getRequestMethods().containsAll(List.of("GET", "POST")));
+        assertTrue(handler.isMutatable());
+        assertFalse(handler.isJsonResponse());
+        assertTrue(handler.getPathPattern().matches("/api/items/"));
+        assertFalse(handler.getPathPattern().matches("/items"));
+    }
+
+    @Test
+    public void filters_and_conditions_are_resolved() throws Exception{
+        HandlerDescriptor filtered = compile(new TestHandler(), "test");
+        assertTrue(filtered.getRequestMethods().isEmpty());
+        try(HttpRequest get = RequestParser.parse(RequestGenerator.GET.generateRequest("/"));
+            HttpRequest post = RequestParser.parse(RequestGenerator.POST.generateRequest("/", ""))){
+            assertTrue(filtered.willFilterOut(get));
+            assertFalse(filtered.willFilterOut(post));
+
+            HandlerDescriptor conditional = compile(new Handlers(), "conditional");
+            assertTrue(conditional.allConditionsPass(null, post));
+            assertFalse(conditional.allConditionsPass(null, get));
+        }
+    }
+
+    private static HandlerDescriptor compile(Object owner, String name) throws IOException{
+        for(var method : owner.getClass().getDeclaredMethods()){
+            if(method.getName().equals(name))
+                return HandlerDescriptor.compile(new MethodDecorator(owner, method));
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @RequestMapping("/api")
+    public static class Handlers {
+        @HttpGet
+        @HttpPost
+        @Mutatable
+        @RequestMapping("/items")
+        public String handle(HttpRequest req){
+            return "";
+        }
+
+        @InvocationCondition({PostOnly.class})
+        @RequestMapping("/conditional")
+        public String conditional(HttpRequest req){
+            return "";
+        }
+    }
+
+    public static class PostOnly implements ConditionalWrapper {
+        @Override
+        public boolean evaluate(DispatcherEnvironment env){
+            return env.getRequest().getBasicInfo().getMethod().equals("POST");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.vincentcodes.tests.strategies;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.vincentcodes.webserver.annotaion.request.RequestMapping;
+import com.vincentcodes.webserver.dispatcher.route.PathPattern;
+import com.vincentcodes.webserver.dispatcher.route.RouteTable;
+import com.vincentcodes.webserver.reflect.RequestMappingWrapper;
+
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("Testing class RouteTable and PathPattern")
+public class RouteTableTest {
+    private static final String[] MAPPINGS = {
+        "/", "", "/test", "/test/", "/readme.txt", "/*", "/**", "/**.mp4", "/*.txt",
+        "/a/*/b", "/a/**/b", "/samplewebsites", "/dir/a.b/c", "/api//v1", "/files/**"
+    };
+    private static final String[] PATHS = {
+        "", "/", "//", "/test", "/test/", "/test//", "/testx", "/readme.txt", "/readmeXtxt", "/readme.txt/",
+        "/a", "/a/", "/a/x/b", "/a/x/y/b", "/a//b", "/video.mp4", "/x/y/video.mp4", "/x.mp4/", "/notes.txt",
+        "/x/notes.txt", "/samplewebsites", "/samplewebsites/", "/samplewebsites/readme.txt",
+        "/samplewebsites//readme.txt", "/dir/a.b/c", "/dir/a.b/c/", "/api/v1", "/api//v1", "/files/a/b",
+        "/line\nbreak"
+    };
+
+    @Test
+    public void patterns_match_the_same_paths_as_regex(){
+        for(String value : MAPPINGS){
+            RequestMapping mapping = mapping(value, false, false);
+            PathPattern pattern = PathPattern.of(mapping);
+            assertFalse(pattern.isRegex(), value);
+            String regex = new RequestMappingWrapper(mapping).getRegexPattern();
+            for(String path : PATHS)
+                assertEquals(Pattern.matches(regex, path), pattern.matches(path), value + " against " + path);
+        }
+    }
+
+    @Test
+    public void combined_patterns_match_the_same_paths_as_regex(){
+        for(String classValue : new String[]{"/samplewebsites", "/api/", "/files/**", "/a/*"}){
+            for(String methodValue : MAPPINGS){
+                RequestMapping classMapping = mapping(classValue, false, false);
+                RequestMapping methodMapping = mapping(methodValue, false, false);
+                PathPattern pattern = PathPattern.of(classMapping, methodMapping);
+                String regex = new RequestMappingWrapper(classMapping).combineWith(new RequestMappingWrapper(methodMapping));
+                for(String path : PATHS)
+                    assertEquals(Pattern.matches(regex, path), pattern.matches(path), classValue + methodValue + " against " + path);
+            }
+        }
+    }
+
+    @Test
+    public void exact_and_raw_mappings(){
+        PathPattern exact = PathPattern.of(mapping("*", true, false));
+        assertTrue(exact.matches("*"));
+        assertFalse(exact.matches("/"));
+
+        PathPattern raw = PathPattern.of(mapping("/v[0-9]+/.*", false, true));
+        assertTrue(raw.isRegex());
+        assertTrue(raw.matches("/v12/users"));
+        assertFalse(raw.matches("/vx/users"));
+    }
+
+    @Test
+    public void find_routes_in_registration_order(){
+        RouteTable<String> routes = new RouteTable<>();
+        routes.add(Collections.emptyList(), PathPattern.of(mapping("/**", false, false)), "catch-all");
+        routes.add(Arrays.asList("GET"), PathPattern.of(mapping("/api/users", false, false)), "get-users");
+        routes.add(Arrays.asList("POST"), PathPattern.of(mapping("/api/users", false, false)), "post-users");
+        routes.add(Arrays.asList("GET"), PathPattern.of(mapping("/api/*", false, false)), "get-api");
+        routes.add(Arrays.asList("GET"), PathPattern.of(mapping("/ap", false, false)), "get-ap");
+
+        assertEquals(List.of("catch-all", "get-users", "get-api"), routes.find("GET", "/api/users"));
+        assertEquals(List.of("catch-all", "post-users"), routes.find("POST", "/api/users/"));
+        assertEquals(List.of("catch-all", "get-ap"), routes.find("GET", "/ap"));
+        assertEquals(List.of("catch-all"), routes.find("BREW", "/api/users"));
+        assertEquals(5, routes.size());
+    }
+
+    private static RequestMapping mapping(String value, boolean exact, boolean raw){
+        return new RequestMapping(){
+            public String value(){
+                return value;
+            }
+            public boolean exact(){
+                return exact;
+            }
+            public boolean raw(){
+                return raw;
+            }
+
+            @Override
+            public Class<? extends Annotation> annotationType(){
+                return RequestMapping.class;
+            }
+        };
+    }
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
+import com.vincentcodes.logger.Logger.LogType;
 import com.vincentcodes.util.commandline.Command;
 import com.vincentcodes.util.commandline.CommandLineParser;
 import com.vincentcodes.util.commandline.ParserConfig;
@@ -30,6 +31,8 @@ public class Main{
 
         config.addOption("--http2", true, "Beta. Force the use of protocol http2. Must be used with TLS.");
         config.addOption("--multi", true, "Enable multi-threading");
+        config.addOption("--virtual", true, "Use virtual threads (requires Java 21+)");
+        config.addOption("--nio", true, "Serve connections with NIO event loops. Cannot be used with 'ssl'");
         config.addOption("--debug", true, "Enable debugging");
         config.addOption("--name", false, "<name>", "Name used in server header");
     }
@@ -120,9 +123,21 @@ public class Main{
             serverBuilder.setUseMultithread(true);
         }
 
+        if(cmd.hasOption("--virtual")){
+            serverBuilder.setUseVirtualThreads(true);
+        }
+
+        if(cmd.hasOption("--nio")){
+            if(cmd.getParameters().size() > 0 && cmd.getParameter(0).equals("ssl")){
+                throw new IllegalArgumentException("'--nio' cannot be used with 'ssl'");
+            }
+            serverBuilder.setUseNio(true);
+        }
+
         if(cmd.hasOption("--debug")){
             // int verbosity = Integer.parseInt(cmd.getOptionValue("--debug"));
             WebServer.logger.warn("Debugging verbosity has not been implemented yet. Continue with 'all' debug messages");
+            WebServer.logger.enable(LogType.DEBUG);
             WebServer.lowLevelDebugMode = true;
         }
 
@@ -6,18 +6,31 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
+import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
 
 import com.vincentcodes.net.UpgradableSocket;
+import com.vincentcodes.webserver.component.body.HttpBody;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
+import com.vincentcodes.webserver.component.body.HttpBodyFileStream;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.request.HttpRequestValidator;
 import com.vincentcodes.webserver.component.request.RequestParser;
 import com.vincentcodes.webserver.component.response.HttpResponses;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.component.response.ResponseWriter;
 import com.vincentcodes.webserver.dispatcher.HttpRequestDispatcher;
 import com.vincentcodes.webserver.helper.IOContainer;
+import com.vincentcodes.webserver.helper.ThreadProvider;
+import com.vincentcodes.webserver.util.FutureUtils;
 import com.vincentcodes.webserver.util.HttpRedirecter;
 
 public class ServerThread extends Thread{
@@ -37,12 +50,45 @@ public class ServerThread extends Thread{
     private WebProtocol currentProtocol = WebProtocol.HTTP_ORIGINAL;
 
     /**
-     * Creates a new server thread which deals with ONE TASK, which is handling an http request
+     * Whether the connection stays open for another HTTP/1.1 request
+     */
+    private boolean keepAlive = false;
+    private int servedRequests = 0;
+
+    /**
+     * Runs handlers of pipelined requests. Null if pipelining is disabled.
+     */
+    private final ExecutorService pipelineExecutor;
+    /**
+     * Shared by HTTP/2 connections. Null to give each connection a pool of its own.
+     */
+    private final ExecutorService http2Executor;
+
+    /**
+     * Creates a new server thread which deals with ONE TASK, which is handling the http 
+     * requests coming from one connection
      * @param clientConnection
      * @param requestValidator
      * @param requestDispatcher
      */
     public ServerThread(UpgradableSocket clientConnection, WebServer.Configuration configuration, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher){
+        this(clientConnection, configuration, requestValidator, requestDispatcher, null);
+    }
+
+    /**
+     * @param pipelineExecutor runs handlers of pipelined requests. Pipelining is disabled if null
+     */
+    public ServerThread(UpgradableSocket clientConnection, WebServer.Configuration configuration, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher, ExecutorService pipelineExecutor){
+        this(clientConnection, configuration, requestValidator, requestDispatcher, pipelineExecutor, null);
+    }
+
+    /**
+     * @param pipelineExecutor runs handlers of pipelined requests. Pipelining is disabled if null
+     * @param http2Executor runs handlers of HTTP/2 connections. Each connection creates its own if null
+     */
+    public ServerThread(UpgradableSocket clientConnection, WebServer.Configuration configuration, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher, ExecutorService pipelineExecutor, ExecutorService http2Executor){
+        this.pipelineExecutor = pipelineExecutor;
+        this.http2Executor = http2Executor;
         this.clientConnection = clientConnection;
         this.requestValidator = requestValidator;
         this.requestDispatcher = requestDispatcher;
@@ -101,10 +147,18 @@ public class ServerThread extends Thread{
             if(!configureConnection())
                 return;
 
-            ResponseBuilder response = handleHttpConnection();
+            ResponseBuilder response;
+            do{
+                if(servedRequests > 0 && !awaitNextRequest())
+                    return;
+                response = handleHttpConnection();
+            }while(keepAlive && currentProtocol == WebProtocol.HTTP_ORIGINAL);
+
+            // in http2, websocket they have their own ping/pong mechanism
+            clientConnection.getUnderlyingSocket().setSoTimeout(0);
 
             if(currentProtocol == WebProtocol.HTTP_TWO){
-                ServerThreadUtils.http2Initialization(socketIOContainer, requestValidator, requestDispatcher);
+                ServerThreadUtils.http2Initialization(socketIOContainer, requestValidator, requestDispatcher, http2Executor);
             }else if(currentProtocol == WebProtocol.WEB_SOCKET){
                 ServerThreadUtils.websocketInitialization(previousHttpRequest, socketIOContainer);
             }else if(currentProtocol == WebProtocol.TUNNEL){
@@ -127,73 +181,252 @@ public class ServerThread extends Thread{
         return;
     }
 
+    /**
+     * Waits for the next request on a persistent connection. The idle 
+     * time is bounded by {@link WebServer.Configuration#getKeepAliveTimeout()}.
+     * @return false if the client closed the connection or stayed idle for too long
+     */
+    private boolean awaitNextRequest() throws IOException{
+        InputStream is = socketIOContainer.getInputStream();
+        clientConnection.getUnderlyingSocket().setSoTimeout(serverConfig.getKeepAliveTimeout());
+        try{
+            // peek 1 byte, the request itself is parsed by RequestParser
+            is.mark(1);
+            if(is.read() == -1)
+                return false;
+            is.reset();
+        }catch(SocketTimeoutException e){
+            WebServer.logger.debug("Keep-alive timeout reached for host " + clientIpWithPort);
+            return false;
+        }
+        clientConnection.getUnderlyingSocket().setSoTimeout(WebServer.CONNECTION_READ_TIMEOUT_MILSEC);
+        return true;
+    }
+
     /**
      * HTTP/1.1 handler. Dispatcher works here. Sends server response here.
-     * @return Response corresponding to the request coming from the client for further processing.
+     * <p>
+     * Requests pipelined by the client are read ahead and their handlers 
+     * run concurrently. Responses are always sent in request order.
+     * @return Response corresponding to the last request answered for further processing.
      */
-    private ResponseBuilder handleHttpConnection() throws SocketTimeoutException, IOException, InvocationTargetException{
+    private ResponseBuilder handleHttpConnection() throws IOException, InvocationTargetException{
         InputStream is = socketIOContainer.getInputStream();
         OutputStream os = socketIOContainer.getOutputStream();
-        final ResponseBuilder response;
+        List<HttpRequest> requests = readRequests(is);
+        // pendingResponses.get(i) belongs to requests.get(i+1), the first one is handled by this thread
+        List<CompletableFuture<ResponseBuilder>> pendingResponses = new ArrayList<>(requests.size());
+        ResponseBuilder response = null;
+
+        try{
+            for(HttpRequest request : requests.subList(1, requests.size())){
+                // the pipeline thread is released as soon as the handler returns (eg. a CompletableFuture)
+                pendingResponses.add(isSafeMethod(request)? 
+                    CompletableFuture.supplyAsync(() -> dispatchAsync(request), pipelineExecutor).thenCompose(future -> future) : null);
+            }
+            for(int i = 0; i < requests.size(); i++){
+                HttpRequest request = requests.get(i);
+                CompletableFuture<ResponseBuilder> pending = i == 0? null : pendingResponses.get(i-1);
+                // non-idempotent requests are only handled after the ones before them are answered
+                response = pending == null? dispatch(request) : FutureUtils.await(pending);
+                replyClientInOrder(request, response, os);
+
+                if(!keepAlive || currentProtocol != WebProtocol.HTTP_ORIGINAL){
+                    // the rest cannot be answered on this connection anymore
+                    discardResponses(pendingResponses.subList(i, pendingResponses.size()));
+                    break;
+                }
+            }
+        }catch(InvocationTargetException | RuntimeException e){
+            discardResponses(pendingResponses);
+            throw e;
+        }finally{
+            for(HttpRequest request : requests)
+                request.close();
+        }
+        return response;
+    }
 
-        try(HttpRequest request = RequestParser.parse(is)){
+    /**
+     * Reads one request, followed by any request the client pipelined 
+     * behind it (ie. bytes which already arrived). Reading ahead stops 
+     * at anything which may depend on previous requests or take over 
+     * the connection (eg. POST, upgrades, CONNECT).
+     * @return validated requests in the order they were received
+     */
+    private List<HttpRequest> readRequests(InputStream is) throws IOException{
+        List<HttpRequest> requests = new ArrayList<>();
+        HttpRequest request;
+        do{
+            request = RequestParser.parse(is, serverConfig.getRequestBodySpillThreshold(), true);
             request.setSocket(this.socketIOContainer);
-            previousHttpRequest = request;
             if(!requestValidator.requestIsValid(request))
                 request.invalid();
-            
-            dispatch:
-            if(request.isValid()){
-                response = requestDispatcher.dispatchObjectToHandlers(request);
+            requests.add(request);
+        }while(canReadAhead(request, requests.size()) && is.available() > 0);
+        return requests;
+    }
 
-                if(response.getHeaders().getHeader("X-Vws-Raw-Tunnel") != null){
-                    currentProtocol = WebProtocol.TUNNEL;
-                    break dispatch;
-                }
+    /**
+     * @param request last request read
+     * @param batchSize number of requests read ahead so far
+     */
+    private boolean canReadAhead(HttpRequest request, int batchSize){
+        if(pipelineExecutor == null || batchSize >= WebServer.MAX_PIPELINED_REQUESTS)
+            return false;
+        if(!request.isValid() || !canKeepAlive(request, servedRequests + batchSize))
+            return false;
+        return isSafeMethod(request) && request.getHeaders().getHeader("upgrade") == null 
+            && ServerThreadUtils.isBodyFullyRead(request);
+    }
 
-                // upgrade stuff (both party agrees to upgrade)
-                String responseUpgradeHeader = response.getHeaders().getHeader("upgrade");
-                String requestUpgradeHeader = request.getHeaders().getHeader("upgrade");
-                String currentAppProtocol = clientConnection.getApplicationProtocol();
-                if(responseUpgradeHeader != null && requestUpgradeHeader != null){
-                    if(responseUpgradeHeader.equals("websocket") && requestUpgradeHeader.equals("websocket"))
-                        currentProtocol = WebProtocol.WEB_SOCKET;
-                }else if(currentAppProtocol != null && currentAppProtocol.equals("h2")){
-                    currentProtocol = WebProtocol.HTTP_TWO;
-                }
-            }else{
-                response = HttpResponses.generate400Response();
+    private static boolean isSafeMethod(HttpRequest request){
+        if(!request.isValid())
+            return false;
+        String method = request.getBasicInfo().getMethod();
+        return method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS");
+    }
+
+    /**
+     * Can be run on any thread, connection state is only updated by 
+     * {@link #replyClientInOrder(HttpRequest, ResponseBuilder, OutputStream)}
+     */
+    private ResponseBuilder dispatch(HttpRequest request) throws InvocationTargetException{
+        if(!request.isValid())
+            return HttpResponses.generate400Response();
+        return requestDispatcher.dispatchObjectToHandlers(request);
+    }
+
+    private CompletableFuture<ResponseBuilder> dispatchAsync(HttpRequest request){
+        if(!request.isValid())
+            return CompletableFuture.completedFuture(HttpResponses.generate400Response());
+        return requestDispatcher.dispatchAsync(request);
+    }
+
+    /**
+     * Responses which will never be sent still need to be closed
+     */
+    private static void discardResponses(List<CompletableFuture<ResponseBuilder>> pendingResponses){
+        for(CompletableFuture<ResponseBuilder> pending : pendingResponses){
+            if(pending == null)
+                continue;
+            // handlers may still be running, close their responses once they are done
+            pending.thenAccept(response -> {
+                try{
+                    response.close();
+                }catch(IOException ignored){}
+            });
+        }
+    }
+
+    /**
+     * Updates the connection state (keep-alive, protocol switches) and 
+     * sends the response. Must be called in the order requests arrive.
+     */
+    private void replyClientInOrder(HttpRequest request, ResponseBuilder response, OutputStream os){
+        previousHttpRequest = request;
+        servedRequests++;
+        keepAlive = false;
+        boolean isHeadRequest = false;
+
+        detectProtocol:
+        if(request.isValid()){
+            isHeadRequest = request.getBasicInfo().getMethod().equals("HEAD");
+            keepAlive = canKeepAlive(request, servedRequests);
+
+            if(response.getHeaders().getHeader("X-Vws-Raw-Tunnel") != null){
+                currentProtocol = WebProtocol.TUNNEL;
+                break detectProtocol;
+            }
+
+            // upgrade stuff (both party agrees to upgrade)
+            String responseUpgradeHeader = response.getHeaders().getHeader("upgrade");
+            String requestUpgradeHeader = request.getHeaders().getHeader("upgrade");
+            String currentAppProtocol = clientConnection.getApplicationProtocol();
+            if(responseUpgradeHeader != null && requestUpgradeHeader != null){
+                if(responseUpgradeHeader.equals("websocket") && requestUpgradeHeader.equals("websocket"))
+                    currentProtocol = WebProtocol.WEB_SOCKET;
+            }else if(currentAppProtocol != null && currentAppProtocol.equals("h2")){
+                currentProtocol = WebProtocol.HTTP_TWO;
             }
         }
 
+        // the unread body lies between this request and the next one
+        if(keepAlive && currentProtocol == WebProtocol.HTTP_ORIGINAL)
+            keepAlive = ServerThreadUtils.discardUnreadBody(request);
+        if(currentProtocol == WebProtocol.HTTP_ORIGINAL)
+            prepareConnectionHeaders(request, response);
         if(currentProtocol != WebProtocol.TUNNEL)
-            httpReplyClient(response, os);
+            httpReplyClient(response, os, !isHeadRequest);
+    }
 
-        // in http2, websocket they have their own ping/pong mechanism
-        clientConnection.getUnderlyingSocket().setSoTimeout(0);
-        return response;
+    /**
+     * Keep-alive pins a thread to the connection, hence it is only 
+     * used when multi-threading (or virtual threads) is enabled.
+     * @see ServerThreadUtils#canKeepAlive(HttpRequest, int, WebServer.Configuration)
+     */
+    private boolean canKeepAlive(HttpRequest request, int requestCount){
+        return (serverConfig.useMultithread() || ThreadProvider.useVirtualThreads()) && ServerThreadUtils.canKeepAlive(request, requestCount, serverConfig);
     }
+
+    /**
+     * @param response [mutate]
+     */
+    private void prepareConnectionHeaders(HttpRequest request, ResponseBuilder response){
+        String version = request.isValid()? request.getBasicInfo().getVersion() : null;
+        ServerThreadUtils.prepareConnectionHeaders(response, keepAlive, version, serverConfig);
+    }
+
     /**
      * @param response [be closed] response to be sent
      * @param os send response to this output stream
      */
     private void httpReplyClient(ResponseBuilder response, OutputStream os){
+        httpReplyClient(response, os, true);
+    }
+    /**
+     * @param response [be closed] response to be sent
+     * @param os send response to this output stream
+     * @param withBody false for responses to HEAD requests
+     */
+    private void httpReplyClient(ResponseBuilder response, OutputStream os, boolean withBody){
         try(response){
-            String resHeadersString = response.asString();
-            os.write(resHeadersString.getBytes());
-            WebServer.logger.debug("\n" + resHeadersString.replaceAll("\r\n", "\n"));
+            boolean bodyWritten = ResponseWriter.write(response, os, withBody);
+            WebServer.logger.debug(() -> "\n" + response.asString());
             
-            if(response.getBody().length() > 0){
+            // chunked bodies have a length of -1
+            if(!bodyWritten && response.getBody().length() != 0){
                 TimeoutThread writeTimeout = initWriteTimeout(os, WebServer.CONNECTION_WRITE_TIMEOUT_MILSEC);
                 // os.write(response.getBody().getBytes());
-                response.getBody().streamBytesTo(os);
+                streamBodyTo(response, os);
                 writeTimeout.tryStop();
             }
+            os.flush();
         }catch(IOException e){
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Files are sent with zero-copy (sendfile) on plain TCP connections. 
+     * TLS needs the bytes in user space to encrypt them.
+     */
+    private void streamBodyTo(ResponseBuilder response, OutputStream os) throws IOException{
+        HttpBody body = response.getBody();
+        Socket socket = clientConnection.getUnderlyingSocket();
+        SocketChannel channel = socket.getChannel();
+        if(body instanceof HttpBodyFileStream && channel != null && !(socket instanceof SSLSocket)){
+            os.flush();
+            ((HttpBodyFileStream)body).transferTo(channel);
+            return;
+        }
+        if(body instanceof HttpBodyChunkedStream){
+            ServerThreadUtils.streamChunkedBodyTo(response, os);
+            return;
+        }
+        body.streamBytesTo(os);
+    }
+
     /**
      * @return a thread which has already began its execution
      */
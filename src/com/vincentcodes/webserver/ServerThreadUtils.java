@@ -7,8 +7,13 @@ import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiConsumer;
 
+import com.vincentcodes.webserver.component.body.ChunkedOutputStream;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
+import com.vincentcodes.webserver.component.body.HttpBodyLazyStream;
+import com.vincentcodes.webserver.component.header.HttpHeaders;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.request.HttpRequestValidator;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
@@ -16,6 +21,7 @@ import com.vincentcodes.webserver.dispatcher.HttpRequestDispatcher;
 import com.vincentcodes.webserver.exception.CannotParseRequestException;
 import com.vincentcodes.webserver.helper.HttpTunnel;
 import com.vincentcodes.webserver.helper.IOContainer;
+import com.vincentcodes.webserver.helper.ThreadProvider;
 import com.vincentcodes.webserver.http2.Http2Connection;
 import com.vincentcodes.websocket.WebSocket;
 import com.vincentcodes.websocket.WebSocketHandlerSelector;
@@ -23,11 +29,108 @@ import com.vincentcodes.websocket.handler.WebSocketOperator;
 
 public class ServerThreadUtils {
 
+    /**
+     * HTTP/1.1 connections are persistent unless the client sends 
+     * "Connection: close".
+     * @param requestCount number of requests received on the connection (including this one)
+     */
+    public static boolean canKeepAlive(HttpRequest request, int requestCount, WebServer.Configuration configuration){
+        if(requestCount >= configuration.getMaxRequestsPerConnection())
+            return false;
+        if(!request.getBasicInfo().getVersion().equals("HTTP/1.1"))
+            return false;
+        String connectionHeader = request.getHeaders().getHeader("connection");
+        return connectionHeader == null || !connectionHeader.toLowerCase().contains("close");
+    }
+
+    /**
+     * Skips what the handler left unread of a lazy request body, so 
+     * that the next request on the connection can be read.
+     * @return false if too much is left, the connection should be closed then
+     * @see WebServer#MAX_DISCARDED_REQUEST_BODY_SIZE
+     */
+    public static boolean discardUnreadBody(HttpRequest request){
+        if(!(request.getBody() instanceof HttpBodyLazyStream))
+            return true;
+        try{
+            return ((HttpBodyLazyStream)request.getBody()).discardRemaining(WebServer.MAX_DISCARDED_REQUEST_BODY_SIZE);
+        }catch(IOException e){
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the next request on the connection can be read 
+     * without touching the body of this request
+     */
+    public static boolean isBodyFullyRead(HttpRequest request){
+        return !(request.getBody() instanceof HttpBodyLazyStream) || ((HttpBodyLazyStream)request.getBody()).isFullyRead();
+    }
+
+    /**
+     * Tell the client whether the connection is kept open. The client 
+     * needs to know where the body ends to read the next response, so 
+     * content-length is added if the handler did not set one. Bodies of 
+     * unknown length are chunked instead. Clients other than HTTP/1.1 
+     * cannot decode chunks, the body ends when the connection is closed.
+     * @param response [mutate]
+     * @param requestVersion eg. "HTTP/1.1", nullable
+     */
+    public static void prepareConnectionHeaders(ResponseBuilder response, boolean keepAlive, String requestVersion, WebServer.Configuration configuration){
+        HttpHeaders headers = response.getHeaders();
+        if(response.getBody() instanceof HttpBodyChunkedStream){
+            headers.getHeaders().remove("content-length");
+            if("HTTP/1.1".equals(requestVersion))
+                headers.add("transfer-encoding", "chunked");
+            else keepAlive = false;
+        }
+        if(!keepAlive){
+            headers.add("connection", "close");
+            return;
+        }
+        headers.add("connection", "keep-alive");
+        headers.add("keep-alive", "timeout=" + configuration.getKeepAliveTimeout()/1000 + ", max=" + configuration.getMaxRequestsPerConnection());
+        if(!headers.hasHeader("content-length") && !headers.hasHeader("transfer-encoding")){
+            int code = response.getResponseCode();
+            if(code != 204 && code != 304 && code >= 200)
+                headers.add("content-length", Long.toString(response.getBody().length()));
+        }
+    }
+
+    /**
+     * Sends the body with chunked transfer-encoding if the response says 
+     * so. The last chunk is sent once the body ends, os is kept open. 
+     * Otherwise, the raw body is sent and the connection must be closed 
+     * afterwards.
+     * <p>
+     * If the body cannot be produced, the last chunk is not sent. The 
+     * connection must be closed, the client then sees an incomplete body 
+     * instead of a truncated one.
+     * @see #prepareConnectionHeaders(ResponseBuilder, boolean, String, WebServer.Configuration)
+     */
+    public static void streamChunkedBodyTo(ResponseBuilder response, OutputStream os) throws IOException{
+        HttpBodyChunkedStream body = (HttpBodyChunkedStream)response.getBody();
+        if(!"chunked".equals(response.getHeaders().getHeader("transfer-encoding"))){
+            body.streamBytesTo(os);
+            return;
+        }
+        ChunkedOutputStream chunkedOs = new ChunkedOutputStream(os);
+        body.streamBytesTo(chunkedOs);
+        chunkedOs.finish();
+    }
+
     /**
      * Still in experimental phase
      */
     public static void http2Initialization(IOContainer socket, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher) throws IOException, CannotParseRequestException, InvocationTargetException{
-        Http2Connection http2Connection = new Http2Connection(socket, requestValidator, requestDispatcher);
+        http2Initialization(socket, requestValidator, requestDispatcher, null);
+    }
+
+    /**
+     * @param executorService shared by HTTP/2 connections, null to create one for this connection
+     */
+    public static void http2Initialization(IOContainer socket, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher, ExecutorService executorService) throws IOException, CannotParseRequestException, InvocationTargetException{
+        Http2Connection http2Connection = new Http2Connection(socket, requestValidator, requestDispatcher, executorService);
         http2Connection.setup();
         http2Connection.takeover();
     }
@@ -94,16 +197,13 @@ public class ServerThreadUtils {
                 tunnel.sendOneWay(request);
             }
 
-            (remoteServerReaderThread = new Thread("Tunnel: Remote Server Reader Thread"){
-                @Override
-                public void run() {
-                    try {
-                        HttpTunnel.streamToUntilClose(tunnelIs, socket.getOutputStream());
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
+            (remoteServerReaderThread = ThreadProvider.newThread("Tunnel: Remote Server Reader Thread", () -> {
+                try {
+                    HttpTunnel.streamToUntilClose(tunnelIs, socket.getOutputStream());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            }).start();
+            })).start();
 
             HttpTunnel.streamToUntilClose(socket.getInputStream(), tunnelOs);
         }finally{
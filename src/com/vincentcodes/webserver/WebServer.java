@@ -2,9 +2,12 @@ package com.vincentcodes.webserver;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -20,7 +23,6 @@ import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLContext;
 
 import com.vincentcodes.files.FileWatcher;
-import com.vincentcodes.logger.Logger;
 import com.vincentcodes.net.SSLUpgrader;
 import com.vincentcodes.net.UpgradableSocket;
 import com.vincentcodes.webserver.annotaion.AutoInjected;
@@ -34,8 +36,10 @@ import com.vincentcodes.webserver.annotaion.request.HttpPri;
 import com.vincentcodes.webserver.annotaion.request.HttpPut;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.request.HttpRequestValidator;
+import com.vincentcodes.webserver.component.request.RequestParser;
 import com.vincentcodes.webserver.component.request.RequestValidatorConfig;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.component.response.StaticFileCache;
 import com.vincentcodes.webserver.defaults.DefaultHandler;
 import com.vincentcodes.webserver.defaults.Http2UpgradeHandler;
 import com.vincentcodes.webserver.dispatcher.HttpRequestDispatcher;
@@ -45,11 +49,15 @@ import com.vincentcodes.webserver.dispatcher.operation.OperationStrategyFactory.
 import com.vincentcodes.webserver.dispatcher.operation.impl.HttpDispatcherOperation;
 import com.vincentcodes.webserver.dispatcher.operation.impl.SimplerHttpDispatcherOperation;
 import com.vincentcodes.webserver.exposed.BeanDefinitions;
+import com.vincentcodes.webserver.helper.AsyncLogger;
 import com.vincentcodes.webserver.helper.FieldsInjector;
 import com.vincentcodes.webserver.helper.ObjectPool;
+import com.vincentcodes.webserver.helper.ThreadProvider;
 import com.vincentcodes.webserver.helper.loader.JarLoader;
 import com.vincentcodes.webserver.helper.loader.JarRegister;
+import com.vincentcodes.webserver.nio.NioServer;
 import com.vincentcodes.webserver.reflect.MethodDecorator;
+import com.vincentcodes.webserver.util.HttpDate;
 
 /**
  * <p>
@@ -83,13 +91,37 @@ public class WebServer {
     public static final int MAX_THREAD_POOL_SIZE = 64;
 
     public static int CONNECTION_READ_TIMEOUT_MILSEC = 6000; // 6s
+    public static final int DEFAULT_KEEP_ALIVE_TIMEOUT_MILSEC = 5000; // 5s
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 100;
+    public static final int MAX_PIPELINED_REQUESTS = 16;
+    public static final int HTTP1_PIPELINE_HANDLER_THREADS = 16;
+    public static final int NIO_SELECTOR_THREADS = 2;
+    public static final int NIO_WORKER_THREADS = 16;
+    public static final long DEFAULT_STATIC_FILE_CACHE_SIZE = 32 * 1024 * 1024; // 32MiB
+    /**
+     * Unread request bodies up to this size are skipped to keep the 
+     * connection alive. The connection is closed otherwise.
+     */
+    public static final long MAX_DISCARDED_REQUEST_BODY_SIZE = 256 * 1024; // 256KiB
+    /**
+     * Arrays and collections returned by &#64;JsonResponse handlers with at 
+     * least this many elements are serialized while being sent
+     */
+    public static final int MIN_STREAMED_JSON_ARRAY_LENGTH = 64;
     public static int CONNECTION_WRITE_TIMEOUT_MILSEC = 120*(60*1000); // 120mins
     public static int TUNNEL_READ_TIMEOUT_MILSEC = 120*(60*1000); // 120mins
 
     public static int WEBSOCKET_PING_INTERVAL_MILSEC = 10*(60*1000); // 10mins
 
-    public static final int MAX_HTTP2_STREAMS_INDEX = 65536-1; // default: 2**31-1
-    public static final int HTTP2_HANDLER_THREADS = 8;
+    /**
+     * SETTINGS_MAX_CONCURRENT_STREAMS sent to clients. Streams opened 
+     * beyond it are refused (the protocol default is unlimited)
+     */
+    public static final int MAX_HTTP2_CONCURRENT_STREAMS = 128;
+    /**
+     * Shared by all HTTP/2 connections of a server
+     */
+    public static final int HTTP2_HANDLER_THREADS = 16;
 
     public static boolean THROW_ERROR_WHEN_SEND_ON_CLOSED = true;
 
@@ -102,15 +134,20 @@ public class WebServer {
     public static final int MAX_PARTIAL_DATA_LENGTH = 1024 * 1024 * 3 -1;
     // public static final int MAX_PARTIAL_DATA_LENGTH = 1024 * 1024 * 512 -1;
 
-    public static final Logger logger = new Logger("logs/output", false, true){
-        {
-            enable(LogType.DEBUG);
-        }
-    };
+    /**
+     * Messages are written by a background thread, see {@link AsyncLogger}.
+     * Debug messages (eg. request and response dumps) are disabled by
+     * default, use <code>logger.enable(LogType.DEBUG)</code>.
+     */
+    public static final AsyncLogger logger = new AsyncLogger("logs/output", false, true);
     public static boolean lowLevelDebugMode = false;
     public static boolean displayWindowUpdates = false;
 
     public static final ObjectPool PUBLIC_POOL = new ObjectPool();
+    /**
+     * @deprecated SimpleDateFormat is not thread-safe, use {@link HttpDate} instead
+     */
+    @Deprecated
     public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("E, dd MMM yyyy HH:mm:ss z", Locale.US);
     public static final Map<String, Class<? extends Annotation>> SUPPORTED_REQUEST_METHOD = Collections.unmodifiableMap(new HashMap<>(){
         {
@@ -129,9 +166,25 @@ public class WebServer {
 
     private final WebServer.Configuration configuration;
     private FileWatcher keystoreWatcher;
+    private FileWatcher staticFileWatcher;
+    private StaticFileCache staticFileCache;
 
     private ServerSocket serverSocket;
+    /**
+     * Only used in NIO mode, {@link #serverSocket} is its socket
+     */
+    private ServerSocketChannel serverChannel;
+    private NioServer nioServer;
     private ExecutorService executorService;
+    /**
+     * Runs handlers of pipelined HTTP/1.1 requests. It is separated from 
+     * {@link #executorService} because connection threads wait on it.
+     */
+    private ExecutorService pipelineExecutorService;
+    /**
+     * Runs handlers and flow-controlled sends of all HTTP/2 connections
+     */
+    private ExecutorService http2ExecutorService;
 
     static{
         // HTTP dates are always expressed in GMT, never in local time -- MDN
@@ -153,7 +206,8 @@ public class WebServer {
             ExtensionRegister.register(loader.loadJars());
         }
 
-        if(configuration.useSSL && configuration.keyStoreFile != null && configuration.keyStorePassword != null){
+        boolean sslEnabled = configuration.useSSL && configuration.keyStoreFile != null && configuration.keyStorePassword != null;
+        if(sslEnabled){
             logger.warn("Creating an SSL webserver");
             if(configuration.forceHttp2()){
                 logger.warn("Force http2 on all connections");
@@ -169,13 +223,50 @@ public class WebServer {
         }else{
             logger.warn("Creating a non-ssl webserver");
         }
+
+        if(configuration.getStaticFileCacheSize() > 0){
+            try{
+                staticFileWatcher = new FileWatcher(new File(configuration.getHomeDirectory()).getAbsoluteFile());
+                staticFileCache = new StaticFileCache(configuration.getStaticFileCacheSize(), staticFileWatcher);
+            }catch(IOException e){
+                logger.warn("Static files will not be cached, unable to watch the home directory: " + e.getMessage());
+            }
+        }
+
+        boolean useVirtualThreads = ThreadProvider.setUseVirtualThreads(configuration.useVirtualThreads());
+        if(useVirtualThreads)
+            logger.warn("Using virtual threads");
+
+        if(configuration.useNio() && sslEnabled){
+            logger.warn("NIO mode does not support SSL, using thread-per-connection instead");
+        }else if(configuration.useNio()){
+            logger.warn("Using NIO event loops for connections");
+            this.serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(InetAddress.getByName(configuration.getBindHost()), configuration.port), 50);
+            this.serverSocket = serverChannel.socket();
+            // workers only run the dispatcher
+            executorService = ThreadProvider.newFixedThreadPool(NIO_WORKER_THREADS);
+            return;
+        }
+
         // allow server take in raw bytes, and detect if SSL/TLS is needed
-        this.serverSocket = new ServerSocket(
-            configuration.port, 50, InetAddress.getByName(configuration.getBindHost()));
+        if(sslEnabled){
+            this.serverSocket = new ServerSocket(
+                configuration.port, 50, InetAddress.getByName(configuration.getBindHost()));
+        }else{
+            // accepted sockets are backed by channels, files can then be sent with zero-copy
+            this.serverSocket = ServerSocketChannel.open().socket();
+            serverSocket.bind(new InetSocketAddress(InetAddress.getByName(configuration.getBindHost()), configuration.port), 50);
+        }
 
-        executorService = configuration.useMultithread()? 
-            Executors.newFixedThreadPool(MAX_THREAD_POOL_SIZE) : 
+        // a virtual thread per connection is always multi-threaded
+        executorService = configuration.useMultithread() || useVirtualThreads? 
+            ThreadProvider.newFixedThreadPool(MAX_THREAD_POOL_SIZE) : 
             Executors.newSingleThreadExecutor();
+        // pipelining only happens on persistent connections
+        if(configuration.useMultithread() || useVirtualThreads)
+            pipelineExecutorService = ThreadProvider.newFixedThreadPool(HTTP1_PIPELINE_HANDLER_THREADS);
+        http2ExecutorService = ThreadProvider.newFixedThreadPool(HTTP2_HANDLER_THREADS);
     }
 
     /**
@@ -184,13 +275,15 @@ public class WebServer {
     public void start() {
         if(keystoreWatcher != null)
             keystoreWatcher.start();
+        if(staticFileWatcher != null)
+            staticFileWatcher.start();
 
         // TODO: maybe add some kind of ways to make it more customizable?
         RequestValidatorConfig validatorConfig = new RequestValidatorConfig();
         validatorConfig.addMandatoryHeader("host");
         HttpRequestValidator requestValidator = new HttpRequestValidator(validatorConfig);
 
-        OperationStrategyFactory opStrategyFactory = new OperationStrategyFactory(configuration);
+        OperationStrategyFactory opStrategyFactory = new OperationStrategyFactory(configuration, staticFileCache);
         List<DispatcherOperation<HttpRequest, ResponseBuilder, MethodDecorator>> dispatcherOperations = new ArrayList<>();
         dispatcherOperations.add(new HttpDispatcherOperation(opStrategyFactory.create(InvocationTypes.NORMAL_HTTP)));
         dispatcherOperations.add(new SimplerHttpDispatcherOperation(opStrategyFactory.create(InvocationTypes.SIMPLER_HTTP)));
@@ -202,13 +295,26 @@ public class WebServer {
         logger.info("Web Server started on port " + serverSocket.getLocalPort());
         logger.info("Connection read timeout is set to " + CONNECTION_READ_TIMEOUT_MILSEC + "ms");
         logger.info("Connection write timeout is set to " + CONNECTION_WRITE_TIMEOUT_MILSEC + "ms");
+        logger.info("Keep-alive timeout is set to " + configuration.getKeepAliveTimeout() + "ms (max " + configuration.getMaxRequestsPerConnection() + " requests per connection)");
+
+        if(serverChannel != null){
+            try{
+                nioServer = new NioServer(serverChannel, configuration, requestValidator, requestDispatcher, executorService);
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            nioServer.start();
+            return;
+        }
 
         int countTillGc = 0;
         while (true) {
             try{
-                ServerThread thread = new ServerThread(new UpgradableSocket(serverSocket.accept()), configuration, requestValidator, requestDispatcher);
+                ServerThread thread = new ServerThread(new UpgradableSocket(serverSocket.accept()), configuration, requestValidator, requestDispatcher, pipelineExecutorService, http2ExecutorService);
                 executorService.execute(thread);
             }catch(Exception e){
+                if(serverSocket.isClosed())
+                    return;
                 WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
             }
 
@@ -237,7 +343,17 @@ public class WebServer {
 
     public void close() throws IOException{
         serverSocket.close();
+        if(nioServer != null)
+            nioServer.close();
         shutdownExecutor();
+        if(staticFileWatcher != null){
+            // the watcher waits up to 60s for an event before it stops
+            ThreadProvider.newThread("static-file-watcher-stop", staticFileWatcher::stop).start();
+        }
+        if(pipelineExecutorService != null)
+            pipelineExecutorService.shutdownNow();
+        if(http2ExecutorService != null)
+            http2ExecutorService.shutdownNow();
     }
     private void shutdownExecutor(){
         executorService.shutdown();
@@ -278,6 +394,12 @@ public class WebServer {
         private String homeDirectory = "./";
         private JarRegister extensions = new JarRegister();
         private boolean forceHttp2 = false;
+        private int keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT_MILSEC;
+        private int maxRequestsPerConnection = DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+        private boolean useNio = false;
+        private boolean useVirtualThreads = false;
+        private long staticFileCacheSize = DEFAULT_STATIC_FILE_CACHE_SIZE;
+        private long requestBodySpillThreshold = RequestParser.DEFAULT_SPILL_THRESHOLD;
 
         protected Configuration readonly(){
             Configuration conf = new Configuration();
@@ -291,6 +413,12 @@ public class WebServer {
             conf.homeDirectory = homeDirectory;
             conf.extensions = extensions;
             conf.forceHttp2 = forceHttp2;
+            conf.keepAliveTimeout = keepAliveTimeout;
+            conf.maxRequestsPerConnection = maxRequestsPerConnection;
+            conf.useNio = useNio;
+            conf.useVirtualThreads = useVirtualThreads;
+            conf.staticFileCacheSize = staticFileCacheSize;
+            conf.requestBodySpillThreshold = requestBodySpillThreshold;
             return conf;
         }
 
@@ -333,6 +461,55 @@ public class WebServer {
         public boolean forceHttp2(){
             return forceHttp2;
         }
+
+        /**
+         * @return how long (in ms) an idle HTTP/1.1 connection is kept 
+         * open while waiting for the next request
+         */
+        public int getKeepAliveTimeout(){
+            return keepAliveTimeout;
+        }
+
+        /**
+         * @return number of requests served on one HTTP/1.1 connection 
+         * before it is closed. 1 or less means keep-alive is disabled.
+         */
+        public int getMaxRequestsPerConnection(){
+            return maxRequestsPerConnection;
+        }
+
+        /**
+         * @return whether connections are served by NIO event loops 
+         * instead of one thread each
+         */
+        public boolean useNio(){
+            return useNio;
+        }
+
+        /**
+         * @return whether virtual threads are requested. They are only 
+         * used if the JVM supports them.
+         * @see ThreadProvider#useVirtualThreads()
+         */
+        public boolean useVirtualThreads(){
+            return useVirtualThreads;
+        }
+
+        /**
+         * @return max total size (in bytes) of static files kept in 
+         * memory. 0 means the cache is disabled.
+         */
+        public long getStaticFileCacheSize(){
+            return staticFileCacheSize;
+        }
+
+        /**
+         * @return request bodies larger than this (in bytes) are buffered 
+         * in a temporary file if a handler needs the whole body
+         */
+        public long getRequestBodySpillThreshold(){
+            return requestBodySpillThreshold;
+        }
     }
     public static class Builder extends Configuration{
         public Builder setBindHost(String bindHost) {
@@ -403,6 +580,68 @@ public class WebServer {
             return this;
         }
 
+        /**
+         * @param keepAliveTimeout idle timeout (in ms) of a persistent 
+         * HTTP/1.1 connection
+         */
+        public Builder setKeepAliveTimeout(int keepAliveTimeout){
+            super.keepAliveTimeout = keepAliveTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsPerConnection use 1 to disable keep-alive
+         */
+        public Builder setMaxRequestsPerConnection(int maxRequestsPerConnection){
+            super.maxRequestsPerConnection = maxRequestsPerConnection;
+            return this;
+        }
+
+        /**
+         * Serve plain HTTP/1.1 connections with a few selector threads. 
+         * Threads are then only needed while a request is dispatched, 
+         * keep-alive works regardless of {@link #setUseMultithread(boolean)}.
+         * SSL is not supported in this mode.
+         */
+        public Builder setUseNio(boolean useNio){
+            super.useNio = useNio;
+            return this;
+        }
+
+        /**
+         * Back connections, http2 streams, tunnels and websocket checkers 
+         * with virtual threads (Java 21+). The thread pools become 
+         * unbounded, which implies multi-threading. Platform threads are 
+         * used if the JVM does not support virtual threads.
+         */
+        public Builder setUseVirtualThreads(boolean useVirtualThreads){
+            super.useVirtualThreads = useVirtualThreads;
+            return this;
+        }
+
+        /**
+         * Small files returned by handlers (eg. by the default handler) 
+         * are kept in memory until they are changed on the disk.
+         * @param staticFileCacheSize in bytes, use 0 to disable the cache
+         */
+        public Builder setStaticFileCacheSize(long staticFileCacheSize){
+            super.staticFileCacheSize = staticFileCacheSize;
+            return this;
+        }
+
+        /**
+         * HTTP/1.1 request bodies are read lazily, handlers can stream 
+         * them with {@link com.vincentcodes.webserver.component.body.HttpBodyLazyStream#getInputStream()}. 
+         * Bodies are only buffered if they are accessed as a whole 
+         * (eg. getBytes()), in memory up to this threshold, in a 
+         * temporary file otherwise.
+         * @param requestBodySpillThreshold in bytes, {@link RequestParser#DEFAULT_SPILL_THRESHOLD} by default
+         */
+        public Builder setRequestBodySpillThreshold(long requestBodySpillThreshold){
+            super.requestBodySpillThreshold = requestBodySpillThreshold;
+            return this;
+        }
+
         public WebServer build() throws IOException{
             return new WebServer(readonly());
         }
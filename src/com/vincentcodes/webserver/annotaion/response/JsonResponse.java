@@ -5,6 +5,14 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.vincentcodes.webserver.WebServer;
+
+/**
+ * The return value of a &#64;SimplerHttpHandler method is sent as JSON.
+ * Large arrays and collections (see {@link WebServer#MIN_STREAMED_JSON_ARRAY_LENGTH})
+ * are serialized while the response is being sent, so they should not be 
+ * modified once returned.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface JsonResponse {
@@ -0,0 +1,154 @@
+package com.vincentcodes.webserver.component.body;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.vincentcodes.webserver.component.header.HttpHeaders;
+
+/**
+ * Decodes a body sent with HTTP/1.1 chunked transfer-encoding while it
+ * is being read. Only the chunk being read is held at a time, so an
+ * upload of any size can be consumed in constant memory.
+ * <p>
+ * Chunk extensions are ignored. Trailer fields are added to the given
+ * headers once the last chunk is read. The underlying stream is left
+ * right after the body, so the connection can be reused.
+ * @see https://tools.ietf.org/html/rfc7230#section-4.1
+ */
+public class ChunkedInputStream extends InputStream {
+    public static final int MAX_LINE_LENGTH = 8192;
+    public static final int MAX_TRAILERS_SIZE = 65536;
+
+    private final InputStream is;
+    private final HttpHeaders trailers;
+    private long chunkRemaining = 0;
+    private boolean firstChunk = true;
+    private boolean endReached = false;
+
+    /**
+     * @param is positioned at the start of the body
+     * @param trailers trailer fields are added into it (nullable)
+     */
+    public ChunkedInputStream(InputStream is, HttpHeaders trailers){
+        this.is = is;
+        this.trailers = trailers;
+    }
+    public ChunkedInputStream(InputStream is){
+        this(is, null);
+    }
+
+    /**
+     * @return whether the last chunk and the trailers are read
+     */
+    public boolean isEndReached(){
+        return endReached;
+    }
+
+    @Override
+    public int read() throws IOException{
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1? -1 : (b[0] & 0xff);
+    }
+
+    /**
+     * @throws IOException if the body is malformed or the connection is
+     * closed before the last chunk
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException{
+        if(endReached)
+            return -1;
+        if(len == 0)
+            return 0;
+        if(chunkRemaining == 0 && !nextChunk())
+            return -1;
+        int bytesRead = is.read(b, off, (int)Math.min(len, chunkRemaining));
+        if(bytesRead == -1)
+            throw new EOFException("Connection closed in the middle of a chunk");
+        chunkRemaining -= bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public int available() throws IOException{
+        if(endReached)
+            return 0;
+        return (int)Math.min(is.available(), chunkRemaining);
+    }
+
+    /**
+     * The underlying stream is not closed
+     */
+    @Override
+    public void close(){}
+
+    /**
+     * @return false if the last chunk is reached
+     */
+    private boolean nextChunk() throws IOException{
+        if(!firstChunk && !readLine().isEmpty())
+            throw new IOException("Chunk data is longer than its size");
+        firstChunk = false;
+
+        chunkRemaining = parseChunkSize(readLine());
+        if(chunkRemaining == 0){
+            readTrailers();
+            endReached = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void readTrailers() throws IOException{
+        int size = 0;
+        String line;
+        while(!(line = readLine()).isEmpty()){
+            size += line.length();
+            if(size > MAX_TRAILERS_SIZE)
+                throw new IOException("Trailers are too large");
+            int colon = line.indexOf(':');
+            if(colon <= 0)
+                throw new IOException("Invalid trailer field: " + line);
+            if(trailers != null)
+                trailers.add(line.substring(0, colon).trim(), line.substring(colon+1).trim());
+        }
+    }
+
+    /**
+     * @param line chunk size line without CRLF (eg. "1a;name=value")
+     * @throws IOException if the size is invalid
+     */
+    public static long parseChunkSize(String line) throws IOException{
+        int extension = line.indexOf(';');
+        String hex = (extension == -1? line : line.substring(0, extension)).trim();
+        try{
+            long size = Long.parseLong(hex, 16);
+            if(size < 0 || hex.charAt(0) == '+')
+                throw new NumberFormatException();
+            return size;
+        }catch(NumberFormatException | IndexOutOfBoundsException e){
+            throw new IOException("Invalid chunk size: " + line);
+        }
+    }
+
+    /**
+     * @return a line without CRLF
+     */
+    private String readLine() throws IOException{
+        ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+        int b;
+        while((b = is.read()) != '\n'){
+            if(b == -1)
+                throw new EOFException("Connection closed before the chunked body ends");
+            if(line.size() >= MAX_LINE_LENGTH)
+                throw new IOException("Chunk line is too long");
+            line.write(b);
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length > 0 && bytes[bytes.length-1] == '\r'? bytes.length-1 : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+}
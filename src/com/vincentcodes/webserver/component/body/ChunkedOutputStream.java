@@ -0,0 +1,109 @@
+package com.vincentcodes.webserver.component.body;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes bytes with HTTP/1.1 chunked transfer-encoding. Bytes are
+ * collected until the buffer is full or {@link #flush()} is called,
+ * then they are sent as one chunk.
+ * <p>
+ * The underlying stream is not closed, use {@link #finish()} to send
+ * the last chunk.
+ * @see https://tools.ietf.org/html/rfc7230#section-4.1
+ */
+public class ChunkedOutputStream extends OutputStream {
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    private final OutputStream os;
+    private final byte[] buffer;
+    private int count = 0;
+    private boolean finished = false;
+
+    public ChunkedOutputStream(OutputStream os, int chunkSize){
+        this.os = os;
+        this.buffer = new byte[chunkSize];
+    }
+    public ChunkedOutputStream(OutputStream os){
+        this(os, DEFAULT_CHUNK_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException{
+        ensureNotFinished();
+        if(count == buffer.length)
+            writeChunk();
+        buffer[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException{
+        ensureNotFinished();
+        // large writes skip the buffer
+        if(len >= buffer.length){
+            writeChunk();
+            writeChunk(b, off, len);
+            return;
+        }
+        if(len > buffer.length - count)
+            writeChunk();
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Sends the buffered bytes as a chunk immediately
+     */
+    @Override
+    public void flush() throws IOException{
+        writeChunk();
+        os.flush();
+    }
+
+    /**
+     * Sends the remaining bytes and the last chunk (without trailers).
+     * Nothing can be written after that.
+     */
+    public void finish() throws IOException{
+        if(finished)
+            return;
+        writeChunk();
+        os.write(LAST_CHUNK);
+        os.flush();
+        finished = true;
+    }
+
+    /**
+     * Same as {@link #finish()}. The underlying stream is kept open.
+     */
+    @Override
+    public void close() throws IOException{
+        finish();
+    }
+
+    private void writeChunk() throws IOException{
+        ensureNotFinished();
+        if(count == 0)
+            return;
+        writeChunk(buffer, 0, count);
+        count = 0;
+    }
+
+    private void writeChunk(byte[] b, int off, int len) throws IOException{
+        // a zero-sized chunk marks the end of the body
+        if(len == 0)
+            return;
+        os.write(Integer.toHexString(len).getBytes(StandardCharsets.US_ASCII));
+        os.write(CRLF);
+        os.write(b, off, len);
+        os.write(CRLF);
+    }
+
+    private void ensureNotFinished() throws IOException{
+        if(finished)
+            throw new IOException("Chunked body is already finished");
+    }
+}
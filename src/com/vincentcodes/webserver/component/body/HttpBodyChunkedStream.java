@@ -0,0 +1,178 @@
+package com.vincentcodes.webserver.component.body;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.vincentcodes.webserver.component.header.EntityEncodings;
+
+/**
+ * A body whose length is unknown. Its content is produced while the
+ * response is being sent, so nothing has to be buffered beforehand.
+ * It is sent with chunked transfer-encoding on HTTP/1.1 and as DATA
+ * frames on HTTP/2.
+ * <pre>{@code
+ * &#64;HttpGet
+ * &#64;RequestMapping("/export")
+ * public void handleExport(HttpRequest req, ResponseBuilder res){
+ *   res.getHeaders().add("content-type", "text/csv");
+ *   res.setBody(new HttpBodyChunkedStream(os -> {
+ *     for(Row row : reports.rows())
+ *       os.write(row.toCsv().getBytes());
+ *   }));
+ * }
+ * }</pre>
+ * Use {@link OutputStream#flush()} to send what is written so far.
+ */
+public class HttpBodyChunkedStream implements HttpBody {
+    /**
+     * Writes the body. It is invoked on the thread which sends the
+     * response, at most once.
+     */
+    @FunctionalInterface
+    public static interface BodyWriter {
+        void writeTo(OutputStream os) throws IOException;
+    }
+
+    /**
+     * Pulls the body chunk by chunk.
+     */
+    @FunctionalInterface
+    public static interface ChunkSupplier {
+        /**
+         * @return the next chunk or null if the body ends. Each chunk
+         * is sent as soon as it is returned.
+         */
+        byte[] next() throws IOException;
+    }
+
+    private final BodyWriter writer;
+    private boolean consumed = false;
+    private byte[] bufferedBytes;
+    private int nextByteIndex = 0;
+
+    public HttpBodyChunkedStream(BodyWriter writer){
+        this.writer = writer;
+    }
+
+    public static HttpBodyChunkedStream fromSupplier(ChunkSupplier supplier){
+        return new HttpBodyChunkedStream(os -> {
+            byte[] chunk;
+            while((chunk = supplier.next()) != null){
+                os.write(chunk);
+                os.flush();
+            }
+        });
+    }
+
+    @Override
+    public EntityEncodings getAcceptedEncoding(){
+        return null;
+    }
+
+    /**
+     * Content is produced by the {@link BodyWriter}
+     * @throws IOException always
+     */
+    @Override
+    public void writeToBody(int b) throws IOException{
+        throw new IOException("This HttpBody is not configured to allow write operations on the file.");
+    }
+
+    @Override
+    public void writeToBody(byte[] b) throws IOException{
+        throw new IOException("This HttpBody is not configured to allow write operations on the file.");
+    }
+
+    @Override
+    public void writeToBody(byte[] b, int length) throws IOException{
+        throw new IOException("This HttpBody is not configured to allow write operations on the file.");
+    }
+
+    @Override
+    public void maxCapacity(int maxCap){}
+
+    /**
+     * Buffers the whole body, which defeats the purpose of this class.
+     * Only use it if the body must be in memory (eg. for testing).
+     */
+    @Override
+    public byte[] getBytes(){
+        if(bufferedBytes == null){
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            try{
+                streamBytesTo(os);
+            }catch(IOException e){
+                throw new IllegalStateException("Unable to produce the body", e);
+            }
+            bufferedBytes = os.toByteArray();
+        }
+        return bufferedBytes;
+    }
+
+    /**
+     * @see #getBytes()
+     */
+    @Override
+    public byte[] getBytes(int length){
+        byte[] bytes = getBytes();
+        if(nextByteIndex >= bytes.length)
+            return new byte[0];
+        return Arrays.copyOfRange(bytes, nextByteIndex, Math.min(nextByteIndex += length, bytes.length));
+    }
+
+    /**
+     * @see #getBytes()
+     */
+    @Override
+    public int getBytes(byte[] buffer){
+        byte[] bytes = getBytes();
+        if(nextByteIndex >= bytes.length)
+            return -1;
+        int length = Math.min(buffer.length, bytes.length - nextByteIndex);
+        System.arraycopy(bytes, nextByteIndex, buffer, 0, length);
+        nextByteIndex += length;
+        return length;
+    }
+
+    @Override
+    public int available(){
+        return 0;
+    }
+
+    /**
+     * @see #getBytes()
+     */
+    @Override
+    public String string(){
+        return new String(getBytes());
+    }
+
+    /**
+     * Runs the {@link BodyWriter}. No transfer-encoding is applied here.
+     * @throws IOException if the body is already consumed
+     */
+    @Override
+    public void streamBytesTo(OutputStream os) throws IOException{
+        if(bufferedBytes != null){
+            os.write(bufferedBytes);
+            return;
+        }
+        if(consumed)
+            throw new IOException("Chunked body can only be streamed once");
+        consumed = true;
+        writer.writeTo(os);
+    }
+
+    /**
+     * @return -1 since the length is unknown
+     */
+    @Override
+    public long length(){
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException{}
+}
@@ -6,6 +6,8 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.zip.DeflaterOutputStream;
 
 import com.vincentcodes.webserver.component.header.EntityEncodings;
@@ -162,11 +164,58 @@ public class HttpBodyFileStream implements HttpBody {
     }
 
     /**
-     * length will not apply here.
+     * Streams the remaining {@link #length()} bytes only, the file may 
+     * be longer (eg. partial content)
      */
     @Override
     public void streamBytesTo(OutputStream os) throws IOException {
-        fis.transferTo(os);
+        byte[] buffer = new byte[8192];
+        int bytesRead;
+        while(readCount < lengthToRead 
+        && (bytesRead = fis.read(buffer, 0, (int)Math.min(buffer.length, lengthToRead - readCount))) != -1){
+            os.write(buffer, 0, bytesRead);
+            readCount += bytesRead;
+        }
+    }
+
+    /**
+     * Zero-copy version of {@link #streamBytesTo(OutputStream)}. File 
+     * content is handed to the target channel directly (eg. sendfile) 
+     * instead of being copied through the heap.
+     * @param target a blocking channel
+     * @return number of bytes transferred
+     */
+    public long transferTo(WritableByteChannel target) throws IOException{
+        FileChannel fileChannel = fis.getChannel();
+        long position = fileChannel.position();
+        long remaining = remainingLength();
+        long transferred = 0;
+        while(transferred < remaining){
+            long count = fileChannel.transferTo(position + transferred, remaining - transferred, target);
+            if(count <= 0) break; // file has been truncated
+            transferred += count;
+        }
+        fileChannel.position(position + transferred);
+        readCount += transferred;
+        return transferred;
+    }
+
+    /**
+     * @return number of bytes which have not been read yet
+     */
+    public long remainingLength(){
+        return Math.max(0, lengthToRead - readCount);
+    }
+
+    public File getFile(){
+        return file;
+    }
+
+    /**
+     * @return offset in the file where the next read starts
+     */
+    public long position() throws IOException{
+        return fis.getChannel().position();
     }
 
     /**
@@ -0,0 +1,263 @@
+package com.vincentcodes.webserver.component.body;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import com.vincentcodes.webserver.component.header.EntityEncodings;
+
+/**
+ * A request body which is read from the connection only when it is
+ * consumed. Use {@link #getInputStream()} or {@link #streamBytesTo(OutputStream)}
+ * to process it in constant memory (eg. for hashing or proxying uploads).
+ * <p>
+ * Other read methods (eg. {@link #getBytes()}) buffer the rest of the
+ * body first. It is kept in memory up to the spill threshold, larger
+ * bodies are written into a temporary file.
+ */
+public class HttpBodyLazyStream implements HttpBody {
+    private final BodyInputStream source;
+    private final long contentLength;
+    private final long spillThreshold;
+    private HttpBody buffered;
+
+    /**
+     * @param is the connection, positioned at the start of the body
+     * @param contentLength -1 if the body ends by itself (eg. a decoded
+     * chunked stream)
+     * @param spillThreshold bodies larger than this (in bytes) are buffered
+     * in a temporary file instead of memory
+     */
+    public HttpBodyLazyStream(InputStream is, long contentLength, long spillThreshold){
+        this.source = new BodyInputStream(is, contentLength);
+        this.contentLength = contentLength;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Bytes read from the stream are not available to other methods
+     * afterwards, except those which are not read yet.
+     * @return the body. Closing it does not close the connection.
+     */
+    public InputStream getInputStream() throws IOException{
+        if(buffered == null)
+            return source;
+        if(buffered instanceof HttpBodyFileStream)
+            return new FileInputStream(((HttpBodyFileStream)buffered).getFile());
+        return new ByteArrayInputStream(buffered.getBytes());
+    }
+
+    /**
+     * @return whether the whole body is read from the connection
+     */
+    public boolean isFullyRead(){
+        return buffered != null || source.isEndReached();
+    }
+
+    /**
+     * Skips the unread part, so that the next request on the connection
+     * can be read.
+     * @param maxBytes max number of bytes to skip
+     * @return false if more than maxBytes are left
+     */
+    public boolean discardRemaining(long maxBytes) throws IOException{
+        byte[] buffer = new byte[8192];
+        long discarded = 0;
+        while(!isFullyRead()){
+            if(discarded > maxBytes)
+                return false;
+            int bytesRead = source.read(buffer, 0, (int)Math.min(buffer.length, maxBytes - discarded + 1));
+            if(bytesRead == -1)
+                break;
+            discarded += bytesRead;
+        }
+        return discarded <= maxBytes;
+    }
+
+    /**
+     * @return null
+     */
+    @Override
+    public EntityEncodings getAcceptedEncoding(){
+        return null;
+    }
+
+    /**
+     * Request bodies are read-only
+     * @throws IOException always
+     */
+    @Override
+    public void writeToBody(int b) throws IOException{
+        throw new IOException("This HttpBody is not configured to allow write operations on the file.");
+    }
+
+    @Override
+    public void writeToBody(byte[] b) throws IOException{
+        throw new IOException("This HttpBody is not configured to allow write operations on the file.");
+    }
+
+    @Override
+    public void writeToBody(byte[] b, int length) throws IOException{
+        throw new IOException("This HttpBody is not configured to allow write operations on the file.");
+    }
+
+    @Override
+    public void maxCapacity(int maxCap){}
+
+    @Override
+    public byte[] getBytes(){
+        return buffer().getBytes();
+    }
+
+    @Override
+    public byte[] getBytes(int length){
+        return buffer().getBytes(length);
+    }
+
+    @Override
+    public int getBytes(byte[] buffer){
+        return buffer().getBytes(buffer);
+    }
+
+    @Override
+    public int available() throws IOException{
+        if(buffered != null)
+            return buffered.available();
+        return source.available();
+    }
+
+    @Override
+    public String string(){
+        return buffer().string();
+    }
+
+    /**
+     * Streams the unread part of the body without buffering it
+     */
+    @Override
+    public void streamBytesTo(OutputStream os) throws IOException{
+        if(buffered != null){
+            buffered.streamBytesTo(os);
+            return;
+        }
+        source.transferTo(os);
+    }
+
+    /**
+     * The body is buffered if its length is not known in advance
+     */
+    @Override
+    public long length(){
+        if(contentLength >= 0)
+            return contentLength;
+        return buffer().length();
+    }
+
+    /**
+     * Deletes the temporary file if any. The connection is not closed.
+     */
+    @Override
+    public void close() throws IOException{
+        if(buffered != null)
+            buffered.close();
+    }
+
+    private HttpBody buffer(){
+        if(buffered != null)
+            return buffered;
+        HttpBody body = null;
+        try{
+            body = contentLength > spillThreshold? new HttpBodyFileStream() : new HttpBodyStream();
+            long size = 0;
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while((bytesRead = source.read(buffer)) != -1){
+                size += bytesRead;
+                if(size > spillThreshold && !(body instanceof HttpBodyFileStream)){
+                    HttpBody memoryBody = body;
+                    body = new HttpBodyFileStream();
+                    body.writeToBody(memoryBody.getBytes());
+                    memoryBody.close();
+                }
+                body.writeToBody(buffer, bytesRead);
+            }
+            return buffered = body;
+        }catch(IOException e){
+            // deletes the partly written temporary file
+            closeQuietly(body);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param body nullable
+     */
+    private static void closeQuietly(HttpBody body){
+        if(body == null)
+            return;
+        try{
+            body.close();
+        }catch(IOException ignored){}
+    }
+
+    /**
+     * Stops at the end of the body, the connection is left open
+     */
+    private static class BodyInputStream extends InputStream {
+        private final InputStream is;
+        private final long length;
+        private long readCount = 0;
+        private boolean endReached;
+
+        public BodyInputStream(InputStream is, long length){
+            this.is = is;
+            this.length = length;
+            this.endReached = length == 0;
+        }
+
+        public boolean isEndReached(){
+            return endReached;
+        }
+
+        @Override
+        public int read() throws IOException{
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1? -1 : (b[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException{
+            if(endReached)
+                return -1;
+            if(len == 0)
+                return 0;
+            if(length >= 0)
+                len = (int)Math.min(len, length - readCount);
+            int bytesRead = is.read(b, off, len);
+            if(bytesRead == -1){
+                endReached = true;
+                if(length >= 0)
+                    throw new IOException("Connection closed before the request body is fully received");
+                return -1;
+            }
+            readCount += bytesRead;
+            if(length >= 0 && readCount == length)
+                endReached = true;
+            return bytesRead;
+        }
+
+        @Override
+        public int available() throws IOException{
+            if(endReached)
+                return 0;
+            int available = is.available();
+            return length >= 0? (int)Math.min(available, length - readCount) : available;
+        }
+
+        @Override
+        public void close(){}
+    }
+}
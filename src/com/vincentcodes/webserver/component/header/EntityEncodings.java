@@ -21,4 +21,47 @@ public enum EntityEncodings {
     public static EntityEncodings fromValue(String value){
         return valueOf(value.toLowerCase());
     }
+
+    /**
+     * Whether the encoding is acceptable according to an Accept-Encoding
+     * header. An encoding with a q-value of 0 is not acceptable. If the
+     * encoding is not listed, the q-value of "*" is used.
+     * <pre>
+     * assertTrue(isAccepted("deflate, gzip;q=0.5", GZIP));
+     * assertFalse(isAccepted("gzip;q=0, *", GZIP));
+     * </pre>
+     * @param acceptEncoding nullable, value of the Accept-Encoding header
+     * @see https://tools.ietf.org/html/rfc7231#section-5.3.4
+     */
+    public static boolean isAccepted(String acceptEncoding, EntityEncodings encoding){
+        if(acceptEncoding == null)
+            return false;
+        Boolean wildcard = null;
+        for(String token : acceptEncoding.split(",")){
+            String coding = HttpHeaders.extractDirectValue(token).trim();
+            boolean accepted = qValue(token) > 0;
+            if(coding.equalsIgnoreCase(encoding.value()))
+                return accepted;
+            if(coding.equals(ALL.value()))
+                wildcard = accepted;
+        }
+        return wildcard != null && wildcard;
+    }
+
+    /**
+     * @return 1 if the q-value is absent, 0 if it is malformed
+     */
+    private static double qValue(String token){
+        for(String param : token.split(";")){
+            int equalPos = param.indexOf('=');
+            if(equalPos != -1 && param.substring(0, equalPos).trim().equalsIgnoreCase("q")){
+                try{
+                    return Double.parseDouble(param.substring(equalPos+1).trim());
+                }catch(NumberFormatException e){
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
 }
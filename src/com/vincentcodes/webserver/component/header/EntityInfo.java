@@ -85,6 +85,14 @@ public class EntityInfo {
         return transferEncoding;
     }
 
+    /**
+     * Chunked must be the last transfer-coding applied (eg. "gzip, chunked")
+     * @return whether the body is sent with chunked transfer-encoding
+     */
+    public boolean isChunked(){
+        return transferEncoding.trim().toLowerCase().endsWith("chunked");
+    }
+
     /**
      * From "range"
      * @return <code>null</code> if no range is found
@@ -24,6 +24,7 @@ public class HttpRequest implements Closeable{
     private HttpHeaders headers;
     private HttpBody body;
     private MultipartFormData multipart;
+    private HttpHeaders trailers = new HttpHeaders();
     private String wholeRequest; // the body is not included (need to be set by others)
 
     public void setSocket(IOContainer socket){
@@ -73,6 +74,19 @@ public class HttpRequest implements Closeable{
         this.body = body;
     }
 
+    /**
+     * Trailer fields of a chunked body. They are only available after
+     * the body is fully read.
+     * @return empty headers if there is none
+     */
+    public HttpHeaders getTrailers() {
+        return trailers;
+    }
+
+    public void setTrailers(HttpHeaders trailers) {
+        this.trailers = trailers;
+    }
+
     public boolean hasMultipartData(){
         return multipart != null;
     }
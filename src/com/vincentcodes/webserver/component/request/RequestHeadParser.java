@@ -0,0 +1,300 @@
+package com.vincentcodes.webserver.component.request;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.header.HttpHeaders;
+import com.vincentcodes.webserver.exception.CannotParseRequestException;
+import com.vincentcodes.webserver.exception.UnsupportedHttpMethodException;
+
+/**
+ * Parses the head of an HTTP/1.1 request (request line and headers).
+ * <p>
+ * The head is copied into a buffer which is reused across requests, then
+ * it is tokenized in place. Methods, versions, common header names and
+ * values are mapped to shared String constants, so that parsing a typical
+ * request creates only the Strings which are unique to it (eg. the path).
+ * <p>
+ * An instance must not be used by several threads at the same time.
+ * @see RequestParser
+ */
+public class RequestHeadParser {
+    public static final int MAX_HEAD_SIZE = 65536;
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private static final ByteStringTable METHODS = new ByteStringTable(false,
+        WebServer.SUPPORTED_REQUEST_METHOD.keySet().toArray(new String[0]));
+    private static final ByteStringTable VERSIONS = new ByteStringTable(false,
+        "HTTP/1.1", "HTTP/1.0", "HTTP/2.0");
+    private static final ByteStringTable HEADER_NAMES = new ByteStringTable(true,
+        "host", "connection", "keep-alive", "user-agent", "accept", "accept-encoding", "accept-language",
+        "accept-charset", "cache-control", "pragma", "content-length", "content-type", "content-encoding",
+        "content-disposition", "transfer-encoding", "te", "trailer", "expect", "cookie", "authorization",
+        "referer", "origin", "range", "if-range", "if-modified-since", "if-none-match", "upgrade",
+        "upgrade-insecure-requests", "http2-settings", "sec-websocket-key", "sec-websocket-version",
+        "sec-websocket-extensions", "sec-websocket-protocol", "sec-fetch-dest", "sec-fetch-mode",
+        "sec-fetch-site", "sec-fetch-user", "sec-ch-ua", "sec-ch-ua-mobile", "sec-ch-ua-platform",
+        "dnt", "priority", "x-requested-with", "x-forwarded-for", "x-forwarded-proto", "x-forwarded-host");
+    private static final ByteStringTable HEADER_VALUES = new ByteStringTable(false,
+        "keep-alive", "close", "Keep-Alive", "Close", "Upgrade", "upgrade", "websocket", "h2c", "chunked",
+        "gzip", "gzip, deflate", "gzip, deflate, br", "gzip, deflate, br, zstd", "identity", "*/*",
+        "no-cache", "max-age=0", "trailers", "100-continue", "0", "1", "?0", "?1", "13",
+        "document", "navigate", "none", "same-origin", "same-site", "cross-site", "cors", "empty",
+        "application/json", "application/x-www-form-urlencoded", "text/plain", "XMLHttpRequest");
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int headLength;
+
+    private String method;
+    private String rawPath;
+    private String version;
+
+    /**
+     * Reads the head of the next request. The stream is left at the start
+     * of the body, bytes after the head are not consumed.
+     * @param is must support {@link InputStream#mark(int)} (eg. BufferedInputStream)
+     * @return false if the stream ends before any byte is read
+     * @throws CannotParseRequestException if the head is larger than {@link #MAX_HEAD_SIZE}
+     */
+    public boolean readHead(InputStream is) throws IOException, CannotParseRequestException{
+        is.mark(MAX_HEAD_SIZE);
+        int length = 0;
+        headLength = -1;
+        while(headLength == -1){
+            if(length == buffer.length){
+                if(length >= MAX_HEAD_SIZE)
+                    throw new CannotParseRequestException("Request head is larger than " + MAX_HEAD_SIZE + " bytes");
+                buffer = Arrays.copyOf(buffer, Math.min(length * 2, MAX_HEAD_SIZE));
+            }
+            int bytesRead = is.read(buffer, length, buffer.length - length);
+            if(bytesRead == -1){
+                if(length == 0)
+                    return false;
+                headLength = length; // parse what is received
+                break;
+            }
+            headLength = findHeadEnd(Math.max(0, length - 3), length + bytesRead);
+            length += bytesRead;
+        }
+        is.reset();
+        for(long remaining = headLength; remaining > 0;){
+            long skipped = is.skip(remaining);
+            if(skipped <= 0)
+                throw new IOException("Unable to skip over the request head");
+            remaining -= skipped;
+        }
+        is.mark(0); // release the bytes kept for reset()
+        return true;
+    }
+
+    /**
+     * @return the head as it is received, for logging and proxying
+     */
+    public String headString(){
+        return new String(buffer, 0, headLength, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Tokenizes the request line and adds every header into headers.
+     * Use {@link #getMethod()}, {@link #getRawPath()} and
+     * {@link #getVersion()} afterwards.
+     */
+    public void parse(HttpHeaders headers) throws CannotParseRequestException{
+        int start = 0;
+        // empty lines before the request line are ignored (eg. a stray CRLF after a body)
+        while(start < headLength && (buffer[start] == '\r' || buffer[start] == '\n'))
+            start++;
+        int lineEnd = lineEnd(start);
+        parseRequestLine(start, lineEnd);
+        int pos = nextLine(lineEnd);
+        while(pos < headLength){
+            lineEnd = lineEnd(pos);
+            if(lineEnd == pos)
+                break;
+            parseHeader(pos, lineEnd, headers);
+            pos = nextLine(lineEnd);
+        }
+    }
+
+    /**
+     * @return a shared constant for supported methods
+     */
+    public String getMethod(){
+        return method;
+    }
+
+    /**
+     * @return the request target without any decoding (eg. /path%20a?b=c)
+     */
+    public String getRawPath(){
+        return rawPath;
+    }
+
+    public String getVersion(){
+        return version;
+    }
+
+    /**
+     * eg. "GET /file HTTP/1.1"
+     */
+    private void parseRequestLine(int start, int end) throws CannotParseRequestException{
+        int firstSpace = indexOf(' ', start, end);
+        int lastSpace = lastIndexOf(' ', start, end);
+        if(firstSpace == -1 || firstSpace == lastSpace)
+            throw new CannotParseRequestException("Invalid request line: " + decode(start, end - start));
+
+        method = METHODS.get(buffer, start, firstSpace - start);
+        if(method == null)
+            throw new UnsupportedHttpMethodException("Method "+ decode(start, firstSpace - start) +" is not supported.");
+        rawPath = decode(firstSpace + 1, lastSpace - firstSpace - 1);
+        version = VERSIONS.get(buffer, lastSpace + 1, end - lastSpace - 1);
+        if(version == null)
+            version = decode(lastSpace + 1, end - lastSpace - 1);
+    }
+
+    private void parseHeader(int start, int end, HttpHeaders headers) throws CannotParseRequestException{
+        int colon = indexOf(':', start, end);
+        if(colon == -1)
+            throw new CannotParseRequestException("Invalid header field: " + decode(start, end - start));
+
+        int nameEnd = trimEnd(start, colon);
+        String name = HEADER_NAMES.get(buffer, start, nameEnd - start);
+        if(name == null)
+            name = new String(buffer, start, nameEnd - start, StandardCharsets.ISO_8859_1); // lower-cased by HttpHeaders
+
+        int valueStart = colon + 1;
+        while(valueStart < end && isWhitespace(buffer[valueStart]))
+            valueStart++;
+        int valueEnd = trimEnd(valueStart, end);
+        String value = HEADER_VALUES.get(buffer, valueStart, valueEnd - valueStart);
+        headers.add(name, value != null? value : decode(valueStart, valueEnd - valueStart));
+    }
+
+    /**
+     * @return index of the CR (or LF) which ends the line starting at pos
+     */
+    private int lineEnd(int pos){
+        int lf = indexOf('\n', pos, headLength);
+        if(lf == -1)
+            return headLength;
+        return lf > pos && buffer[lf-1] == '\r'? lf-1 : lf;
+    }
+
+    private int nextLine(int lineEnd){
+        if(lineEnd < headLength && buffer[lineEnd] == '\r')
+            lineEnd++;
+        return lineEnd + 1;
+    }
+
+    /**
+     * The head ends with an empty line. Bare LF is accepted as line
+     * terminator as well.
+     * @return length of the head or -1 if it is not complete
+     */
+    private int findHeadEnd(int from, int to){
+        for(int i = from; i < to; i++){
+            if(buffer[i] != '\n')
+                continue;
+            if(i+1 < to && buffer[i+1] == '\n')
+                return i+2;
+            if(i+2 < to && buffer[i+1] == '\r' && buffer[i+2] == '\n')
+                return i+3;
+        }
+        return -1;
+    }
+
+    private int indexOf(char c, int from, int to){
+        for(int i = from; i < to; i++){
+            if(buffer[i] == c)
+                return i;
+        }
+        return -1;
+    }
+
+    private int lastIndexOf(char c, int from, int to){
+        for(int i = to-1; i >= from; i--){
+            if(buffer[i] == c)
+                return i;
+        }
+        return -1;
+    }
+
+    private int trimEnd(int start, int end){
+        while(end > start && isWhitespace(buffer[end-1]))
+            end--;
+        return end;
+    }
+
+    /**
+     * ASCII is decoded directly, anything else is treated as UTF-8
+     */
+    private String decode(int offset, int length){
+        for(int i = offset; i < offset + length; i++){
+            if(buffer[i] < 0)
+                return new String(buffer, offset, length, StandardCharsets.UTF_8);
+        }
+        return new String(buffer, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isWhitespace(byte b){
+        return b == ' ' || b == '\t';
+    }
+
+    private static byte toLowerCase(byte b){
+        return b >= 'A' && b <= 'Z'? (byte)(b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * Looks up constants by their bytes without creating a String
+     */
+    private static class ByteStringTable {
+        private final boolean ignoreCase;
+        // indexed by length
+        private final String[][] strings;
+        private final byte[][][] bytes;
+
+        public ByteStringTable(boolean ignoreCase, String... constants){
+            this.ignoreCase = ignoreCase;
+            int maxLength = Arrays.stream(constants).mapToInt(String::length).max().orElse(0);
+            List<List<String>> byLength = new ArrayList<>();
+            for(int i = 0; i <= maxLength; i++)
+                byLength.add(new ArrayList<>());
+            for(String constant : constants)
+                byLength.get(constant.length()).add(constant);
+
+            strings = new String[maxLength+1][];
+            bytes = new byte[maxLength+1][][];
+            for(int i = 0; i <= maxLength; i++){
+                strings[i] = byLength.get(i).toArray(new String[0]);
+                bytes[i] = new byte[strings[i].length][];
+                for(int j = 0; j < strings[i].length; j++)
+                    bytes[i][j] = strings[i][j].getBytes(StandardCharsets.ISO_8859_1);
+            }
+        }
+
+        /**
+         * @return null if it is not a constant
+         */
+        public String get(byte[] buffer, int offset, int length){
+            if(length >= bytes.length)
+                return null;
+            byte[][] candidates = bytes[length];
+            outer:
+            for(int i = 0; i < candidates.length; i++){
+                byte[] candidate = candidates[i];
+                for(int j = 0; j < length; j++){
+                    byte b = buffer[offset + j];
+                    if((ignoreCase? toLowerCase(b) : b) != candidate[j])
+                        continue outer;
+                }
+                return strings[length][i];
+            }
+            return null;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.vincentcodes.webserver.component.request;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
@@ -10,8 +12,10 @@ import java.util.HashMap;
 import java.util.StringTokenizer;
 
 import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.body.ChunkedInputStream;
 import com.vincentcodes.webserver.component.body.HttpBody;
 import com.vincentcodes.webserver.component.body.HttpBodyFileStream;
+import com.vincentcodes.webserver.component.body.HttpBodyLazyStream;
 import com.vincentcodes.webserver.component.body.HttpBodyStream;
 import com.vincentcodes.webserver.component.header.EntityInfo;
 import com.vincentcodes.webserver.component.header.HttpHeaders;
@@ -25,6 +29,15 @@ import com.vincentcodes.webserver.helper.TextBinaryInputStream;
  * https://developer.mozilla.org/en-US/docs/Web/HTTP/Messages
  */
 public class RequestParser {
+    /**
+     * Bodies larger than this are stored in a temporary file by {@link #parse(InputStream)}.
+     * It is also the default of {@link WebServer.Configuration#getRequestBodySpillThreshold()}
+     */
+    public static final long DEFAULT_SPILL_THRESHOLD = 1024 * 1024; // 1MiB
+
+    // heads are parsed in a buffer which is reused by each thread
+    private static final ThreadLocal<RequestHeadParser> HEAD_PARSERS = ThreadLocal.withInitial(RequestHeadParser::new);
+
     /**
      * Parse an http request. Please also note that as soon as an error is catched,
      * the HttpRequest immediately becomes invalid. Use {@link HttpRequest#isValid()}
@@ -33,79 +46,100 @@ public class RequestParser {
      * @return A parsed http {@link com.vincentcodes.webserver.request.HttpRequest request}.
      */
     public static HttpRequest parse(InputStream is) {
-        TextBinaryInputStream reader = new TextBinaryInputStream(is);
+        return parse(is, DEFAULT_SPILL_THRESHOLD, false);
+    }
+
+    /**
+     * @param spillThreshold bodies larger than this (in bytes) are stored 
+     * in a temporary file instead of memory
+     * @param lazyBody if true, the body (except multipart) is left on is 
+     * as a {@link HttpBodyLazyStream}. It is read only when it is consumed.
+     * Chunked bodies are decoded while they are read, their trailers are
+     * available from {@link HttpRequest#getTrailers()} afterwards.
+     * @see #parse(InputStream)
+     */
+    public static HttpRequest parse(InputStream is, long spillThreshold, boolean lazyBody) {
+        if(!is.markSupported())
+            is = new BufferedInputStream(is);
 
         HttpRequest request = new HttpRequest();
         HttpHeaders headers = new HttpHeaders();
+        HttpHeaders trailers = new HttpHeaders();
         HttpRequestBasicInfo basicInfo = null;
         MultipartFormData multipart = null;
         HttpBody body = new HttpBodyStream();
 
         // For the purpose of logging the whole request 
         // (Necessary? No, maybe I'll add an option to disable it)
-        StringBuilder wholeRequest = new StringBuilder();
+        String wholeRequest = "";
         try{
-            boolean requestBodyIncoming = false;
-            String line = null;
+            RequestHeadParser headParser = HEAD_PARSERS.get();
+            if(!headParser.readHead(is))
+                throw new CannotParseRequestException("Connection closed before a request is received");
+            wholeRequest = headParser.headString();
+            headParser.parse(headers);
+            basicInfo = createBasicInfo(headParser.getMethod(), headParser.getRawPath(), headParser.getVersion());
 
-            line = reader.readLine();
-            wholeRequest.append(line).append("\r\n");
-            basicInfo = parseFirstLine(line);
+            TextBinaryInputStream reader = new TextBinaryInputStream(is);
+            EntityInfo entityInfo = headers.getEntityInfo();
+            long length = entityInfo.getLength();
             
-            // Add a little decoded text
-            // if(line.contains("%")){
-            //     wholeRequest.append("('").append(basicInfo.getPath()).append("')\n");
-            // }
-
-            while((line = reader.readLine()) != null){
-                wholeRequest.append(line).append("\r\n");
-                if(line.isEmpty()){
-                    requestBodyIncoming = true;
+            if(entityInfo.isChunked()){
+                // transfer-encoding overrides content-length
+                // https://tools.ietf.org/html/rfc7230#section-3.3.3
+                HttpBodyLazyStream chunkedBody = new HttpBodyLazyStream(new ChunkedInputStream(reader, trailers), -1, spillThreshold);
+                if(!lazyBody){
+                    try{
+                        chunkedBody.length(); // buffers the whole body
+                    }catch(UncheckedIOException e){
+                        throw e.getCause();
+                    }
                 }
-
-                if(!requestBodyIncoming){
-                    String key = line.substring(0, line.indexOf(':')).trim();
-                    String val = line.substring(line.indexOf(':')+1).trim();
-                    headers.add(key, val);
+                body = chunkedBody;
+            }else if(!entityInfo.getTransferEncoding().isEmpty()){
+                // the end of the body cannot be determined
+                request.invalid();
+            }else if(length > 0){
+                if(entityInfo.getType().equals("multipart/form-data")){
+                    StringBuilder multipartLog = new StringBuilder(wholeRequest);
+                    multipart = parseMultipartFormData(reader, entityInfo, multipartLog);
+                    wholeRequest = multipartLog.toString();
+                    if(multipart == null)
+                        request.invalid();
+                }else if(lazyBody){
+                    body = new HttpBodyLazyStream(reader, length, spillThreshold);
                 }else{
-                    EntityInfo entityInfo = headers.getEntityInfo();
-                    long length = entityInfo.getLength();
-                    
-                    if(length > 0){
-                        if(entityInfo.getType().equals("multipart/form-data")){
-                            multipart = parseMultipartFormData(reader, entityInfo, wholeRequest);
-                            if(multipart == null)
-                                request.invalid();
-                        }else{
-                            // 64MB -> use tmp file
-                            if(length > 67108864){
-                                body = new HttpBodyFileStream();
-                                int sizeRead = 0;
-                                byte[] content = new byte[4096];
-                                while((sizeRead = reader.read(content)) != -1){
-                                    // wholeRequest.append(new String(content)).append('\n');
-                                    body.writeToBody(content, sizeRead);
-                                }
-                            }else{
-                                body.writeToBody(reader.readNBytes((int)length));
-                            }
+                    if(length > spillThreshold){
+                        body = new HttpBodyFileStream();
+                        int sizeRead = 0;
+                        long remaining = length;
+                        byte[] content = new byte[4096];
+                        // only read what belongs to this request, the connection may be reused
+                        while(remaining > 0 && (sizeRead = reader.read(content, 0, (int)Math.min(content.length, remaining))) != -1){
+                            body.writeToBody(content, sizeRead);
+                            remaining -= sizeRead;
                         }
-                    }else if(basicInfo.getMethod().equals("PRI")){
-                        // https://tools.ietf.org/html/rfc7540#section-3.5
-                        reader.readLine(); // Skip "SM\r\n"
-                        reader.readLine(); // Skip "\r\n"
-                        wholeRequest.append("SM\r\n\r\n");
+                    }else{
+                        body.writeToBody(reader.readNBytes((int)length));
                     }
-                    break;
                 }
+            }else if(basicInfo.getMethod().equals("PRI")){
+                // https://tools.ietf.org/html/rfc7540#section-3.5
+                reader.readLine(); // Skip "SM\r\n"
+                reader.readLine(); // Skip "\r\n"
+                wholeRequest += "SM\r\n\r\n";
             }
             
             request.setHeaders(headers);
             request.setBody(body);
+            request.setTrailers(trailers);
             request.setBasicInfo(basicInfo);
             if(multipart != null){
                 request.setMultipartFormData(multipart);
             }
+        }catch(CannotParseRequestException e){
+            WebServer.logger.err("Cannot parse the request: " + e.getMessage());
+            request.invalid();
         }catch(IOException e){
             WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
             // An established connection was aborted by the software in your host machine
@@ -119,13 +153,13 @@ public class RequestParser {
             // request.invalid();
             // throw new CannotParseRequestException("An error occured while parsing an Http Request", e);
         }
-        request.setWholeRequest(wholeRequest.toString());
-        if(request.getWholeRequest().startsWith("PRI")){
+        request.setWholeRequest(wholeRequest);
+        if(wholeRequest.startsWith("PRI")){
             if(WebServer.lowLevelDebugMode)
                 WebServer.logger.debug("HTTP2 upgrade sequence received");
             return request;
         }
-        WebServer.logger.debug("\n" + request.getWholeRequest());
+        WebServer.logger.debug(() -> "\n" + request.getWholeRequest());
         return request;
     }
 
@@ -205,7 +239,13 @@ public class RequestParser {
         if(!HttpRequest.SUPPORTED_METHODS.contains(method)){
             throw new UnsupportedHttpMethodException("Method "+ method +" is not supported.");
         }
+        return createBasicInfo(method, rawPath, version);
+    }
 
+    /**
+     * @param rawPath request target as it is received (eg. /path%20a?b=c)
+     */
+    private static HttpRequestBasicInfo createBasicInfo(String method, String rawPath, String version){
         String path = cleanUpPath(rawPath);
         HashMap<String, String> args = parseParametersSafe(path);
         
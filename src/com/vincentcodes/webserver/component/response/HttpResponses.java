@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import com.vincentcodes.webserver.component.body.HttpBody;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
 import com.vincentcodes.webserver.component.body.HttpBodyFileStream;
 import com.vincentcodes.webserver.component.body.HttpBodyStream;
 import com.vincentcodes.webserver.component.header.EntityEncodings;
@@ -165,6 +166,16 @@ public class HttpResponses {
         return response;
     }
 
+    /**
+     * The body is produced while it is being sent (see {@link HttpBodyChunkedStream})
+     * @param contentType eg. "application/json"
+     */
+    public static ResponseBuilder useChunkedStreamAsBody(HttpBodyChunkedStream body, String contentType){
+        ResponseBuilder response = ResponseBuilder.getDefault(body);
+        response.getHeaders().add("content-type", contentType);
+        return response;
+    }
+
     /**
      * Convert object to string as the response body.
      */
@@ -2,12 +2,12 @@ package com.vincentcodes.webserver.component.response;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.Date;
 
 import com.vincentcodes.webserver.WebServer;
 import com.vincentcodes.webserver.component.body.HttpBody;
 import com.vincentcodes.webserver.component.body.HttpBodyStream;
 import com.vincentcodes.webserver.component.header.HttpHeaders;
+import com.vincentcodes.webserver.util.HttpDate;
 
 /**
  * This is a HTTP/1.1 response though you can convert it
@@ -60,7 +60,7 @@ public class ResponseBuilder implements Closeable {
 
     private static HttpHeaders getDefaulHeaders(){
         HttpHeaders headers = new HttpHeaders();
-        headers.add("Date", WebServer.DATE_FORMAT.format(new Date()));
+        headers.add("Date", HttpDate.now());
         headers.add("Server", WebServer.SERVER_NAME);
         // headers.add("Cache-Control", "no-store");
         return headers;
@@ -125,6 +125,10 @@ public class ResponseBuilder implements Closeable {
         isEmptyResponse = true;
     }
 
+    public boolean isEmpty(){
+        return isEmptyResponse;
+    }
+
     @Override
     public void close() throws IOException{
         if(body != null)
@@ -133,6 +137,7 @@ public class ResponseBuilder implements Closeable {
 
     /**
      * Get the whole response in String. However, response body must be processed separately.
+     * {@link ResponseWriter} is used to send responses, this is kept for logging.
      * <p>
      * Here's a quote from the HTTP/1.1 spec about message headers:
      * <p>
@@ -3,6 +3,7 @@ package com.vincentcodes.webserver.component.response;
 import java.io.IOException;
 import java.io.InputStream;
 
+import com.vincentcodes.webserver.component.body.ChunkedInputStream;
 import com.vincentcodes.webserver.component.body.HttpBody;
 import com.vincentcodes.webserver.component.body.HttpBodyStream;
 import com.vincentcodes.webserver.component.header.EntityInfo;
@@ -35,14 +36,12 @@ public class ResponseParser {
                     EntityInfo entityInfo = headers.getEntityInfo();
                     long length = entityInfo.getLength();
 
-                    if(entityInfo.getTransferEncoding().equals("chunked")){
-                        int realLength = 0;
-                        // see example request to understand this part, when hex is 0, we'll stop
-                        while((realLength = Integer.parseInt(reader.readLine(), 16)) != 0){
-                            byte[] content = new byte[realLength];
-                            reader.read(content);
-                            body.writeToBody(content);
-                            reader.readLine(); // skip line break
+                    if(entityInfo.isChunked()){
+                        ChunkedInputStream chunked = new ChunkedInputStream(reader);
+                        byte[] content = new byte[4096];
+                        int bytesRead;
+                        while((bytesRead = chunked.read(content)) != -1){
+                            body.writeToBody(content, bytesRead);
                         }
                     }else if(length > 0){
                         byte[] content = new byte[4096];
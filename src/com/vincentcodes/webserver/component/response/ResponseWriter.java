@@ -0,0 +1,173 @@
+package com.vincentcodes.webserver.component.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.vincentcodes.webserver.component.body.HttpBody;
+import com.vincentcodes.webserver.component.body.HttpBodyStream;
+import com.vincentcodes.webserver.util.HttpDate;
+
+/**
+ * Serializes HTTP/1.1 response heads into a per-thread byte buffer,
+ * without going through {@link ResponseBuilder#toString()}. Status lines
+ * and common header names are encoded once.
+ * <p>
+ * Small in-memory bodies are appended to the head so that the whole
+ * response leaves in a single write (one syscall / one TLS record).
+ * The output is the same as {@link ResponseBuilder#asString()} followed
+ * by the body.
+ */
+public class ResponseWriter {
+    /**
+     * {@link HttpBodyStream} bodies up to this size are sent together
+     * with the head
+     */
+    public static final int SMALL_BODY_SIZE = 16 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    // do not keep huge buffers around after a response with large headers
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] COLON_SPACE = {':', ' '};
+    private static final byte[][] STATUS_LINES = new byte[600][];
+    private static final Map<String, byte[]> HEADER_NAMES = new HashMap<>();
+    static{
+        for(int code = 100; code < STATUS_LINES.length; code++){
+            String description = ResponseCodes.getCodeDescription(code);
+            if(description != null)
+                STATUS_LINES[code] = statusLine(code, description);
+        }
+        for(String name : new String[]{
+                "date", "server", "content-type", "content-length", "content-encoding",
+                "transfer-encoding", "connection", "keep-alive", "last-modified", "etag",
+                "cache-control", "accept-ranges", "content-range", "location", "vary",
+                "upgrade", "set-cookie", "content-disposition", "alt-svc", "access-control-allow-origin"}){
+            HEADER_NAMES.put(name, ascii(name + ": "));
+        }
+    }
+
+    private static final ThreadLocal<ResponseWriter> WRITERS = ThreadLocal.withInitial(ResponseWriter::new);
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    private ResponseWriter(){}
+
+    /**
+     * Writes the head and, if it is small enough, the body in one write.
+     * Nothing is written for empty responses.
+     * @param withBody false for responses to HEAD requests
+     * @return true if the body (if any) is written as well; otherwise,
+     * the caller is responsible for streaming the body.
+     */
+    public static boolean write(ResponseBuilder response, OutputStream os, boolean withBody) throws IOException{
+        if(response.isEmpty())
+            return true;
+        ResponseWriter writer = WRITERS.get();
+        try{
+            writer.encodeHead(response);
+            HttpBody body = response.getBody();
+            boolean bodyWritten = !withBody;
+            if(withBody && body instanceof HttpBodyStream){
+                byte[] bytes = body.getBytes();
+                if(bytes.length <= SMALL_BODY_SIZE){
+                    writer.append(bytes);
+                    bodyWritten = true;
+                }
+            }
+            os.write(writer.buffer, 0, writer.length);
+            return bodyWritten;
+        }finally{
+            writer.reset();
+        }
+    }
+
+    /**
+     * @return a new array containing the encoded head. An empty array
+     * for empty responses.
+     */
+    public static byte[] encode(ResponseBuilder response){
+        if(response.isEmpty())
+            return new byte[0];
+        ResponseWriter writer = WRITERS.get();
+        try{
+            writer.encodeHead(response);
+            return Arrays.copyOf(writer.buffer, writer.length);
+        }finally{
+            writer.reset();
+        }
+    }
+
+    private void encodeHead(ResponseBuilder response){
+        int code = response.getResponseCode();
+        byte[] statusLine = code >= 0 && code < STATUS_LINES.length? STATUS_LINES[code] : null;
+        if(statusLine == null || !ResponseCodes.getCodeDescription(code).equals(response.getCodeDesc()))
+            statusLine = statusLine(code, response.getCodeDesc());
+        append(statusLine);
+
+        String currentDate = HttpDate.now();
+        for(Map.Entry<String, String> header : response.getHeaders().getHeaders().entrySet()){
+            String name = header.getKey();
+            String value = header.getValue();
+            byte[] encodedName = HEADER_NAMES.get(name);
+            if(encodedName != null){
+                append(encodedName);
+            }else{
+                appendString(name);
+                append(COLON_SPACE);
+            }
+            // the default date header shares the String of HttpDate
+            if(value == currentDate)
+                append(HttpDate.nowBytes());
+            else appendString(value);
+            append(CRLF);
+        }
+        append(CRLF);
+    }
+
+    private void append(byte[] bytes){
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * ASCII is copied char by char. Others fall back to UTF-8, as
+     * {@link String#getBytes()} did previously.
+     */
+    private void appendString(String str){
+        int strLength = str.length();
+        ensureCapacity(strLength);
+        for(int i = 0; i < strLength; i++){
+            char c = str.charAt(i);
+            if(c >= 0x80){
+                append(str.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer[length++] = (byte)c;
+        }
+    }
+
+    private void ensureCapacity(int extra){
+        if(length + extra > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+
+    private void reset(){
+        length = 0;
+        if(buffer.length > MAX_RETAINED_BUFFER_SIZE)
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+    }
+
+    private static byte[] statusLine(int code, String description){
+        return ascii("HTTP/1.1 " + code + " " + description + "\r\n");
+    }
+
+    private static byte[] ascii(String str){
+        return str.getBytes(StandardCharsets.US_ASCII);
+    }
+}
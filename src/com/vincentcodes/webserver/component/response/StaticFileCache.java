@@ -0,0 +1,236 @@
+package com.vincentcodes.webserver.component.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import com.vincentcodes.files.FileWatcher;
+import com.vincentcodes.files.OnFileCreated;
+import com.vincentcodes.files.OnFileDeleted;
+import com.vincentcodes.files.OnFileModified;
+import com.vincentcodes.webserver.component.body.HttpBodyStream;
+import com.vincentcodes.webserver.component.header.HttpHeaders;
+import com.vincentcodes.webserver.util.FileExtUtils;
+import com.vincentcodes.webserver.util.HttpDate;
+
+/**
+ * Keeps small static files in memory, so that hot files (eg. landing
+ * pages) are served without touching the disk. The least recently used
+ * files are evicted once the total size exceeds the capacity.
+ * <p>
+ * Entries are invalidated by a {@link FileWatcher} on the directories
+ * of the cached files. Text files have a gzip variant as well if it is
+ * smaller.
+ */
+public class StaticFileCache implements OnFileCreated, OnFileModified, OnFileDeleted {
+    /**
+     * Larger files are streamed from the disk (with zero-copy if possible)
+     */
+    public static final int MAX_CACHED_FILE_SIZE = 1024 * 1024; // 1MiB
+
+    private final long capacity;
+    private final FileWatcher watcher;
+    private final Set<Path> watchedDirectories = new HashSet<>();
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    /**
+     * Incremented on every invalidation. A file read before that is not cached.
+     */
+    private long generation = 0;
+
+    /**
+     * @param capacity max total size (in bytes) of the cached files
+     * @param watcher used to detect changes of the cached files. It is
+     * started and stopped by its owner.
+     */
+    public StaticFileCache(long capacity, FileWatcher watcher){
+        this.capacity = capacity;
+        this.watcher = watcher;
+        if(watcher != null)
+            watcher.registerListener(this);
+    }
+
+    /**
+     * @param acceptGzip whether the client accepts gzip encoded body
+     * @return a response with the cached file or null if the file is not cached
+     */
+    public ResponseBuilder get(File file, boolean acceptGzip) throws IOException{
+        Entry entry;
+        synchronized(this){
+            entry = entries.get(toKey(file));
+        }
+        return entry == null? null : entry.toResponse(acceptGzip);
+    }
+
+    /**
+     * Same as {@link HttpResponses#useWholeFileAsBody(File)} except that
+     * the file is served from (and put into) the cache if it is small enough.
+     * @param acceptGzip whether the client accepts gzip encoded body
+     */
+    public ResponseBuilder useWholeFileAsBody(File file, boolean acceptGzip) throws IOException{
+        ResponseBuilder response = get(file, acceptGzip);
+        if(response != null)
+            return response;
+
+        long length = file.length();
+        if(length > MAX_CACHED_FILE_SIZE || length > capacity)
+            return HttpResponses.useWholeFileAsBody(file);
+
+        Path key = toKey(file);
+        long generationBeforeRead;
+        synchronized(this){
+            watchDirectory(key.getParent());
+            generationBeforeRead = generation;
+        }
+        Entry entry = Entry.load(file);
+        if(entry.size() <= capacity){
+            synchronized(this){
+                if(generationBeforeRead == generation)
+                    put(key, entry);
+            }
+        }
+        return entry.toResponse(acceptGzip);
+    }
+
+    public synchronized boolean isCached(File file){
+        return entries.containsKey(toKey(file));
+    }
+
+    /**
+     * @return total size of the cached files (including compressed variants)
+     */
+    public synchronized long size(){
+        return size;
+    }
+
+    public synchronized void clear(){
+        entries.clear();
+        size = 0;
+        generation++;
+    }
+
+    @Override
+    public void handleOnFileCreated(Path fileChanged){
+        invalidate(fileChanged);
+    }
+
+    @Override
+    public void handleOnFileModified(Path fileChanged){
+        invalidate(fileChanged);
+    }
+
+    @Override
+    public void handleOnFileDeleted(Path fileChanged){
+        invalidate(fileChanged);
+    }
+
+    /**
+     * Removes the file. If the path is a directory, files under it are
+     * removed as well.
+     */
+    public synchronized void invalidate(Path path){
+        Path target = path.toAbsolutePath().normalize();
+        generation++;
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while(it.hasNext()){
+            Map.Entry<Path, Entry> mapping = it.next();
+            if(mapping.getKey().startsWith(target)){
+                size -= mapping.getValue().size();
+                it.remove();
+            }
+        }
+    }
+
+    private void put(Path key, Entry entry){
+        Entry old = entries.put(key, entry);
+        if(old != null)
+            size -= old.size();
+        size += entry.size();
+
+        Iterator<Entry> it = entries.values().iterator();
+        while(size > capacity && it.hasNext()){
+            Entry eldest = it.next();
+            size -= eldest.size();
+            it.remove();
+        }
+    }
+
+    private void watchDirectory(Path directory){
+        if(watcher == null || directory == null || watchedDirectories.contains(directory))
+            return;
+        if(watcher.addDirToWatchList(directory.toFile()))
+            watchedDirectories.add(directory);
+    }
+
+    private static Path toKey(File file){
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+
+    private static class Entry {
+        private final byte[] bytes;
+        private final byte[] gzipBytes;
+        private final HttpHeaders headers;
+
+        private Entry(byte[] bytes, byte[] gzipBytes, HttpHeaders headers){
+            this.bytes = bytes;
+            this.gzipBytes = gzipBytes;
+            this.headers = headers;
+        }
+
+        public static Entry load(File file) throws IOException{
+            long lastModified = file.lastModified();
+            byte[] bytes = Files.readAllBytes(file.toPath());
+
+            HttpHeaders headers = new HttpHeaders();
+            String contentType = FileExtUtils.determineMimeType(file);
+            if(contentType.startsWith("text/")){
+                contentType += "; charset=utf-8"; // same as HttpResponses
+            }
+            headers.add("content-type", contentType);
+            headers.add("last-modified", HttpDate.format(lastModified));
+
+            byte[] gzipBytes = null;
+            if(FileExtUtils.isCommonTextFile(FileExtUtils.extractFileExtension(file.getName()))){
+                gzipBytes = gzip(bytes);
+                if(gzipBytes.length >= bytes.length)
+                    gzipBytes = null;
+                else headers.add("vary", "accept-encoding");
+            }
+            return new Entry(bytes, gzipBytes, headers);
+        }
+
+        public ResponseBuilder toResponse(boolean acceptGzip) throws IOException{
+            boolean useGzip = acceptGzip && gzipBytes != null;
+            byte[] body = useGzip? gzipBytes : bytes;
+            ResponseBuilder response = ResponseBuilder.getDefault(new HttpBodyStream(new ByteArrayOutputStream(body.length), null));
+            response.getBody().writeToBody(body);
+
+            HttpHeaders responseHeaders = response.getHeaders();
+            responseHeaders.add(headers);
+            if(useGzip)
+                responseHeaders.add("content-encoding", "gzip");
+            responseHeaders.add("content-length", Integer.toString(body.length));
+            return response;
+        }
+
+        public long size(){
+            return bytes.length + (gzipBytes == null? 0 : gzipBytes.length);
+        }
+
+        private static byte[] gzip(byte[] bytes) throws IOException{
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2 + 32);
+            try(GZIPOutputStream gzos = new GZIPOutputStream(compressed)){
+                gzos.write(bytes);
+            }
+            return compressed.toByteArray();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.vincentcodes.webserver.dispatcher;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.vincentcodes.webserver.dispatcher.operation.DispatcherOperation;
 
@@ -20,4 +21,17 @@ public abstract class Dispatcher<T, R, M> {
     }
 
     public abstract R dispatchObjectToHandlers(T obj) throws InvocationTargetException;
+
+    /**
+     * Asynchronous version of {@link #dispatchObjectToHandlers(Object)} which
+     * does not block the calling thread while handlers are waiting for their
+     * results. By default, the object is dispatched synchronously.
+     */
+    public CompletableFuture<R> dispatchAsync(T obj){
+        try{
+            return CompletableFuture.completedFuture(dispatchObjectToHandlers(obj));
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
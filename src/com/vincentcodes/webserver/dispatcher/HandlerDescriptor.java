@@ -0,0 +1,184 @@
+package com.vincentcodes.webserver.dispatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.annotaion.request.RequestMapping;
+import com.vincentcodes.webserver.annotaion.request.RequestsFilter;
+import com.vincentcodes.webserver.annotaion.response.JsonResponse;
+import com.vincentcodes.webserver.annotaion.response.Mutatable;
+import com.vincentcodes.webserver.annotaion.wrapper.InvocationCondition;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.dispatcher.reflect.ConditionalWrapper;
+import com.vincentcodes.webserver.dispatcher.reflect.DispatcherEnvironment;
+import com.vincentcodes.webserver.dispatcher.route.PathPattern;
+import com.vincentcodes.webserver.reflect.MethodDecorator;
+
+/**
+ * Everything the dispatcher needs to know about a handler method. It
+ * is compiled once from the annotations of the method and its class
+ * (see {@link #compile(MethodDecorator)}), so that annotations are not
+ * looked up again for every request. Instances are immutable.
+ */
+public final class HandlerDescriptor {
+    private final MethodDecorator method;
+    private final Class<?> handlerClass;
+    private final List<String> requestMethods;
+    private final PathPattern pathPattern;
+    private final IRequestsFilter[] filters;
+    private final ConditionalWrapper[] conditions;
+    private final ParameterBinder parameterBinder;
+    private final boolean mutatable;
+    private final boolean jsonResponse;
+
+    private HandlerDescriptor(MethodDecorator method, List<String> requestMethods, PathPattern pathPattern,
+            IRequestsFilter[] filters, ConditionalWrapper[] conditions){
+        this.method = method;
+        this.handlerClass = method.getParent().get();
+        this.requestMethods = Collections.unmodifiableList(requestMethods);
+        this.pathPattern = pathPattern;
+        this.filters = filters;
+        this.conditions = conditions;
+        this.parameterBinder = ParameterBinder.compile(method);
+        this.mutatable = method.hasAnnotation(Mutatable.class);
+        this.jsonResponse = method.hasAnnotation(JsonResponse.class);
+    }
+
+    /**
+     * Filters and conditions are taken from (or created in)
+     * {@link WebServer#PUBLIC_POOL}.
+     * @throws IllegalStateException if a filter or condition cannot be created
+     */
+    public static HandlerDescriptor compile(MethodDecorator method){
+        return new HandlerDescriptor(method, findRequestMethods(method), compilePathPattern(method),
+            createFilters(method), createConditions(method));
+    }
+
+    /**
+     * If it has no annotation (eg. &#64;HttpGet), the method is counted as
+     * supporting ALL Http methods (empty list is returned)
+     */
+    private static List<String> findRequestMethods(MethodDecorator method){
+        List<String> requestMethods = new ArrayList<>();
+        WebServer.SUPPORTED_REQUEST_METHOD.forEach((requestMethod, annotation) -> {
+            if(method.hasAnnotation(annotation))
+                requestMethods.add(requestMethod);
+        });
+        return requestMethods;
+    }
+
+    /**
+     * If RequestMapping does not exist, meaning that HttpGet and the alike exist.
+     * RequestMapping value defaults to "/" if this is the case. Mapping of the
+     * class (if any) is prepended.
+     */
+    private static PathPattern compilePathPattern(MethodDecorator method){
+        RequestMapping reqMappingAnno = method.getAnnotation(RequestMapping.class);
+        if(reqMappingAnno == null)
+            reqMappingAnno = RequestMapping.ROOT_PATH;
+        return PathPattern.of(method.getParent().getAnnotation(RequestMapping.class), reqMappingAnno);
+    }
+
+    private static IRequestsFilter[] createFilters(MethodDecorator method){
+        RequestsFilter filterAnno = method.getParent().getAnnotation(RequestsFilter.class);
+        if(filterAnno == null)
+            return new IRequestsFilter[0];
+        List<IRequestsFilter> filters = new ArrayList<>();
+        for(Class<?> clazz : filterAnno.value()){
+            // classes which are not filters are ignored
+            if(IRequestsFilter.class.isAssignableFrom(clazz))
+                filters.add((IRequestsFilter)getOrCreate(clazz, method));
+        }
+        return filters.toArray(new IRequestsFilter[0]);
+    }
+
+    private static ConditionalWrapper[] createConditions(MethodDecorator method){
+        InvocationCondition conditionAnno = method.getAnnotation(InvocationCondition.class);
+        if(conditionAnno == null)
+            return new ConditionalWrapper[0];
+        Class<? extends ConditionalWrapper>[] classes = conditionAnno.value();
+        ConditionalWrapper[] conditions = new ConditionalWrapper[classes.length];
+        for(int i = 0; i < classes.length; i++)
+            conditions[i] = getOrCreate(classes[i], method);
+        return conditions;
+    }
+
+    private static <T> T getOrCreate(Class<T> clazz, MethodDecorator method){
+        T instance = WebServer.PUBLIC_POOL.getButCreateIfAbsent(clazz);
+        if(instance == null)
+            throw new IllegalStateException("Cannot create an instance of " + clazz.getName() + " for " + method.get().toGenericString());
+        return instance;
+    }
+
+    public MethodDecorator getMethod(){
+        return method;
+    }
+
+    /**
+     * @return class of the object owning the handler method
+     */
+    public Class<?> getHandlerClass(){
+        return handlerClass;
+    }
+
+    /**
+     * @return request methods (eg. "GET") handled. Empty if all of them are handled.
+     */
+    public List<String> getRequestMethods(){
+        return requestMethods;
+    }
+
+    /**
+     * @return pattern of the method combined with the class's &#64;RequestMapping
+     */
+    public PathPattern getPathPattern(){
+        return pathPattern;
+    }
+
+    /**
+     * @return true if any one of the filters of the class filters the request out
+     */
+    public boolean willFilterOut(HttpRequest request){
+        for(IRequestsFilter filter : filters){
+            if(filter.willFilterOut(request))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * If method has no InvocationCondition, true is returned
+     */
+    public boolean allConditionsPass(WebServer.Configuration serverConfig, HttpRequest request){
+        if(conditions.length == 0)
+            return true;
+        DispatcherEnvironment env = new DispatcherEnvironment(serverConfig, request);
+        for(ConditionalWrapper condition : conditions){
+            if(!condition.evaluate(env))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return binder used by methods of &#64;SimplerHttpHandler
+     */
+    public ParameterBinder getParameterBinder(){
+        return parameterBinder;
+    }
+
+    public boolean isMutatable(){
+        return mutatable;
+    }
+
+    public boolean isJsonResponse(){
+        return jsonResponse;
+    }
+
+    @Override
+    public String toString(){
+        return requestMethods + " " + pathPattern + " -> " + method.get().toGenericString();
+    }
+}
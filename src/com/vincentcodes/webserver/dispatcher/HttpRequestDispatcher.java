@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.vincentcodes.webserver.HttpHandlerRegister;
 import com.vincentcodes.webserver.WebServer;
@@ -18,10 +19,10 @@ import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.response.HttpResponses;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
 import com.vincentcodes.webserver.dispatcher.operation.DispatcherOperation;
-import com.vincentcodes.webserver.dispatcher.operation.OperationResult;
 import com.vincentcodes.webserver.dispatcher.operation.OperationResultStatus;
 import com.vincentcodes.webserver.dispatcher.reflect.ConditionalWrapper;
 import com.vincentcodes.webserver.reflect.MethodDecorator;
+import com.vincentcodes.webserver.util.FutureUtils;
 
 /**
  * <p>
@@ -188,15 +189,31 @@ public class HttpRequestDispatcher extends Dispatcher<HttpRequest, ResponseBuild
      */
     @Override
     public ResponseBuilder dispatchObjectToHandlers(HttpRequest request) throws InvocationTargetException{
-        for(DispatcherOperation<HttpRequest, ResponseBuilder, MethodDecorator> operation : super.operations){
-            OperationResult<ResponseBuilder> result = operation.start(request);
-            if(result.status() == OperationResultStatus.FAILURE){
-                continue;
-            }else{
-                // error should not be handled again (OperationResultStatus.ERROR)
-                return result.get();
-            }
+        return FutureUtils.await(dispatchAsync(request));
+    }
+
+    /**
+     * Operations are started one after another. The next one is only
+     * started if the previous one failed to handle the request.
+     * @see #dispatchObjectToHandlers(HttpRequest)
+     */
+    @Override
+    public CompletableFuture<ResponseBuilder> dispatchAsync(HttpRequest request){
+        try{
+            return dispatchFrom(0, request);
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
         }
-        return HttpResponses.generate404Response();
+    }
+
+    private CompletableFuture<ResponseBuilder> dispatchFrom(int index, HttpRequest request){
+        if(index >= super.operations.size())
+            return CompletableFuture.completedFuture(HttpResponses.generate404Response());
+        return super.operations.get(index).startAsync(request).thenCompose(result -> {
+            if(result.status() == OperationResultStatus.FAILURE)
+                return dispatchFrom(index+1, request);
+            // error should not be handled again (OperationResultStatus.ERROR)
+            return CompletableFuture.completedFuture(result.get());
+        });
     }
 }
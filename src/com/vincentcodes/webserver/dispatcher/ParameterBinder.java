@@ -0,0 +1,89 @@
+package com.vincentcodes.webserver.dispatcher;
+
+import java.lang.reflect.Parameter;
+import java.util.function.Function;
+
+import com.vincentcodes.json.CannotMapToObjectException;
+import com.vincentcodes.json.ObjectMapper;
+import com.vincentcodes.webserver.annotaion.SimplerHttpHandler;
+import com.vincentcodes.webserver.annotaion.request.RequestParam;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.reflect.MethodDecorator;
+import com.vincentcodes.webserver.util.ObjectMappingUtil;
+
+/**
+ * Creates the arguments of a {@link SimplerHttpHandler &#64;SimplerHttpHandler}
+ * method from the parameters of a request (see {@link RequestParam}). How each
+ * argument is extracted and converted is decided once in {@link #compile(MethodDecorator)}.
+ * Parameters without &#64;RequestParam are given null.
+ */
+public final class ParameterBinder {
+    private static final ParameterBinder NO_PARAMETERS = new ParameterBinder(new Binding[0]);
+
+    private final Binding[] bindings;
+
+    private ParameterBinder(Binding[] bindings){
+        this.bindings = bindings;
+    }
+
+    public static ParameterBinder compile(MethodDecorator method){
+        Parameter[] parameters = method.getParameter();
+        if(parameters.length == 0)
+            return NO_PARAMETERS;
+        Binding[] bindings = new Binding[parameters.length];
+        for(int i = 0; i < parameters.length; i++){
+            RequestParam paramAnnotation = parameters[i].getAnnotation(RequestParam.class);
+            if(paramAnnotation != null)
+                bindings[i] = new Binding(paramAnnotation, parameters[i].getType());
+        }
+        return new ParameterBinder(bindings);
+    }
+
+    /**
+     * @param objectMapper used for parameters of type {@link RequestParam.Type#JSON}
+     * @return arguments for the method, or null if a parameter which is
+     * not nullable is missing
+     */
+    public Object[] bind(HttpRequest request, ObjectMapper objectMapper) throws CannotMapToObjectException{
+        Object[] arguments = new Object[bindings.length];
+        for(int i = 0; i < bindings.length; i++){
+            Binding binding = bindings[i];
+            if(binding == null)
+                continue;
+            String paramValue = request.getBasicInfo().getParameter(binding.name);
+            if(paramValue == null && !binding.nullable)
+                return null;
+            arguments[i] = binding.converter.convert(paramValue, objectMapper);
+        }
+        return arguments;
+    }
+
+    /**
+     * @return number of arguments created by {@link #bind(HttpRequest, ObjectMapper)}
+     */
+    public int getParameterCount(){
+        return bindings.length;
+    }
+
+    @FunctionalInterface
+    private interface ValueConverter {
+        Object convert(String value, ObjectMapper objectMapper) throws CannotMapToObjectException;
+    }
+
+    private static class Binding {
+        final String name;
+        final boolean nullable;
+        final ValueConverter converter;
+
+        Binding(RequestParam paramAnnotation, Class<?> type){
+            this.name = paramAnnotation.value();
+            this.nullable = paramAnnotation.nullable();
+            if(paramAnnotation.payloadType() == RequestParam.Type.JSON){
+                this.converter = (value, objectMapper) -> value == null? null : objectMapper.jsonToObject(value, type);
+            }else{
+                Function<String, Object> rawConverter = ObjectMappingUtil.converterFor(type);
+                this.converter = (value, objectMapper) -> rawConverter.apply(value);
+            }
+        }
+    }
+}
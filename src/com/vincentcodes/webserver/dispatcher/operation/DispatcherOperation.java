@@ -1,6 +1,7 @@
 package com.vincentcodes.webserver.dispatcher.operation;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.vincentcodes.webserver.helper.Registry;
 import com.vincentcodes.webserver.reflect.MethodDecorator;
@@ -45,4 +46,12 @@ public abstract class DispatcherOperation<T, R, M> {
      * This method will start an operation which will be defined by its sub-classes
      */
     public abstract OperationResult<R> start(T input);
+
+    /**
+     * Asynchronous version of {@link #start(Object)}. By default, the
+     * operation is started synchronously.
+     */
+    public CompletableFuture<OperationResult<R>> startAsync(T input){
+        return CompletableFuture.completedFuture(start(input));
+    }
 }
@@ -2,11 +2,12 @@ package com.vincentcodes.webserver.dispatcher.operation;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
 
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.dispatcher.HandlerDescriptor;
 import com.vincentcodes.webserver.dispatcher.operation.impl.HttpDispatcherOperation;
-import com.vincentcodes.webserver.reflect.MethodDecorator;
 
 /**
  * Replace Method with Method Object. This class is used in 
@@ -14,6 +15,22 @@ import com.vincentcodes.webserver.reflect.MethodDecorator;
  * @see com.vincentcodes.webserver.dispatcher.operation.impl.HttpDispatcherOperation
  */
 public interface MethodInvocationStrategy {
-    public ResponseBuilder invoke(HttpRequest request, MethodDecorator method) 
+    public ResponseBuilder invoke(HttpRequest request, HandlerDescriptor handler) 
             throws InvocationTargetException, IOException, IllegalAccessException, IllegalArgumentException;
+
+    /**
+     * Handlers may return a {@link java.util.concurrent.CompletionStage CompletionStage}
+     * (eg. CompletableFuture). In that case, the returned future completes once
+     * the handler's result does, without blocking the calling thread. Exceptions
+     * are never thrown from this method; they complete the future exceptionally.
+     * <p>
+     * By default, {@link #invoke(HttpRequest, HandlerDescriptor)} is used.
+     */
+    public default CompletableFuture<ResponseBuilder> invokeAsync(HttpRequest request, HandlerDescriptor handler){
+        try{
+            return CompletableFuture.completedFuture(invoke(request, handler));
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.vincentcodes.webserver.dispatcher.operation;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.vincentcodes.webserver.reflect.MethodDecorator;
 
@@ -20,4 +21,13 @@ public interface OperationStrategy<T, R> {
     public void setHandlers(List<MethodDecorator> handlerMethods);
 
     public OperationResult<R> execute(T input);
+
+    /**
+     * Same as {@link #execute(Object)} except that the calling thread is
+     * not blocked by handlers which complete later. By default, the
+     * operation is executed synchronously.
+     */
+    public default CompletableFuture<OperationResult<R>> executeAsync(T input){
+        return CompletableFuture.completedFuture(execute(input));
+    }
 }
@@ -5,6 +5,7 @@ import com.vincentcodes.json.ObjectMapperConfig;
 import com.vincentcodes.webserver.WebServer;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.component.response.StaticFileCache;
 import com.vincentcodes.webserver.dispatcher.operation.impl.CommonOperationStrategy;
 import com.vincentcodes.webserver.dispatcher.operation.impl.HttpInvocationStrategy;
 import com.vincentcodes.webserver.dispatcher.operation.impl.SimplerHttpInvocationStrategy;
@@ -22,9 +23,19 @@ public class OperationStrategyFactory {
     }
 
     private final WebServer.Configuration serverConfig;
+    private final StaticFileCache fileCache;
     
     public OperationStrategyFactory(WebServer.Configuration serverConfig){
+        this(serverConfig, null);
+    }
+
+    /**
+     * @param fileCache used by {@link HttpInvocationStrategy} to serve files, 
+     * can be null
+     */
+    public OperationStrategyFactory(WebServer.Configuration serverConfig, StaticFileCache fileCache){
         this.serverConfig = serverConfig;
+        this.fileCache = fileCache;
     }
 
     /**
@@ -36,7 +47,7 @@ public class OperationStrategyFactory {
     public OperationStrategy<HttpRequest, ResponseBuilder> create(OperationStrategyFactory.InvocationTypes type){
         MethodInvocationStrategy invocationStrategy;
         if(type == InvocationTypes.DEFAULT || type == InvocationTypes.NORMAL_HTTP){
-            invocationStrategy = new HttpInvocationStrategy();
+            invocationStrategy = new HttpInvocationStrategy(fileCache);
             
         }else if(type == InvocationTypes.SIMPLER_HTTP){
             ObjectMapper objectMapper = new ObjectMapper(new ObjectMapperConfig.Builder()
@@ -3,6 +3,7 @@ package com.vincentcodes.webserver.dispatcher.operation.impl;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.vincentcodes.webserver.HttpHandlerRegister;
 import com.vincentcodes.webserver.WebServer;
@@ -55,4 +56,9 @@ public class HttpDispatcherOperation extends DispatcherOperation<HttpRequest, Re
     public OperationResult<ResponseBuilder> start(HttpRequest request) {
         return operationStrategy.execute(request);
     }
+
+    @Override
+    public CompletableFuture<OperationResult<ResponseBuilder>> startAsync(HttpRequest request) {
+        return operationStrategy.executeAsync(request);
+    }
 }
@@ -3,9 +3,12 @@ package com.vincentcodes.webserver.dispatcher.operation.impl;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import com.vincentcodes.webserver.WebServer;
-import com.vincentcodes.webserver.annotaion.response.Mutatable;
+import com.vincentcodes.webserver.component.header.EntityEncodings;
 import com.vincentcodes.webserver.component.header.EntityInfo;
 import com.vincentcodes.webserver.component.header.HttpHeaders;
 import com.vincentcodes.webserver.component.header.RangeHeader;
@@ -13,46 +16,102 @@ import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.response.HttpResponses;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
 import com.vincentcodes.webserver.component.response.ResponseCodes;
+import com.vincentcodes.webserver.component.response.StaticFileCache;
+import com.vincentcodes.webserver.dispatcher.HandlerDescriptor;
 import com.vincentcodes.webserver.dispatcher.HttpHandlerOptions;
 import com.vincentcodes.webserver.dispatcher.HttpHandlerResult;
 import com.vincentcodes.webserver.dispatcher.operation.MethodInvocationStrategy;
 import com.vincentcodes.webserver.reflect.MethodDecorator;
 import com.vincentcodes.webserver.util.FileExtUtils;
+import com.vincentcodes.webserver.util.FutureUtils;
 
 // TODO: response strategy?
 public class HttpInvocationStrategy implements MethodInvocationStrategy {
+    private final StaticFileCache fileCache;
+
+    public HttpInvocationStrategy(){
+        this(null);
+    }
+
+    /**
+     * @param fileCache null to always read files from the disk
+     */
+    public HttpInvocationStrategy(StaticFileCache fileCache){
+        this.fileCache = fileCache;
+    }
 
     @Override
-    public ResponseBuilder invoke(HttpRequest request, MethodDecorator method)
+    public ResponseBuilder invoke(HttpRequest request, HandlerDescriptor handler)
             throws InvocationTargetException, IOException, IllegalAccessException, IllegalArgumentException {
+        return FutureUtils.await(invokeAsync(request, handler));
+    }
+
+    /**
+     * If the handler returns a {@link CompletionStage} (eg. CompletableFuture),
+     * the response is created once it completes. For handlers with &#64;Mutatable,
+     * the mutations made to the ResponseBuilder up to that moment are applied.
+     */
+    @Override
+    public CompletableFuture<ResponseBuilder> invokeAsync(HttpRequest request, HandlerDescriptor handler){
+        MethodDecorator method = handler.getMethod();
         ResponseBuilder response = HttpResponses.createDefault();
-        if (method.parametersInFormOf(HttpRequest.class)) {
-            if (method.returnsVoid()) {
-                method.quickInvoke(request);
-            } else {
-                Object body = method.quickInvoke(request);
-                return handleResponseBody(request, body);
-            }
-        } else if (method.parametersInFormOf(HttpRequest.class, ResponseBuilder.class)) {
-            if (method.returnsVoid()) {
-                method.quickInvoke(request, response);
-            } else {
-                Object body = method.quickInvoke(request, response);
-                if (method.hasAnnotation(Mutatable.class)) {
-                    ResponseBuilder realResponse = handleResponseBody(request, body);
-                    // errors cannot be altered.
-                    if (!ResponseCodes.isErrorResponseCode(realResponse.getResponseCode())) {
-                        if (response.isResponseCodeModified())
-                            realResponse.setResponseCode(response.getResponseCode());
-                        realResponse.getHeaders().add(response.getHeaders());
+        try{
+            switch(method.getShape()){
+                case REQUEST:
+                    if (method.returnsVoid()) {
+                        method.invoke(request);
+                    } else {
+                        return handleReturnValue(request, method.invoke(request), null);
                     }
-                    return realResponse;
-                } else {
-                    return handleResponseBody(request, body);
-                }
+                    break;
+                case REQUEST_RESPONSE:
+                    if (method.returnsVoid()) {
+                        method.invoke(request, response);
+                    } else {
+                        Object body = method.invoke(request, response);
+                        return handleReturnValue(request, body, handler.isMutatable()? response : null);
+                    }
+                    break;
+                default:
+                    break;
             }
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
         }
-        return response;
+        return CompletableFuture.completedFuture(response);
+    }
+
+    /**
+     * @param mutated response passed to a &#64;Mutatable handler, null if the handler is not
+     */
+    private CompletableFuture<ResponseBuilder> handleReturnValue(HttpRequest request, Object returnValue, ResponseBuilder mutated){
+        if(returnValue instanceof CompletionStage){
+            return FutureUtils.toCompletableFuture((CompletionStage<?>)returnValue).thenApply(body -> {
+                try{
+                    return createResponse(request, body, mutated);
+                }catch(IOException | InvocationTargetException e){
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        try{
+            return CompletableFuture.completedFuture(createResponse(request, returnValue, mutated));
+        }catch(IOException | InvocationTargetException e){
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private ResponseBuilder createResponse(HttpRequest request, Object body, ResponseBuilder mutated) throws IOException, InvocationTargetException{
+        ResponseBuilder realResponse = handleResponseBody(request, body);
+        if(mutated == null)
+            return realResponse;
+        // errors cannot be altered.
+        if (!ResponseCodes.isErrorResponseCode(realResponse.getResponseCode())) {
+            if (mutated.isResponseCodeModified())
+                realResponse.setResponseCode(mutated.getResponseCode());
+            realResponse.getHeaders().add(mutated.getHeaders());
+        }
+        return realResponse;
     }
 
     /**
@@ -111,6 +170,19 @@ public class HttpInvocationStrategy implements MethodInvocationStrategy {
     }
     private ResponseBuilder handleFile(HttpRequest request, File body, HttpHandlerOptions options) throws IOException{
         File file = (File) body;
+        HttpHeaders headers = request.getHeaders();
+        EntityInfo info = headers.getEntityInfo();
+        RangeHeader range = info.getRange();
+        String acceptEncoding = headers.getHeader("accept-encoding");
+        boolean acceptGzip = EntityEncodings.isAccepted(acceptEncoding, EntityEncodings.GZIP);
+
+        // cached files are known to exist, no need to stat them
+        if(fileCache != null && !options.isAttachment() && range == null){
+            ResponseBuilder cached = fileCache.get(file, acceptGzip);
+            if(cached != null)
+                return cached;
+        }
+
         if (!file.exists() || file.isDirectory()) {
             return HttpResponses.generate404Response();
         }
@@ -119,9 +191,6 @@ public class HttpInvocationStrategy implements MethodInvocationStrategy {
             return HttpResponses.useWholeFileAsBody(file, true);
         }
 
-        HttpHeaders headers = request.getHeaders();
-        EntityInfo info = headers.getEntityInfo();
-        RangeHeader range = info.getRange();
         if (range != null && range.isValid()) {
             long startLoc = range.getRangeStart();
             long endLoc = range.getRangeEnd();
@@ -147,6 +216,8 @@ public class HttpInvocationStrategy implements MethodInvocationStrategy {
             // }else{
             //     return HttpResponses.useWholeFileAsBody(file);
             // }
+            if(fileCache != null)
+                return fileCache.useWholeFileAsBody(file, acceptGzip);
             return HttpResponses.useWholeFileAsBody(file);
         }
     }
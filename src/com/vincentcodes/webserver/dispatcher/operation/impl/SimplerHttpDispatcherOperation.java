@@ -3,6 +3,7 @@ package com.vincentcodes.webserver.dispatcher.operation.impl;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.vincentcodes.webserver.HttpHandlerRegister;
 import com.vincentcodes.webserver.WebServer;
@@ -65,4 +66,9 @@ public class SimplerHttpDispatcherOperation extends DispatcherOperation<HttpRequ
     public OperationResult<ResponseBuilder> start(HttpRequest request) {
         return operationStrategy.execute(request);
     }
+
+    @Override
+    public CompletableFuture<OperationResult<ResponseBuilder>> startAsync(HttpRequest request) {
+        return operationStrategy.executeAsync(request);
+    }
 }
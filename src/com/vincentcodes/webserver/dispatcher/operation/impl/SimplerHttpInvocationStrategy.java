@@ -1,22 +1,27 @@
 package com.vincentcodes.webserver.dispatcher.operation.impl;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Parameter;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import com.vincentcodes.json.CannotMapFromObjectException;
 import com.vincentcodes.json.CannotMapToObjectException;
 import com.vincentcodes.json.ObjectMapper;
-import com.vincentcodes.webserver.annotaion.request.RequestParam;
-import com.vincentcodes.webserver.annotaion.response.JsonResponse;
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.response.HttpResponses;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.dispatcher.HandlerDescriptor;
 import com.vincentcodes.webserver.dispatcher.operation.MethodInvocationStrategy;
 import com.vincentcodes.webserver.reflect.MethodDecorator;
-import com.vincentcodes.webserver.util.ObjectMappingUtil;
+import com.vincentcodes.webserver.util.FutureUtils;
 
 /**
  * TODO: Warning: This class receives little attention (may contain bugs)
@@ -29,52 +34,96 @@ public class SimplerHttpInvocationStrategy implements MethodInvocationStrategy {
     }
 
     @Override
-    public ResponseBuilder invoke(HttpRequest request, MethodDecorator method)
+    public ResponseBuilder invoke(HttpRequest request, HandlerDescriptor handler)
             throws InvocationTargetException, IOException, IllegalAccessException, IllegalArgumentException {
+        return FutureUtils.await(invokeAsync(request, handler));
+    }
+
+    /**
+     * If the handler returns a {@link CompletionStage} (eg. CompletableFuture),
+     * its result is handled the same way as other return values once it completes.
+     */
+    @Override
+    public CompletableFuture<ResponseBuilder> invokeAsync(HttpRequest request, HandlerDescriptor handler){
+        MethodDecorator method = handler.getMethod();
         try{
-            List<Object> parameters = initNullArrayList(method.getParameterCount());
-            for(int i = 0; i < method.getParameterCount(); i++){
-                Parameter parameter = method.getParameter()[i];
-                if(parameter.isAnnotationPresent(RequestParam.class)){
-                    RequestParam paramAnnotation = parameter.getAnnotation(RequestParam.class);
-                    String paramValue = request.getBasicInfo().getParameter(paramAnnotation.value());
-                    if(paramValue == null && !paramAnnotation.nullable())
-                        return HttpResponses.generate404Response();
-                    
-                    if(paramAnnotation.payloadType() == RequestParam.Type.JSON){
-                        parameters.set(i, objectMapper.jsonToObject(paramValue, parameter.getType()));
-                        continue;
-                    }
-                    parameters.set(i, ObjectMappingUtil.mapStringToCorrectValue(parameter.getType(), paramValue));
-                }
-            }
+            Object[] arguments = handler.getParameterBinder().bind(request, objectMapper);
+            if(arguments == null)
+                return CompletableFuture.completedFuture(HttpResponses.generate404Response());
             
             if(method.returnsVoid()){
-                return HttpResponses.createGenericResponse(200);
+                method.invoke(arguments);
+                return CompletableFuture.completedFuture(HttpResponses.createGenericResponse(200));
             }
-            Object returnValue = method.quickInvoke(parameters.toArray());
-            return handleMethodReturnValue(method, returnValue);
+            Object returnValue = method.invoke(arguments);
+            if(returnValue instanceof CompletionStage){
+                return FutureUtils.toCompletableFuture((CompletionStage<?>)returnValue).thenApply(result -> {
+                    try{
+                        return handleMethodReturnValue(handler, result);
+                    }catch(IOException | CannotMapFromObjectException e){
+                        throw new CompletionException(e);
+                    }
+                });
+            }
+            return CompletableFuture.completedFuture(handleMethodReturnValue(handler, returnValue));
         }catch(CannotMapFromObjectException | CannotMapToObjectException objMapperException){
-            throw new IllegalArgumentException(objMapperException);
+            return CompletableFuture.failedFuture(new IllegalArgumentException(objMapperException));
+        }catch(Exception e){
+            return CompletableFuture.failedFuture(e);
         }
     }
-    private ResponseBuilder handleMethodReturnValue(MethodDecorator method, Object returnValue) throws IOException, CannotMapFromObjectException{
+    private ResponseBuilder handleMethodReturnValue(HandlerDescriptor handler, Object returnValue) throws IOException, CannotMapFromObjectException{
         if(returnValue == null){
             return HttpResponses.createGenericResponse(200);
         }
-        if(method.hasAnnotation(JsonResponse.class)){
+        if(handler.isJsonResponse()){
             if(returnValue instanceof String)
                 return HttpResponses.useStringAsJsonBody((String)returnValue);
+            Collection<?> elements = asLargeArray(returnValue);
+            if(elements != null)
+                return HttpResponses.useChunkedStreamAsBody(new HttpBodyChunkedStream(os -> writeJsonArray(elements, os)), "application/json");
             return HttpResponses.useStringAsJsonBody(objectMapper.objectToJson(returnValue));
         }
         return HttpResponses.useObjectAsBody(returnValue);
     }
-    
-    private List<Object> initNullArrayList(int capacity){
-        List<Object> array = new ArrayList<>(capacity);
-        for(int i = 0; i < capacity; i++){
-            array.add(null);
+
+    /**
+     * @return null if the value is not an array / collection, or it is too
+     * small to be worth streaming
+     * @see WebServer#MIN_STREAMED_JSON_ARRAY_LENGTH
+     */
+    private static Collection<?> asLargeArray(Object value){
+        if(value instanceof Object[] && ((Object[])value).length >= WebServer.MIN_STREAMED_JSON_ARRAY_LENGTH)
+            return Arrays.asList((Object[])value);
+        if(value instanceof Collection && ((Collection<?>)value).size() >= WebServer.MIN_STREAMED_JSON_ARRAY_LENGTH)
+            return (Collection<?>)value;
+        return null;
+    }
+
+    /**
+     * Only 1 element is held in memory as JSON at a time. Each one is 
+     * serialized as if it was in a 1 element array, so the output is the 
+     * same as serializing the whole array with {@link ObjectMapper#objectToJson(Object)}.
+     * <p>
+     * The status is already sent when an element fails, the error aborts 
+     * the response instead (see {@link com.vincentcodes.webserver.ServerThreadUtils#streamChunkedBodyTo}).
+     */
+    private void writeJsonArray(Collection<?> elements, OutputStream os) throws IOException{
+        os.write('[');
+        boolean first = true;
+        for(Object element : elements){
+            if(!first)
+                os.write(',');
+            first = false;
+            String json;
+            try{
+                json = objectMapper.objectToJson(new Object[]{element});
+            }catch(CannotMapFromObjectException e){
+                throw new IOException("Cannot serialize an element of a @JsonResponse array", e);
+            }
+            // strip the brackets
+            os.write(json.substring(1, json.length()-1).getBytes(StandardCharsets.UTF_8));
         }
-        return array;
+        os.write(']');
     }
 }
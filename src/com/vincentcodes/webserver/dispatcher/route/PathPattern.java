@@ -0,0 +1,207 @@
+package com.vincentcodes.webserver.dispatcher.route;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import com.vincentcodes.webserver.annotaion.request.RequestMapping;
+import com.vincentcodes.webserver.reflect.RequestMappingWrapper;
+
+/**
+ * A compiled {@link RequestMapping}. It matches exactly the same paths
+ * as the regex produced by {@link RequestMappingWrapper#getRegexPattern()}
+ * (or {@link RequestMappingWrapper#combineWith(RequestMappingWrapper)}),
+ * without using regex.
+ * <p>
+ * The mapping is turned into tokens: literal characters, "." (any
+ * character), "*", "**" and the optional trailing slash. The leading
+ * literal characters are used as the key of {@link RouteTable}. Only
+ * raw mappings (or mappings containing other regex syntax) fall back to
+ * a precompiled {@link Pattern}.
+ */
+public class PathPattern {
+    private static final int ANY = -1;            // .
+    private static final int STAR = -2;           // ([^\n\r/]*)
+    private static final int DOUBLE_STAR = -3;    // ([^\n\r]*)
+    private static final int OPTIONAL_SLASH = -4; // (/)?
+    private static final String REGEX_SYNTAX = "\\^$|?+()[]{}";
+
+    private final String source;
+    private final int[] tokens;
+    private final Pattern regex;
+    private final String literalPrefix;
+
+    private PathPattern(String source, int[] tokens){
+        this.source = source;
+        this.tokens = tokens;
+        this.regex = null;
+        int prefixLength = 0;
+        while(prefixLength < tokens.length && tokens[prefixLength] >= 0)
+            prefixLength++;
+        char[] prefix = new char[prefixLength];
+        for(int i = 0; i < prefixLength; i++)
+            prefix[i] = (char)tokens[i];
+        this.literalPrefix = new String(prefix);
+    }
+
+    private PathPattern(String source, Pattern regex){
+        this.source = source;
+        this.tokens = null;
+        this.regex = regex;
+        this.literalPrefix = "";
+    }
+
+    /**
+     * @param mapping mapping of a method whose class has no {@link RequestMapping}
+     */
+    public static PathPattern of(RequestMapping mapping){
+        RequestMappingWrapper wrapper = new RequestMappingWrapper(mapping);
+        if(mapping.exact())
+            return new PathPattern(mapping.value(), mapping.value().chars().toArray());
+        int[] tokens = mapping.raw()? null : tokenize(wrapper);
+        if(tokens == null)
+            return new PathPattern(mapping.value(), Pattern.compile(wrapper.getRegexPattern()));
+        return new PathPattern(mapping.value(), tokens);
+    }
+
+    /**
+     * @param classMapping can be null
+     * @param methodMapping mapping of the method
+     * @see RequestMappingWrapper#combineWith(RequestMappingWrapper)
+     */
+    public static PathPattern of(RequestMapping classMapping, RequestMapping methodMapping){
+        if(classMapping == null)
+            return of(methodMapping);
+        RequestMappingWrapper classWrapper = new RequestMappingWrapper(classMapping);
+        RequestMappingWrapper methodWrapper = new RequestMappingWrapper(methodMapping);
+        String source = classMapping.value() + methodMapping.value();
+        int[] classTokens = classMapping.raw()? null : tokenize(classWrapper);
+        int[] methodTokens = methodMapping.raw()? null : tokenize(methodWrapper);
+        if(classTokens == null || methodTokens == null)
+            return new PathPattern(source, Pattern.compile(classWrapper.combineWith(methodWrapper)));
+
+        int[] combined = Arrays.copyOf(classTokens, classTokens.length + methodTokens.length);
+        System.arraycopy(methodTokens, 0, combined, classTokens.length, methodTokens.length);
+        return new PathPattern(source, removeDoubleSlashes(combined));
+    }
+
+    /**
+     * @return literal characters which every matching path starts with
+     */
+    public String getLiteralPrefix(){
+        return literalPrefix;
+    }
+
+    public boolean isRegex(){
+        return regex != null;
+    }
+
+    public boolean matches(String path){
+        if(regex != null)
+            return regex.matcher(path).matches();
+        return path.startsWith(literalPrefix) && matchesAfterPrefix(path);
+    }
+
+    /**
+     * The caller has checked that path starts with {@link #getLiteralPrefix()}
+     */
+    boolean matchesAfterPrefix(String path){
+        if(regex != null)
+            return regex.matcher(path).matches();
+        return matches(path, literalPrefix.length(), literalPrefix.length());
+    }
+
+    private boolean matches(String path, int pathIndex, int tokenIndex){
+        int length = path.length();
+        while(tokenIndex < tokens.length){
+            int token = tokens[tokenIndex++];
+            if(token == STAR || token == DOUBLE_STAR){
+                // try every possible length of the wildcard
+                for(int end = pathIndex;; end++){
+                    if(matches(path, end, tokenIndex))
+                        return true;
+                    if(end == length || !isWildcardChar(token, path.charAt(end)))
+                        return false;
+                }
+            }
+            if(token == OPTIONAL_SLASH){
+                if(pathIndex < length && path.charAt(pathIndex) == '/' && matches(path, pathIndex+1, tokenIndex))
+                    return true;
+                continue;
+            }
+            if(pathIndex == length)
+                return false;
+            char c = path.charAt(pathIndex++);
+            if(token == ANY? isLineTerminator(c) : token != c)
+                return false;
+        }
+        return pathIndex == length;
+    }
+
+    /**
+     * Follows the replacements done by {@link RequestMappingWrapper#getRegexPattern()}
+     * @return null if the mapping contains other regex syntax
+     */
+    private static int[] tokenize(RequestMappingWrapper mapping){
+        String value = mapping.value();
+        boolean hasDoubleStar = value.contains("**");
+        int[] tokens = new int[value.length() + 1];
+        int count = 0;
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c == '*'){
+                if(!hasDoubleStar){
+                    tokens[count++] = STAR;
+                }else if(i+1 < value.length() && value.charAt(i+1) == '*'){
+                    tokens[count++] = DOUBLE_STAR;
+                    i++;
+                }else{
+                    // a single '*' is left as a regex quantifier
+                    return null;
+                }
+            }else if(c == '.'){
+                tokens[count++] = ANY;
+            }else if(REGEX_SYNTAX.indexOf(c) != -1){
+                return null;
+            }else{
+                tokens[count++] = c;
+            }
+        }
+        if(value.endsWith("/")){
+            // "/asd/" becomes "/asd(/)?"
+            tokens[count-1] = OPTIONAL_SLASH;
+        }else if(mapping.getRegexPattern().endsWith("(/)?$")){
+            tokens[count++] = OPTIONAL_SLASH;
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+
+    /**
+     * Same as <code>replaceAll("//", "/")</code> on the combined regex
+     */
+    private static int[] removeDoubleSlashes(int[] tokens){
+        int[] result = new int[tokens.length];
+        int count = 0;
+        for(int i = 0; i < tokens.length; i++){
+            result[count++] = tokens[i];
+            if(tokens[i] == '/' && i+1 < tokens.length && tokens[i+1] == '/')
+                i++;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static boolean isWildcardChar(int wildcard, char c){
+        return c != '\n' && c != '\r' && (wildcard == DOUBLE_STAR || c != '/');
+    }
+
+    /**
+     * Characters not matched by "." in regex
+     */
+    private static boolean isLineTerminator(char c){
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    @Override
+    public String toString(){
+        return source;
+    }
+}
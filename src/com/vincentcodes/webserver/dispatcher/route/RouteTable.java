@@ -0,0 +1,150 @@
+package com.vincentcodes.webserver.dispatcher.route;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes are stored in radix tries (one per request method) keyed by the
+ * literal prefix of their {@link PathPattern}. A lookup walks the trie
+ * along the path once, and only the routes whose prefix matches the path
+ * are tested. The cost depends on the length of the path instead of the
+ * number of handlers.
+ * <p>
+ * Matching routes are returned in the order they were added, which is
+ * the order handlers are tried by the dispatcher.
+ * @param <T> eg. {@link com.vincentcodes.webserver.reflect.MethodDecorator MethodDecorator}
+ */
+public class RouteTable<T> {
+    private static final Comparator<Route<?>> BY_ORDER = Comparator.comparingInt(route -> route.order);
+
+    private final Map<String, Node<T>> methodTries = new HashMap<>();
+    // routes which accept any request method
+    private final Node<T> anyMethodTrie = new Node<>("");
+    private int size = 0;
+
+    /**
+     * @param methods request methods (eg. "GET") accepted by the route.
+     * All methods are accepted if it is empty.
+     */
+    public void add(Collection<String> methods, PathPattern pattern, T value){
+        Route<T> route = new Route<>(size++, pattern, value);
+        if(methods.isEmpty()){
+            anyMethodTrie.insert(pattern.getLiteralPrefix(), route);
+            return;
+        }
+        for(String method : methods)
+            methodTries.computeIfAbsent(method, k -> new Node<>("")).insert(pattern.getLiteralPrefix(), route);
+    }
+
+    /**
+     * @return values of the routes matching the request, in the order they
+     * were added
+     */
+    public List<T> find(String method, String path){
+        List<Route<T>> routes = new ArrayList<>();
+        Node<T> methodTrie = methodTries.get(method);
+        if(methodTrie != null)
+            methodTrie.collect(path, routes);
+        anyMethodTrie.collect(path, routes);
+        if(routes.isEmpty())
+            return Collections.emptyList();
+        if(routes.size() > 1)
+            routes.sort(BY_ORDER);
+        List<T> result = new ArrayList<>(routes.size());
+        for(Route<T> route : routes)
+            result.add(route.value);
+        return result;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    private static class Route<T> {
+        final int order;
+        final PathPattern pattern;
+        final T value;
+
+        Route(int order, PathPattern pattern, T value){
+            this.order = order;
+            this.pattern = pattern;
+            this.value = value;
+        }
+    }
+
+    private static class Node<T> {
+        // characters on the edge leading to this node
+        String label;
+        Map<Character, Node<T>> children = new HashMap<>();
+        // routes whose literal prefix ends here
+        List<Route<T>> routes = new ArrayList<>();
+
+        Node(String label){
+            this.label = label;
+        }
+
+        void insert(String key, Route<T> route){
+            Node<T> node = this;
+            int index = 0;
+            while(index < key.length()){
+                Node<T> child = node.children.get(key.charAt(index));
+                if(child == null){
+                    child = new Node<>(key.substring(index));
+                    node.children.put(key.charAt(index), child);
+                    node = child;
+                    break;
+                }
+                int common = commonPrefixLength(child.label, key, index);
+                if(common < child.label.length())
+                    child.split(common);
+                index += common;
+                node = child;
+            }
+            node.routes.add(route);
+        }
+
+        /**
+         * Keeps the first length characters of the label in this node and
+         * moves the rest (with everything below) into a new child
+         */
+        void split(int length){
+            Node<T> rest = new Node<>(label.substring(length));
+            rest.children = children;
+            rest.routes = routes;
+            children = new HashMap<>();
+            children.put(rest.label.charAt(0), rest);
+            routes = new ArrayList<>();
+            label = label.substring(0, length);
+        }
+
+        void collect(String path, List<Route<T>> result){
+            Node<T> node = this;
+            int index = 0;
+            for(;;){
+                for(Route<T> route : node.routes){
+                    if(route.pattern.matchesAfterPrefix(path))
+                        result.add(route);
+                }
+                if(index == path.length())
+                    return;
+                node = node.children.get(path.charAt(index));
+                if(node == null || !path.startsWith(node.label, index))
+                    return;
+                index += node.label.length();
+            }
+        }
+
+        private static int commonPrefixLength(String label, String key, int keyIndex){
+            int max = Math.min(label.length(), key.length() - keyIndex);
+            int i = 0;
+            while(i < max && label.charAt(i) == key.charAt(keyIndex + i))
+                i++;
+            return i;
+        }
+    }
+}
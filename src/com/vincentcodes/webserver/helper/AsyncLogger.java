@@ -0,0 +1,402 @@
+package com.vincentcodes.webserver.helper;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import com.vincentcodes.logger.Logger;
+import com.vincentcodes.logger.LoggerUtils;
+
+/**
+ * A {@link Logger} which never writes on the caller's thread. Messages
+ * are pushed into a bounded lock-free ring buffer together with their
+ * level and time. A background writer formats them and writes them in
+ * batches (one write and flush per batch).
+ * <p>
+ * Producers never block. If the writer cannot keep up, messages are
+ * handled according to the {@link OverflowPolicy} and the number of
+ * lost messages is reported once the writer catches up.
+ * <p>
+ * Expensive messages (eg. request dumps) can be passed as a {@link Supplier}
+ * (see {@link #debug(Supplier)}), they are built by the writer instead of
+ * the caller. Use {@link #isEnabled(LogType)} to skip other work.
+ */
+public class AsyncLogger extends Logger {
+    public static final int DEFAULT_CAPACITY = 8192; // must be a power of 2
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = 100_000_000; // 100ms
+    private static final String[] TYPE_LABELS = new String[LogType.values().length];
+    static{
+        for(LogType type : LogType.values())
+            TYPE_LABELS[type.ordinal()] = String.format("%-5s: ", type.name());
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Messages are dropped only when the buffer is full
+         */
+        DROP,
+        /**
+         * Once the buffer is half full, only 1 in every N debug and info
+         * messages is kept. Warnings and errors are kept as long as there
+         * is space left.
+         */
+        SAMPLE
+    }
+
+    // set while the super constructor runs, do not initialize them here
+    private volatile EnumSet<LogType> enabledTypes;
+    private volatile boolean muted;
+
+    private final EventRing ring;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.SAMPLE;
+    private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+    private final Thread writer;
+    private volatile boolean writerParked = false;
+
+    // writer thread only
+    private final StringBuilder consoleBatch = new StringBuilder();
+    private final StringBuilder fileBatch = new StringBuilder();
+    private long headerSecond = -1;
+    private String headerTime;
+
+    /**
+     * @see Logger#Logger(String, boolean, boolean)
+     */
+    public AsyncLogger(String fileName, boolean logToFile, boolean useColors, int capacity){
+        super(fileName, logToFile, useColors);
+        this.ring = new EventRing(capacity);
+        this.writer = new Thread(this::runWriter, "async-logger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        // whatever is buffered is written before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "async-logger-flush"));
+    }
+    public AsyncLogger(String fileName, boolean logToFile, boolean useColors){
+        this(fileName, logToFile, useColors, DEFAULT_CAPACITY);
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy){
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public OverflowPolicy getOverflowPolicy(){
+        return overflowPolicy;
+    }
+
+    /**
+     * @param sampleRate keep 1 in every sampleRate messages under {@link OverflowPolicy#SAMPLE}
+     */
+    public void setSampleRate(int sampleRate){
+        if(sampleRate < 1)
+            throw new IllegalArgumentException("Sample rate must be at least 1");
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return number of messages dropped or sampled out so far, which
+     * are not reported yet
+     */
+    public long getDroppedCount(){
+        return droppedCount.get();
+    }
+
+    public boolean isEnabled(LogType type){
+        return !muted && enabledTypes.contains(type);
+    }
+
+    @Override
+    public void enable(LogType type){
+        super.enable(type);
+        EnumSet<LogType> types = EnumSet.copyOf(enabledTypes);
+        types.add(type);
+        enabledTypes = types;
+    }
+
+    @Override
+    public void disable(LogType type){
+        super.disable(type);
+        EnumSet<LogType> types = EnumSet.copyOf(enabledTypes);
+        types.remove(type);
+        enabledTypes = types;
+    }
+
+    @Override
+    public void resetLogTypes(){
+        super.resetLogTypes();
+        enabledTypes = EnumSet.of(LogType.INFO, LogType.WARN, LogType.ERROR);
+    }
+
+    @Override
+    public void doPrint(boolean doPrint){
+        super.doPrint(doPrint);
+        muted = !doPrint;
+    }
+
+    @Override
+    public void print(String str, LogType type){
+        publish(str, type, false);
+    }
+
+    @Override
+    public void println(String str, LogType type){
+        publish(str, type, true);
+    }
+
+    /**
+     * The message is built on the writer thread, only if the type is
+     * enabled. Objects used by the supplier must not change afterwards.
+     */
+    public void println(Supplier<?> message, LogType type){
+        publish(message, type, true);
+    }
+
+    /**
+     * @see #println(Supplier, LogType)
+     */
+    public void debug(Supplier<?> message){
+        println(message, LogType.DEBUG);
+    }
+
+    /**
+     * Writes every buffered message before returning
+     */
+    public void flush(){
+        while(drain() > 0);
+    }
+
+    /**
+     * @param message String or Supplier
+     */
+    private void publish(Object message, LogType type, boolean newLine){
+        if(!isEnabled(type))
+            return;
+        if(!accept(type) || !ring.offer(type, System.currentTimeMillis(), message, newLine)){
+            droppedCount.incrementAndGet();
+            return;
+        }
+        if(writerParked){
+            writerParked = false;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean accept(LogType type){
+        if(overflowPolicy != OverflowPolicy.SAMPLE || type == LogType.WARN || type == LogType.ERROR)
+            return true;
+        if(ring.size() < ring.capacity() / 2)
+            return true;
+        return sampleCounter.incrementAndGet() % sampleRate == 0;
+    }
+
+    private void runWriter(){
+        for(;;){
+            if(drain() > 0)
+                continue;
+            writerParked = true;
+            if(ring.size() == 0)
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            writerParked = false;
+        }
+    }
+
+    /**
+     * Writes at most one batch. Both the writer and {@link #flush()} may
+     * call it, the ring only allows one consumer at a time.
+     * @return number of messages written
+     */
+    private synchronized int drain(){
+        int count = 0;
+        long dropped = droppedCount.getAndSet(0);
+        if(dropped > 0)
+            format(LogType.WARN, System.currentTimeMillis(), dropped + " log message(s) dropped, logging cannot keep up", true);
+        Event event;
+        while(count < MAX_BATCH_SIZE && (event = ring.peek()) != null){
+            format(event.type, event.timestamp, toMessage(event.message), event.newLine);
+            ring.release();
+            count++;
+        }
+        writeBatch();
+        return count;
+    }
+
+    /**
+     * The format is the same as {@link Logger}'s
+     */
+    private void format(LogType type, long timestamp, String message, boolean newLine){
+        String line = header(type, timestamp) + normalizeLineEndings(message) + (newLine? "\n" : "");
+        if(getLogToFile())
+            fileBatch.append(line);
+        if(muted)
+            return;
+        if(getUseColors() && type == LogType.ERROR){
+            writeConsoleBatch();
+            LoggerUtils.printErr(line);
+        }else if(getUseColors() && type == LogType.WARN){
+            writeConsoleBatch();
+            LoggerUtils.printWarn(line);
+        }else if(type == LogType.ERROR){
+            writeConsoleBatch();
+            System.err.print(line);
+        }else{
+            consoleBatch.append(line);
+        }
+    }
+
+    private void writeBatch(){
+        writeConsoleBatch();
+        FileOutputStream output = getOutputStream();
+        if(fileBatch.length() > 0 && output != null){
+            try{
+                output.write(fileBatch.toString().getBytes(StandardCharsets.UTF_8));
+                output.flush();
+            }catch(IOException e){
+                System.err.println("An Error Occured: Cannot output to File");
+            }
+        }
+        fileBatch.setLength(0);
+    }
+
+    private void writeConsoleBatch(){
+        if(consoleBatch.length() == 0)
+            return;
+        System.out.print(consoleBatch);
+        System.out.flush();
+        consoleBatch.setLength(0);
+    }
+
+    private String header(LogType type, long timestamp){
+        long second = timestamp / 1000;
+        if(second != headerSecond){
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+            headerTime = String.format("[%d/%d/%d][%02d:%02d:%02d] ", time.getDayOfMonth(), time.getMonthValue(),
+                time.getYear(), time.getHour(), time.getMinute(), time.getSecond());
+            headerSecond = second;
+        }
+        return headerTime + TYPE_LABELS[type.ordinal()];
+    }
+
+    private static String toMessage(Object message){
+        if(!(message instanceof Supplier))
+            return (String)message;
+        try{
+            return String.valueOf(((Supplier<?>)message).get());
+        }catch(RuntimeException e){
+            return "Cannot build log message: " + e;
+        }
+    }
+
+    /**
+     * Messages such as http heads contain CRLF
+     */
+    private static String normalizeLineEndings(String message){
+        return message.indexOf('\r') == -1? message : message.replace("\r\n", "\n");
+    }
+
+    /**
+     * A slot of the ring. Slots are reused, producers only copy
+     * references into them.
+     */
+    private static class Event {
+        LogType type;
+        long timestamp;
+        // String or Supplier
+        Object message;
+        boolean newLine;
+    }
+
+    /**
+     * Bounded multi-producer single-consumer queue. Each slot has a
+     * sequence number telling whether it is free to be written (equals
+     * the producer's position) or ready to be read (position + 1).
+     * @see https://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue
+     */
+    private static class EventRing {
+        private final Event[] events;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicLong head = new AtomicLong();
+
+        public EventRing(int capacity){
+            if(capacity < 2 || Integer.bitCount(capacity) != 1)
+                throw new IllegalArgumentException("Capacity must be a power of 2");
+            events = new Event[capacity];
+            sequences = new AtomicLongArray(capacity);
+            for(int i = 0; i < capacity; i++){
+                events[i] = new Event();
+                sequences.set(i, i);
+            }
+            mask = capacity - 1;
+        }
+
+        /**
+         * @return false if the ring is full
+         */
+        public boolean offer(LogType type, long timestamp, Object message, boolean newLine){
+            long position = tail.get();
+            int index;
+            for(;;){
+                index = (int)(position & mask);
+                long diff = sequences.get(index) - position;
+                if(diff == 0){
+                    if(tail.compareAndSet(position, position + 1))
+                        break;
+                    position = tail.get();
+                }else if(diff < 0){
+                    return false;
+                }else{
+                    position = tail.get();
+                }
+            }
+            Event event = events[index];
+            event.type = type;
+            event.timestamp = timestamp;
+            event.message = message;
+            event.newLine = newLine;
+            sequences.set(index, position + 1); // publish
+            return true;
+        }
+
+        /**
+         * Consumer only
+         * @return the oldest event or null if none is ready
+         */
+        public Event peek(){
+            long position = head.get();
+            int index = (int)(position & mask);
+            return sequences.get(index) == position + 1? events[index] : null;
+        }
+
+        /**
+         * Consumer only. Frees the slot returned by {@link #peek()}.
+         */
+        public void release(){
+            long position = head.get();
+            int index = (int)(position & mask);
+            events[index].message = null;
+            sequences.set(index, position + events.length);
+            head.set(position + 1);
+        }
+
+        public int size(){
+            return (int)Math.max(0, tail.get() - head.get());
+        }
+
+        public int capacity(){
+            return events.length;
+        }
+    }
+}
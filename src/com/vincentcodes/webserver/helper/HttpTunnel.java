@@ -17,6 +17,7 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
 import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.body.ChunkedOutputStream;
 import com.vincentcodes.webserver.component.request.HttpRequest;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
 import com.vincentcodes.webserver.component.response.ResponseParser;
@@ -162,8 +163,13 @@ public class HttpTunnel implements Closeable {
         }else{
             os.write(request.getWholeRequest().getBytes());
         }
-        if(request.getBody() != null && request.getBody().length() > 0){
-            os.write(request.getBody().getBytes());
+        if(request.getBody() != null && request.getHeaders().getEntityInfo().isChunked()){
+            // the body is decoded while being read, encode it again (trailers are dropped)
+            ChunkedOutputStream chunkedOs = new ChunkedOutputStream(os);
+            request.getBody().streamBytesTo(chunkedOs);
+            chunkedOs.finish();
+        }else if(request.getBody() != null && request.getBody().length() > 0){
+            request.getBody().streamBytesTo(os);
         }
         os.flush();
     }
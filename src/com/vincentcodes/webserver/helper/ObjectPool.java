@@ -1,13 +1,21 @@
 package com.vincentcodes.webserver.helper;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.vincentcodes.webserver.util.ConstructorUtils;
 
+/**
+ * A thread-safe pool of objects keyed by class. Every superclass and
+ * interface of a key is indexed when it is put, so {@link #getInstanceOf(Class)}
+ * and {@link #hasInstanceOf(Class)} do not scan the pool. If several keys
+ * share a supertype, the one put first is used for that supertype.
+ */
 public class ObjectPool {
-    private final Map<Class<?>, Object> POOL = new HashMap<>();
+    private final Map<Class<?>, Object> POOL = new ConcurrentHashMap<>();
+    // supertype -> key of POOL
+    private final Map<Class<?>, Class<?>> SUPERTYPES = new ConcurrentHashMap<>();
 
     /**
      * @return null if not found
@@ -17,9 +25,11 @@ public class ObjectPool {
     public <T> T get(Class<T> clazz){
         return (T) POOL.get(clazz);
     }
-    
+
     /**
-     * Get or create
+     * Get or create. Threads racing to create the same class get the
+     * same instance (the first one put into the pool). The constructor
+     * is called outside of any lock so that it may use the pool as well.
      * @return null if not cannot create an instance
      */
     public <T> T getButCreateIfAbsent(Class<T> clazz){
@@ -29,24 +39,28 @@ public class ObjectPool {
         Optional<T> newInstance = ConstructorUtils.noArgNewInstance(clazz);
         if(newInstance.isEmpty())
             return null;
-        POOL.put(clazz, newInstance.get());
+        @SuppressWarnings("unchecked")
+        T existing = (T) POOL.putIfAbsent(clazz, newInstance.get());
+        if(existing != null)
+            return existing;
+        indexSupertypes(clazz);
         return newInstance.get();
     }
 
     public <T> void putIfNotExist(Class<? extends T> clazz, T instance){
-        if(!POOL.containsKey(clazz))
-            POOL.put(clazz, instance);
+        if(POOL.putIfAbsent(clazz, instance) == null)
+            indexSupertypes(clazz);
     }
     public <T> void put(Class<? extends T> clazz, T instance){
         POOL.put(clazz, instance);
+        indexSupertypes(clazz);
     }
 
     public <T> void putIfNotExist(T instance){
-        if(!POOL.containsKey(instance.getClass()))
-            POOL.put(instance.getClass(), instance);
+        putIfNotExist(instance.getClass(), instance);
     }
     public <T> void put(T instance){
-        POOL.put(instance.getClass(), instance);
+        put(instance.getClass(), instance);
     }
 
     public boolean hasKey(Class<?> type){
@@ -54,23 +68,30 @@ public class ObjectPool {
     }
 
     public boolean hasInstanceOf(Class<?> type){
-        if(hasKey(type)) return true; // O(1) first
-        for(Class<?> clazz : POOL.keySet()){
-            if(type.isAssignableFrom(clazz) || type.equals(clazz))
-                return true;
-        }
-        return false;
+        return hasKey(type) || SUPERTYPES.containsKey(type);
     }
-    
+
     /**
      * @return null if not found
      */
     public Object getInstanceOf(Class<?> type){
-        if(hasKey(type)) return get(type); // O(1) first
-        for(Class<?> clazz : POOL.keySet()){
-            if(type.isAssignableFrom(clazz) || type.equals(clazz))
-                return POOL.get(clazz);
+        Object instance = POOL.get(type);
+        if(instance != null) return instance;
+        Class<?> key = SUPERTYPES.get(type);
+        return key == null? null : POOL.get(key);
+    }
+
+    private void indexSupertypes(Class<?> clazz){
+        for(Class<?> type = clazz; type != null; type = type.getSuperclass()){
+            SUPERTYPES.putIfAbsent(type, clazz);
+            indexInterfaces(type, clazz);
+        }
+    }
+
+    private void indexInterfaces(Class<?> type, Class<?> key){
+        for(Class<?> interfaceType : type.getInterfaces()){
+            SUPERTYPES.putIfAbsent(interfaceType, key);
+            indexInterfaces(interfaceType, key);
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.vincentcodes.webserver.helper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks one by one in submission order on another (shared)
+ * executor, without a thread of its own. One task is run per turn,
+ * so that other queues sharing the executor are not starved.
+ * <p>
+ * Exceptions thrown by tasks are printed, the rest of the tasks
+ * are still run.
+ */
+public class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private boolean scheduled = false;
+    private boolean shutdown = false;
+
+    public SerialExecutor(Executor executor){
+        this.executor = executor;
+    }
+
+    /**
+     * Tasks submitted after {@link #shutdown()} are dropped
+     */
+    @Override
+    public void execute(Runnable task){
+        synchronized(tasks){
+            if(shutdown)
+                return;
+            tasks.add(task);
+            if(scheduled)
+                return;
+            scheduled = true;
+        }
+        schedule();
+    }
+
+    /**
+     * Drops the tasks which are not yet run. The running one (if any)
+     * is not interrupted.
+     */
+    public void shutdown(){
+        synchronized(tasks){
+            shutdown = true;
+            tasks.clear();
+        }
+    }
+
+    public boolean isShutdown(){
+        synchronized(tasks){
+            return shutdown;
+        }
+    }
+
+    private void schedule(){
+        try{
+            executor.execute(this::runNext);
+        }catch(RejectedExecutionException e){
+            // the shared executor is shutting down, nothing will be run anymore
+            shutdown();
+            synchronized(tasks){
+                scheduled = false;
+            }
+        }
+    }
+
+    private void runNext(){
+        Runnable task;
+        synchronized(tasks){
+            task = tasks.poll();
+        }
+        if(task != null){
+            try{
+                task.run();
+            }catch(RuntimeException e){
+                e.printStackTrace();
+            }
+        }
+        synchronized(tasks){
+            if(tasks.isEmpty()){
+                scheduled = false;
+                return;
+            }
+        }
+        schedule();
+    }
+}
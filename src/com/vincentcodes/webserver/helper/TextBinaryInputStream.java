@@ -21,12 +21,12 @@ public class TextBinaryInputStream extends InputStream{
      * <b>Caution!</b>
      * <p>
      * By using this class, it will automatically convert InputStream 
-     * into BufferedInputStream if it is not one. Be very careful 
-     * when you use this class.
+     * into BufferedInputStream if it does not support mark (ie. it is
+     * not buffered). Be very careful when you use this class.
      * @param is
      */
     public TextBinaryInputStream(InputStream is){
-        if(!(is instanceof BufferedInputStream)){
+        if(!is.markSupported()){
             BufferedInputStream bis = new BufferedInputStream(is);
             this.is = bis;
         }else{
@@ -47,6 +47,19 @@ public class TextBinaryInputStream extends InputStream{
     public int read() throws IOException {
         return is.read();
     }
+
+    /**
+     * Reads from the underlying stream directly instead of byte by byte
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return is.read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return is.available();
+    }
     
     /**
      * Ignores Carriage Return ('\r') by default.
@@ -60,13 +73,13 @@ public class TextBinaryInputStream extends InputStream{
             return null;
         for(;;byteRead = read()){
             if(byteRead == -1) 
-                return new String(baos.toByteArray()).intern();
+                return new String(baos.toByteArray());
             if(byteRead != '\r' && byteRead != '\n')
                 baos.write(byteRead);
             if(byteRead == '\n')
                 break;
         }
-        return new String(baos.toByteArray()).intern();
+        return new String(baos.toByteArray());
     }
 
     public String readUntil(char c) throws IOException {
@@ -0,0 +1,116 @@
+package com.vincentcodes.webserver.helper;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.vincentcodes.webserver.WebServer;
+
+/**
+ * Creates the threads and executors used by the server (connections,
+ * http2 streams, tunnels, websocket checkers).
+ * <p>
+ * Virtual threads are used if enabled and the JVM supports them
+ * (Java 21+). They are looked up using reflection because the server
+ * is compiled for Java 11. A blocked virtual thread does not hold an OS
+ * thread, hence the thread pools become unbounded in this mode.
+ */
+public class ThreadProvider {
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+
+    private static volatile boolean useVirtualThreads = false;
+    private static volatile ThreadFactory virtualThreadFactory;
+
+    public static boolean isVirtualThreadSupported(){
+        return OF_VIRTUAL != null && NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @return whether virtual threads are used from now on
+     */
+    public static boolean setUseVirtualThreads(boolean useVirtualThreads){
+        if(useVirtualThreads && !isVirtualThreadSupported()){
+            WebServer.logger.warn("Virtual threads require Java 21+ (running " + System.getProperty("java.version") + "), using platform threads instead");
+            useVirtualThreads = false;
+        }
+        if(useVirtualThreads && virtualThreadFactory == null)
+            virtualThreadFactory = createVirtualThreadFactory();
+        ThreadProvider.useVirtualThreads = useVirtualThreads;
+        return useVirtualThreads;
+    }
+
+    public static boolean useVirtualThreads(){
+        return useVirtualThreads;
+    }
+
+    /**
+     * @param nThreads ignored if virtual threads are used. Every task gets its own thread.
+     */
+    public static ExecutorService newFixedThreadPool(int nThreads){
+        if(useVirtualThreads)
+            return newVirtualThreadPerTaskExecutor();
+        return Executors.newFixedThreadPool(nThreads);
+    }
+
+    public static ExecutorService newCachedThreadPool(){
+        if(useVirtualThreads)
+            return newVirtualThreadPerTaskExecutor();
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Tasks are still run one by one in submission order
+     */
+    public static ExecutorService newSingleThreadExecutor(){
+        if(useVirtualThreads)
+            return Executors.newSingleThreadExecutor(virtualThreadFactory);
+        return Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Platform threads are created as daemon threads
+     * @return a thread which is not yet started
+     */
+    public static Thread newThread(String name, Runnable task){
+        Thread thread;
+        if(useVirtualThreads){
+            thread = virtualThreadFactory.newThread(task); // always daemon
+        }else{
+            thread = new Thread(task);
+            thread.setDaemon(true);
+        }
+        thread.setName(name);
+        return thread;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(){
+        try{
+            return (ExecutorService)NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Thread.ofVirtual().factory()
+     */
+    private static ThreadFactory createVirtualThreadFactory(){
+        try{
+            Object builder = OF_VIRTUAL.invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory)factory.invoke(builder);
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException("Cannot create virtual thread factory", e);
+        }
+    }
+
+    private static Method findMethod(Class<?> clazz, String name){
+        try{
+            return clazz.getMethod(name);
+        }catch(NoSuchMethodException e){
+            return null;
+        }
+    }
+}
@@ -1,17 +1,58 @@
 package com.vincentcodes.webserver.http2;
 
-import java.util.ArrayList;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * The newest entry has the smallest index (ie. baseIndex). Entries are
+ * stored in a circular buffer, the newest entry for each name and each
+ * name-value pair is looked up in a hash map.
+ * <p>
+ * Entries are evicted from the oldest when the size of the table is
+ * over {@link #getMaxSize()}.
+ * @see https://tools.ietf.org/html/rfc7541#section-2.3.2
+ * @see https://tools.ietf.org/html/rfc7541#section-4
+ */
 public class DynamicTable implements Http2Table{
-    private ArrayList<Http2TableEntry> queue;
+    /**
+     * @see https://tools.ietf.org/html/rfc7541#section-4.1
+     */
+    public static final int ENTRY_OVERHEAD = 32;
+
     private Http2Configuration config;
     private int baseIndex;
 
+    private Http2TableEntry[] entries;
+    private int[] entrySizes;
+    /**
+     * Position of the oldest entry in the buffer
+     */
+    private int tail = 0;
+    private int count = 0;
+    /**
+     * Number of entries ever added. The n-th added entry (counting from 0)
+     * has the sequence number n.
+     */
+    private int addedCount = 0;
+    private int sizeInBytes = 0;
+
+    private final int maxSizeLimit;
+    private int maxSize;
+
+    private Map<String, Integer> nameIndex = new HashMap<>();
+    private Map<FieldKey, Integer> fieldIndex = new HashMap<>();
+
+    /**
+     * @param config the max size of the table is {@link Http2Configuration#getHeaderTableSize()}
+     * at the time of creation, which is also the max value of {@link #setMaxSize(int)}
+     */
     public DynamicTable(Http2Configuration config, int baseIndex){
-        queue = new ArrayList<>();
         this.baseIndex = baseIndex;
         this.config = config;
+        this.maxSizeLimit = config.getHeaderTableSize();
+        this.maxSize = maxSizeLimit;
+        this.entries = new Http2TableEntry[16];
+        this.entrySizes = new int[16];
     }
 
     @Override
@@ -19,15 +60,32 @@ public class DynamicTable implements Http2Table{
         return baseIndex;
     }
 
+    /**
+     * An entry larger than the max size empties the table and is not added.
+     */
     public void addHeader(Http2TableEntry entry) {
-        queue.add(0, entry);
-        trimToSize();
+        int entrySize = entry.size() + ENTRY_OVERHEAD;
+        evictUntil(maxSize - entrySize);
+        if(entrySize > maxSize)
+            return;
+
+        if(count == entries.length)
+            grow();
+        int position = (tail + count) & (entries.length-1);
+        entries[position] = entry;
+        entrySizes[position] = entrySize;
+        count++;
+        sizeInBytes += entrySize;
+
+        int sequence = addedCount++;
+        nameIndex.put(entry.getName(), sequence);
+        fieldIndex.put(new FieldKey(entry.getName(), entry.getValue()), sequence);
     }
-    
+
     /**
      * Add an entry into the table (queue)
-     * @return the entry which is being added into the table 
-     * (if this is a static table, changes will not be made 
+     * @return the entry which is being added into the table
+     * (if this is a static table, changes will not be made
      * and returns <code>null</code>)
      */
     public Http2TableEntry addHeader(String name, String value){
@@ -43,21 +101,20 @@ public class DynamicTable implements Http2Table{
      */
     @Override
     public Http2TableEntry getEntry(int index) {
-        if(index < baseIndex || index  >= queue.size() + baseIndex)
+        if(index < baseIndex || index  >= count + baseIndex)
             return null;
-        return queue.get(index - baseIndex);
+        // the newest entry is at (tail + count-1)
+        return entries[(tail + count-1 - (index - baseIndex)) & (entries.length-1)];
     }
 
     @Override
     public Http2TableEntry getFirstEntry(String name) {
-        Optional<Http2TableEntry> res = queue.stream().filter(entry -> entry.getName().equals(name)).findFirst();
-        return res.isPresent()? res.get() : null;
+        return getEntry(getFirstEntryIndex(name));
     }
 
     @Override
     public Http2TableEntry getFirstEntry(String name, String value){
-        Optional<Http2TableEntry> res = queue.stream().filter(entry -> entry.getName().equals(name) && entry.getValue().equals(value)).findFirst();
-        return res.isPresent()? res.get() : null;
+        return getEntry(getFirstEntryIndex(name, value));
     }
 
     /**
@@ -65,12 +122,7 @@ public class DynamicTable implements Http2Table{
      */
     @Override
     public int getFirstEntryIndex(String name) {
-        for(int i = 0; i < queue.size(); i++){
-            if(queue.get(i).getName().equals(name)){
-                return i + baseIndex;
-            }
-        }
-        return -1;
+        return toIndex(nameIndex.get(name));
     }
 
     /**
@@ -78,12 +130,7 @@ public class DynamicTable implements Http2Table{
      */
     @Override
     public int getFirstEntryIndex(String name, String value) {
-        for(int i = 0; i < queue.size(); i++){
-            if(queue.get(i).getName().equals(name) && queue.get(i).getValue().equals(value)){
-                return i + baseIndex;
-            }
-        }
-        return -1;
+        return toIndex(fieldIndex.get(new FieldKey(name, value)));
     }
 
     public Http2Configuration getConfig(){
@@ -91,32 +138,113 @@ public class DynamicTable implements Http2Table{
     }
 
     /**
+     * Sum of the sizes of the entries, each has an overhead of 32 bytes
      * @see https://tools.ietf.org/html/rfc7541#section-4.1
      */
     public int sizeInBytes(){
-        return queue.stream().mapToInt(entry -> entry.size()).sum() + 32;
+        return sizeInBytes;
     }
 
     /**
      * Get number of entries
      */
     public int size(){
-        return queue.size();
+        return count;
+    }
+
+    public int getMaxSize(){
+        return maxSize;
+    }
+
+    /**
+     * The max size given by {@link Http2Configuration#getHeaderTableSize()}
+     */
+    public int getMaxSizeLimit(){
+        return maxSizeLimit;
+    }
+
+    /**
+     * Changes the max size of the table (eg. Dynamic Table Size Update).
+     * This can cause entries to be evicted.
+     * @throws IllegalArgumentException if maxSize is larger than {@link #getMaxSizeLimit()}
+     * @see https://tools.ietf.org/html/rfc7541#section-4.3
+     */
+    public void setMaxSize(int maxSize){
+        if(maxSize < 0 || maxSize > maxSizeLimit)
+            throw new IllegalArgumentException("Table size " + maxSize + " is not within 0-" + maxSizeLimit);
+        this.maxSize = maxSize;
+        evictUntil(maxSize);
     }
 
     public void trimToSize(){
-        trimToSize(config.getHeaderTableSize());
+        trimToSize(maxSize);
     }
 
     /**
-     * This can cause entries to be evicted
-     * @param maxSize the new max size of the table
+     * This can cause entries to be evicted. The max size of the table is
+     * not changed.
+     * @param maxSize size of the table after trimming
      */
     public void trimToSize(int maxSize){
-        int original = sizeInBytes();
-        int decrease = 0;
-        while(original - decrease > (maxSize + 32)){
-            decrease += queue.remove(queue.size()-1).size();
+        evictUntil(maxSize);
+    }
+
+    private void evictUntil(int size){
+        while(count > 0 && sizeInBytes > size){
+            Http2TableEntry entry = entries[tail];
+            int sequence = addedCount - count;
+            sizeInBytes -= entrySizes[tail];
+            entries[tail] = null;
+            tail = (tail+1) & (entries.length-1);
+            count--;
+
+            // a newer entry with the same name / field may exist
+            nameIndex.remove(entry.getName(), sequence);
+            fieldIndex.remove(new FieldKey(entry.getName(), entry.getValue()), sequence);
+        }
+    }
+
+    private void grow(){
+        Http2TableEntry[] newEntries = new Http2TableEntry[entries.length * 2];
+        int[] newEntrySizes = new int[entries.length * 2];
+        for(int i = 0; i < count; i++){
+            newEntries[i] = entries[(tail + i) & (entries.length-1)];
+            newEntrySizes[i] = entrySizes[(tail + i) & (entries.length-1)];
+        }
+        entries = newEntries;
+        entrySizes = newEntrySizes;
+        tail = 0;
+    }
+
+    /**
+     * @param sequence nullable
+     */
+    private int toIndex(Integer sequence){
+        if(sequence == null)
+            return -1;
+        return baseIndex + (addedCount-1 - sequence);
+    }
+
+    private static class FieldKey {
+        final String name;
+        final String value;
+
+        FieldKey(String name, String value){
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj){
+            if(!(obj instanceof FieldKey))
+                return false;
+            FieldKey other = (FieldKey)obj;
+            return name.equals(other.name) && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode(){
+            return name.hashCode() * 31 + value.hashCode();
         }
     }
 }
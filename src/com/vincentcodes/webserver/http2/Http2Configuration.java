@@ -18,7 +18,7 @@ public class Http2Configuration {
      * This flag must not be sent from a server.
      */
     private int SETTINGS_ENABLE_PUSH = 1; // value default: 1 (enable)
-    private int SETTINGS_MAX_CONCURRENT_STREAMS = WebServer.MAX_HTTP2_STREAMS_INDEX; // value default: unlimited
+    private int SETTINGS_MAX_CONCURRENT_STREAMS = WebServer.MAX_HTTP2_CONCURRENT_STREAMS; // value default: unlimited (we use 128)
     
     /**
      * Indicates the sender's initial window size (in octets) for stream-level flow control.
@@ -6,8 +6,9 @@ import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.Socket;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
 import com.vincentcodes.net.UpgradableSocket;
 import com.vincentcodes.webserver.ServerThreadUtils;
@@ -19,13 +20,19 @@ import com.vincentcodes.webserver.component.response.ResponseBuilder;
 import com.vincentcodes.webserver.dispatcher.HttpRequestDispatcher;
 import com.vincentcodes.webserver.exception.CannotParseRequestException;
 import com.vincentcodes.webserver.helper.IOContainer;
+import com.vincentcodes.webserver.helper.ThreadProvider;
+import com.vincentcodes.webserver.http2.constants.ErrorCodes;
+import com.vincentcodes.webserver.http2.hpack.HeaderIndexingPolicy;
 import com.vincentcodes.webserver.http2.hpack.HpackDecoder;
 import com.vincentcodes.webserver.http2.hpack.HpackEncoder;
+import com.vincentcodes.webserver.http2.types.DataFrame;
 import com.vincentcodes.webserver.http2.types.GoAwayFrame;
+import com.vincentcodes.webserver.http2.types.HeadersFrame;
 import com.vincentcodes.webserver.http2.types.PingFrame;
 import com.vincentcodes.webserver.http2.types.PriorityFrame;
 import com.vincentcodes.webserver.http2.types.SettingsFrame;
 import com.vincentcodes.webserver.http2.types.WindowUpdateFrame;
+import com.vincentcodes.webserver.util.FutureUtils;
 
 // TODO: stream dependency, errors, are still not implemented yet.
 /**
@@ -44,8 +51,14 @@ public class Http2Connection {
     private Http2Configuration config;
     private Http2RequestParser http2Parser;
     private Http2FrameGenerator frameGenerator;
+    private HpackEncoder hpackEncoder;
 
-    private ExecutorService executorService = Executors.newFixedThreadPool(WebServer.HTTP2_HANDLER_THREADS);
+    /**
+     * Runs handlers and the sends of all streams. It is usually shared by
+     * all connections of a server.
+     */
+    private final ExecutorService executorService;
+    private final boolean ownsExecutorService;
 
     private OutputStream os;
     private InputStream is;
@@ -53,10 +66,23 @@ public class Http2Connection {
     private Object sendLock = new Object();
     private boolean pingSent = false;
 
+    /**
+     * The connection gets a thread pool of its own, which is shut down
+     * once the connection ends.
+     */
     public Http2Connection(IOContainer ioContainer, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher){
+        this(ioContainer, requestValidator, requestDispatcher, null);
+    }
+
+    /**
+     * @param executorService shared by connections, it is not shut down by 
+     * this connection. If null, the connection gets a thread pool of its own.
+     */
+    public Http2Connection(IOContainer ioContainer, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher, ExecutorService executorService){
+        this.ownsExecutorService = executorService == null;
+        this.executorService = executorService != null? executorService : ThreadProvider.newFixedThreadPool(WebServer.HTTP2_HANDLER_THREADS);
         this.ioContainer = ioContainer;
         this.connection = ioContainer.getSocket();
-        this.streamStore = new StreamStore();
         this.requestValidator = requestValidator;
         this.requestDispatcher = requestDispatcher;
     }
@@ -68,13 +94,16 @@ public class Http2Connection {
         is = ioContainer.getInputStream();
         os = ioContainer.getOutputStream();
         config = new Http2Configuration();
+        // config is overwritten by the client's settings later
+        streamStore = new StreamStore(config.getMaxConcurrentStreams());
         
         // "the request and response dynamic tables are separate."
         // https://tools.ietf.org/html/rfc7541#section-2.2
         HpackDecoder decoder = new HpackDecoder(new DynamicTable(config, StaticTable.instance.size()+1));
-        HpackEncoder encoder = new HpackEncoder(new DynamicTable(config, StaticTable.instance.size()+1));
+        // header blocks are encoded in the order they are sent, see Http2Frame.LAZY_LENGTH
+        hpackEncoder = new HpackEncoder(new DynamicTable(config, StaticTable.instance.size()+1), HeaderIndexingPolicy.RESPONSE);
         
-        frameGenerator = new Http2FrameGenerator(encoder, config);
+        frameGenerator = new Http2FrameGenerator(hpackEncoder, config);
         http2Parser = new Http2RequestParser(decoder, config);
     }
 
@@ -86,7 +115,7 @@ public class Http2Connection {
         if(WebServer.lowLevelDebugMode && (
             !(frame.payload instanceof WindowUpdateFrame) 
             || (frame.payload instanceof WindowUpdateFrame && WebServer.displayWindowUpdates)
-        )) WebServer.logger.debug("Recv: " + Http2Frame.getString(frame));
+        )) WebServer.logger.debug(() -> "Recv: " + Http2Frame.getString(frame));
 
         Http2RequestConverter converter = stream.getConverter();
         
@@ -97,32 +126,16 @@ public class Http2Connection {
             if(optRequest.isPresent()){
                 // TODO: new thread here (check for problems)
                 executorService.submit(()->{
-                    try(HttpRequest req = optRequest.get()){
-                        req.setSocket(this.ioContainer);
-
-                        WebServer.logger.debug(req.toHttp2String());
-                        ResponseBuilder response = handleHttpRequest(req);
-                        
-                        if(response.getHeaders().getHeader("X-Vws-Raw-Tunnel") != null){
-                            try {
-                                ServerThreadUtils.socketTunnelInitialization(req, response, (remoteServerRes, os)->{
-                                    try {
-                                        converter.streamResponseToStream(remoteServerRes, -1, stream);
-                                    } catch (InvocationTargetException | IOException e) {
-                                        throw new RuntimeException(e);
-                                    }
-                                });
-                            } catch (InterruptedException e) {
-                                e.printStackTrace();
-                            }
-                            return;
-                        }
-                        
-                        converter.streamResponseToStream(response, -1, stream);
-                    }catch(IOException | InvocationTargetException e){
-                        e.printStackTrace();
-                        throw new RuntimeException(e);
-                    }
+                    HttpRequest req = optRequest.get();
+                    req.setSocket(this.ioContainer);
+
+                    WebServer.logger.debug(req::toHttp2String);
+                    // handlers which complete later (eg. return a CompletableFuture) do not keep this thread
+                    CompletableFuture<ResponseBuilder> pendingResponse = handleHttpRequest(req);
+                    BiConsumer<ResponseBuilder, Throwable> onComplete = (response, error) -> respond(req, response, error, stream);
+                    if(pendingResponse.isDone())
+                        pendingResponse.whenComplete(onComplete);
+                    else pendingResponse.whenCompleteAsync(onComplete, executorService);
                 });
             }
             return;
@@ -132,6 +145,7 @@ public class Http2Connection {
             if((frame.flags & SettingsFrame.ACK) == 0){
                 SettingsFrame settings = (SettingsFrame)frame.payload;
                 config.apply(settings);
+                hpackEncoder.setMaxTableSize(config.getHeaderTableSize());
                 stream.send(frameGenerator.settingsFrameAck(-1));
             }
         }else if(frame.payload instanceof WindowUpdateFrame){
@@ -158,7 +172,7 @@ public class Http2Connection {
         if(WebServer.lowLevelDebugMode && (
             !(frame.payload instanceof WindowUpdateFrame) 
             || (frame.payload instanceof WindowUpdateFrame && WebServer.displayWindowUpdates)
-        )) WebServer.logger.debug("Send: " + Http2Frame.getString(frame));
+        )) WebServer.logger.debug(() -> "Send: " + Http2Frame.getString(frame));
         
         synchronized(sendLock){
             Http2Frame.streamBytesTo(frame, os);
@@ -179,39 +193,134 @@ public class Http2Connection {
      * Make sure {@link #setup()} is already called.
      */
     public void takeover() throws IOException, CannotParseRequestException, InvocationTargetException{
-        streamStore.addStream(new Http2Stream(0, this::universalInputHandler, this::universalOutputHandler, frameGenerator));
-        streamStore.get(0).send(frameGenerator.settingsFrame(0));
-        initConnectionChecker();
-
-        while(isConnected()){
-            Http2Frame requestFrame = http2Parser.parse(is);
-            Http2Stream stream = findCorrespondingStream(requestFrame);
-            stream.queueUpClientFrames(requestFrame);
-            stream.processQueuedUpFrames();
+        try{
+            Http2Stream connectionStream = newStream(0);
+            streamStore.addStream(connectionStream);
+            connectionStream.send(frameGenerator.settingsFrame(0));
+            initConnectionChecker();
+
+            while(isConnected()){
+                Http2Frame requestFrame = http2Parser.parse(is);
+                Http2Stream stream = findCorrespondingStream(requestFrame);
+                if(stream == null)
+                    continue;
+                stream.queueUpClientFrames(requestFrame);
+                stream.processQueuedUpFrames();
+            }
+        }finally{
+            streamStore.closeAll();
+            if(ownsExecutorService)
+                executorService.shutdown();
         }
     }
 
+    private Http2Stream newStream(int streamId){
+        Http2Stream stream = new Http2Stream(streamId, this::universalInputHandler, this::universalOutputHandler, frameGenerator, executorService);
+        stream.setCloseListener(streamStore::removeStream);
+        return stream;
+    }
+
+    /**
+     * A stream is only opened by a HeadersFrame with a new stream id.
+     * @return null if the frame is not processed by any stream
+     * @see https://tools.ietf.org/html/rfc7540#section-5.1
+     */
     private Http2Stream findCorrespondingStream(Http2Frame requestFrame) throws InvocationTargetException, IOException{
         Optional<Http2Stream> optStream = streamStore.findStream(requestFrame);
-        Http2Stream stream;
-        if(optStream.isPresent()){
-            stream = optStream.get();
-        }else{
-            stream = new Http2Stream(requestFrame.streamIdentifier, this::universalInputHandler, this::universalOutputHandler, frameGenerator);
-            streamStore.addStream(stream);
+        if(optStream.isPresent())
+            return optStream.get();
+
+        int streamId = requestFrame.streamIdentifier;
+        if(streamStore.isClosed(streamId)){
+            // WindowUpdate, Priority and RstStream frames may still arrive after a stream is closed
+            if(requestFrame.payload instanceof HeadersFrame || requestFrame.payload instanceof DataFrame)
+                sendToConnection(frameGenerator.rstStreamFrame(streamId, ErrorCodes.STREAM_CLOSED));
+            return null;
+        }
+        if(!(requestFrame.payload instanceof HeadersFrame)){
+            // eg. PriorityFrame for an idle stream
+            return null;
+        }
+
+        Http2Stream stream = newStream(streamId);
+        if(!streamStore.addStream(stream)){
+            sendToConnection(frameGenerator.rstStreamFrame(streamId, ErrorCodes.REFUSED_STREAM));
+            return null;
         }
         return stream;
     }
 
-    private ResponseBuilder handleHttpRequest(HttpRequest request) throws InvocationTargetException{
+    /**
+     * Send a frame without going through a stream (eg. for streams which 
+     * are closed or refused)
+     */
+    private void sendToConnection(Http2Frame frame) throws IOException, InvocationTargetException{
+        universalOutputHandler(streamStore.findStream(0).get(), frame);
+    }
+
+    private CompletableFuture<ResponseBuilder> handleHttpRequest(HttpRequest request){
         if(!requestValidator.requestIsValid(request)){
             request.invalid();
         }
 
         if(request.isValid()){
-            return requestDispatcher.dispatchObjectToHandlers(request);
+            return requestDispatcher.dispatchAsync(request);
         }
-        return HttpResponses.generate400Response();
+        return CompletableFuture.completedFuture(HttpResponses.generate400Response());
+    }
+
+    /**
+     * Sends the response of a request to its stream.
+     * @param request [be closed]
+     * @param error not null if the response cannot be created
+     */
+    private void respond(HttpRequest request, ResponseBuilder response, Throwable error, Http2Stream stream){
+        boolean tunnelStarted = false;
+        try{
+            if(error != null){
+                FutureUtils.unwrap(error).printStackTrace();
+                return;
+            }
+            if(response.getHeaders().getHeader("X-Vws-Raw-Tunnel") != null){
+                // tunnels are long-lived, they must not hold a thread of the shared pool
+                ThreadProvider.newThread("http2-tunnel-" + stream.getStreamId(), () -> runTunnel(request, response, stream)).start();
+                tunnelStarted = true;
+                return;
+            }
+
+            stream.getConverter().streamResponseToStream(response, -1, stream);
+        }catch(IOException | InvocationTargetException e){
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }finally{
+            if(!tunnelStarted)
+                closeQuietly(request);
+        }
+    }
+
+    /**
+     * @param request [be closed]
+     */
+    private void runTunnel(HttpRequest request, ResponseBuilder response, Http2Stream stream){
+        try{
+            ServerThreadUtils.socketTunnelInitialization(request, response, (remoteServerRes, os)->{
+                try {
+                    stream.getConverter().streamResponseToStream(remoteServerRes, -1, stream);
+                } catch (InvocationTargetException | IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }catch(IOException | InterruptedException e){
+            e.printStackTrace();
+        }finally{
+            closeQuietly(request);
+        }
+    }
+
+    private static void closeQuietly(HttpRequest request){
+        try{
+            request.close();
+        }catch(IOException ignored){}
     }
 
     public UpgradableSocket getConnection() {
@@ -228,28 +337,24 @@ public class Http2Connection {
     }
     
     private Thread initConnectionChecker(){
-        Thread connectionChecker = new Thread("Http2 Connection Checker"){
-            public void run(){
-                try{
-                    UpgradableSocket socket = ioContainer.getSocket();
-                    while(!socket.isClosed()){
-                        Thread.sleep(WebServer.WEBSOCKET_PING_INTERVAL_MILSEC);
-                        if(pingSent) socket.close();
-                        sendPing();
-                    }
-                }catch(Exception e){
-                    e.printStackTrace();
+        Thread connectionChecker = ThreadProvider.newThread("Http2 Connection Checker", () -> {
+            try{
+                UpgradableSocket socket = ioContainer.getSocket();
+                while(!socket.isClosed()){
+                    Thread.sleep(WebServer.WEBSOCKET_PING_INTERVAL_MILSEC);
+                    if(pingSent) socket.close();
+                    sendPing();
                 }
-                return;
+            }catch(Exception e){
+                e.printStackTrace();
             }
-        };
-        connectionChecker.setDaemon(true);
+        });
         connectionChecker.start();
         return connectionChecker;
     }
 
     private void sendPing() throws IOException, InvocationTargetException{
-        universalOutputHandler(streamStore.findStream(0).get(), frameGenerator.pingFrame(false));
+        sendToConnection(frameGenerator.pingFrame(false));
         pingSent = true;
     }
 
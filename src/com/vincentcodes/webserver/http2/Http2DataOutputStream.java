@@ -0,0 +1,78 @@
+package com.vincentcodes.webserver.http2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+/**
+ * Sends bytes written to it as DATA frames of a stream. It is used for
+ * bodies whose length is unknown. Closing it ends the stream.
+ */
+class Http2DataOutputStream extends OutputStream {
+    private final Http2Stream stream;
+    private final Http2FrameGenerator frameGenerator;
+    private final byte[] buffer;
+    private int count = 0;
+    private boolean closed = false;
+
+    /**
+     * @param frameSize max size of the DATA frames sent
+     */
+    public Http2DataOutputStream(Http2Stream stream, Http2FrameGenerator frameGenerator, int frameSize){
+        this.stream = stream;
+        this.frameGenerator = frameGenerator;
+        this.buffer = new byte[frameSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException{
+        if(count == buffer.length)
+            sendFrame(false);
+        buffer[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException{
+        while(len > 0){
+            if(count == buffer.length)
+                sendFrame(false);
+            int size = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, size);
+            count += size;
+            off += size;
+            len -= size;
+        }
+    }
+
+    /**
+     * Sends the buffered bytes as a DATA frame immediately
+     */
+    @Override
+    public void flush() throws IOException{
+        if(count > 0)
+            sendFrame(false);
+    }
+
+    /**
+     * Sends the remaining bytes with END_STREAM flag set
+     */
+    @Override
+    public void close() throws IOException{
+        if(closed)
+            return;
+        sendFrame(true);
+        closed = true;
+    }
+
+    private void sendFrame(boolean endStream) throws IOException{
+        if(closed)
+            throw new IOException("Stream has already ended");
+        try{
+            stream.send(frameGenerator.dataFrame(Arrays.copyOf(buffer, count), -1, endStream));
+        }catch(InvocationTargetException e){
+            throw new IOException(e);
+        }
+        count = 0;
+    }
+}
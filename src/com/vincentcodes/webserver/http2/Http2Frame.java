@@ -18,6 +18,13 @@ import com.vincentcodes.webserver.util.ByteUtils;
  * @see https://tools.ietf.org/html/rfc7540#section-4.1
  */
 public class Http2Frame {
+    /**
+     * The payload is serialized when the frame is sent, payloadLength is
+     * set to {@link Http2FrameType#length()} by then. eg. header blocks 
+     * must be encoded in the order they are sent.
+     */
+    public static final int LAZY_LENGTH = -1;
+
     public int payloadLength; // 3 bytes are used
     public byte type;
     public byte flags;
@@ -25,6 +32,7 @@ public class Http2Frame {
     public Http2FrameType payload;
 
     public static byte[] toBytes(Http2Frame frame){
+        resolveLength(frame);
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         try{
             byte[] length = ByteUtils.intToByteArray(frame.payloadLength);
@@ -39,6 +47,7 @@ public class Http2Frame {
     }
 
     public static void streamBytesTo(Http2Frame frame, OutputStream stream) throws IOException{
+        resolveLength(frame);
         byte[] length = ByteUtils.intToByteArray(frame.payloadLength);
         stream.write(new byte[]{length[1], length[2], length[3]});
         stream.write(frame.type);
@@ -48,6 +57,11 @@ public class Http2Frame {
             frame.payload.streamBytesTo(stream);
     }
 
+    private static void resolveLength(Http2Frame frame){
+        if(frame.payloadLength == LAZY_LENGTH)
+            frame.payloadLength = frame.payload != null? frame.payload.length() : 0;
+    }
+
     // This method hinders performance (you may comment out all toString methods)
     public static String getString(Http2Frame frame){
         return String.format("{Http2Frame length: %d, type: %d, flags: %d, stream: %d, payload: %s}", frame.payloadLength, frame.type, frame.flags, frame.streamIdentifier, frame.payload);
@@ -1,7 +1,6 @@
 package com.vincentcodes.webserver.http2;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +17,7 @@ import com.vincentcodes.webserver.http2.types.PingFrame;
 import com.vincentcodes.webserver.http2.types.RstStreamFrame;
 import com.vincentcodes.webserver.http2.types.SettingsFrame;
 import com.vincentcodes.webserver.http2.types.WindowUpdateFrame;
+import com.vincentcodes.webserver.util.HttpDate;
 
 /**
  * A lightweight frame generator used to generate 
@@ -83,14 +83,14 @@ public class Http2FrameGenerator {
         listHeaders.add(new Http2TableEntry(":status", Integer.toString(status)));
         if(headers == null){
             listHeaders.add(new Http2TableEntry("server", WebServer.SERVER_NAME));
-            listHeaders.add(new Http2TableEntry("date", WebServer.DATE_FORMAT.format(new Date())));
+            listHeaders.add(new Http2TableEntry("date", HttpDate.now()));
             listHeaders.add(new Http2TableEntry("cache-control", "no-store"));
         }else{
             listHeaders.addAll(convertHeadersToEntries(headers));
         }
 
         headersFrame.headers = listHeaders;
-        frame.payloadLength = headersFrame.length();
+        frame.payloadLength = Http2Frame.LAZY_LENGTH;
         frame.payload = headersFrame;
 
         return frame;
@@ -122,7 +122,7 @@ public class Http2FrameGenerator {
         listHeaders.add(new Http2TableEntry("accept", "*/*"));
 
         headersFrame.headers = listHeaders;
-        frame.payloadLength = headersFrame.length();
+        frame.payloadLength = Http2Frame.LAZY_LENGTH;
         frame.payload = headersFrame;
 
         return frame;
@@ -9,6 +9,7 @@ import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
 import com.vincentcodes.webserver.component.body.HttpBodyStream;
 import com.vincentcodes.webserver.component.header.EntityInfo;
 import com.vincentcodes.webserver.component.header.HttpHeaders;
@@ -18,6 +19,7 @@ import com.vincentcodes.webserver.component.request.MultipartFormData;
 import com.vincentcodes.webserver.component.request.RequestParser;
 import com.vincentcodes.webserver.component.response.ResponseBuilder;
 import com.vincentcodes.webserver.helper.TextBinaryInputStream;
+import com.vincentcodes.webserver.http2.constants.ErrorCodes;
 import com.vincentcodes.webserver.http2.constants.FrameTypes;
 import com.vincentcodes.webserver.http2.errors.StreamError;
 import com.vincentcodes.webserver.http2.types.ContinuationFrame;
@@ -148,7 +150,10 @@ public class Http2RequestConverter {
      */
     public List<Http2Frame> fromResponse(ResponseBuilder response, int maxDataFrameAmount){
         List<Http2Frame> frames = new ArrayList<>();
-        if(response.getHeaders().getEntityInfo().getLength() > 0){
+        // chunked bodies are buffered here, use streamResponseToStream to avoid that
+        if(response.getHeaders().getEntityInfo().getLength() > 0 || response.getBody() instanceof HttpBodyChunkedStream){
+            if(response.getBody() instanceof HttpBodyChunkedStream)
+                removeHttp1Headers(response.getHeaders());
             // Make sure we send at least 10000 bytes to keep up with the streaming service.
             int dataSize = config.getMaxFrameSize()/2 < 10000? config.getMaxFrameSize() : config.getMaxFrameSize()/2;
             boolean endOfStream = false;
@@ -183,7 +188,9 @@ public class Http2RequestConverter {
      * Similar to {@link #fromResponse(ResponseBuilder, int)}, instead of buffering all frames, we send it out immediately
      */
     public void streamResponseToStream(ResponseBuilder response, int maxDataFrameAmount, Http2Stream stream) throws InvocationTargetException, IOException{
-        if(response.getHeaders().getEntityInfo().getLength() > 0){
+        if(response.getBody() instanceof HttpBodyChunkedStream){
+            streamChunkedResponseToStream(response, stream);
+        }else if(response.getHeaders().getEntityInfo().getLength() > 0){
             // Make sure we send at least 10000 bytes to keep up with the streaming service.
             int dataSize = config.getMaxFrameSize()/2 < 10000? config.getMaxFrameSize() : config.getMaxFrameSize()/2;
             boolean endOfStream = false;
@@ -205,6 +212,34 @@ public class Http2RequestConverter {
         }
     }
 
+    /**
+     * DATA frames are sent as soon as the body is flushed or a frame is full. 
+     * The stream is reset if the body cannot be produced.
+     */
+    private void streamChunkedResponseToStream(ResponseBuilder response, Http2Stream stream) throws InvocationTargetException, IOException{
+        int dataSize = config.getMaxFrameSize()/2 < 10000? config.getMaxFrameSize() : config.getMaxFrameSize()/2;
+        removeHttp1Headers(response.getHeaders());
+        stream.send(frameGenerator.responseHeadersFrame(response.getResponseCode(), response.getHeaders(), -1, true, false));
+
+        Http2DataOutputStream os = new Http2DataOutputStream(stream, frameGenerator, dataSize);
+        try{
+            response.getBody().streamBytesTo(os);
+        }catch(IOException e){
+            stream.send(frameGenerator.rstStreamFrame(-1, ErrorCodes.INTERNAL_ERROR));
+            throw e;
+        }
+        os.close();
+    }
+
+    /**
+     * Length of a chunked body is unknown. Connection-specific headers 
+     * are not allowed in HTTP/2 as well.
+     */
+    private static void removeHttp1Headers(HttpHeaders headers){
+        headers.getHeaders().remove("content-length");
+        headers.getHeaders().remove("transfer-encoding");
+    }
+
     /**
      * Clear the buffer
      */
@@ -5,10 +5,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.helper.SerialExecutor;
 import com.vincentcodes.webserver.http2.constants.StreamState;
 import com.vincentcodes.webserver.http2.types.DataFrame;
 import com.vincentcodes.webserver.http2.types.HeadersFrame;
@@ -50,7 +51,12 @@ public class Http2Stream {
     private Http2FrameGenerator frameGenerator;
     private Http2RequestConverter converter;
 
-    private ExecutorService executorService = Executors.newFixedThreadPool(1);
+    /**
+     * Frames held back by flow control are sent in order here. It does
+     * not own a thread, see {@link SerialExecutor}.
+     */
+    private SerialExecutor sendQueue;
+    private Consumer<Http2Stream> closeListener;
     
     /**
      * By using this constructor you are required to manually setup the stream. Otherwise,
@@ -59,9 +65,22 @@ public class Http2Stream {
     public Http2Stream(int streamId){
         this.state = StreamState.IDLE;
         this.streamId = streamId;
+        this.sendQueue = new SerialExecutor(Runnable::run);
     }
 
+    /**
+     * Frames held back by flow control are sent on the thread which 
+     * receives the WindowUpdateFrame.
+     */
     public Http2Stream(int streamId, StreamIOHandler inputHandler, StreamIOHandler outputHandler, Http2FrameGenerator frameGenerator){
+        this(streamId, inputHandler, outputHandler, frameGenerator, Runnable::run);
+    }
+
+    /**
+     * @param executor a (shared) executor where frames held back by flow control are sent
+     */
+    public Http2Stream(int streamId, StreamIOHandler inputHandler, StreamIOHandler outputHandler, Http2FrameGenerator frameGenerator, Executor executor){
+        this.sendQueue = new SerialExecutor(executor);
         this.state = StreamState.IDLE;
         this.streamId = streamId;
         this.maxClientWindow = frameGenerator.getConfig().getInitialWindowSize();
@@ -113,6 +132,13 @@ public class Http2Stream {
         this.outputHandler = outputHandler;
     }
 
+    /**
+     * @param closeListener called once when the stream becomes {@link StreamState#CLOSED}
+     */
+    public void setCloseListener(Consumer<Http2Stream> closeListener) {
+        this.closeListener = closeListener;
+    }
+
     public void processQueuedUpFrames() throws IOException, InvocationTargetException{
         while(framesToBeRead.size() > 0){
             process(framesToBeRead.poll());
@@ -169,7 +195,7 @@ public class Http2Stream {
      */
     public void sendQueuedUpFrames() throws InvocationTargetException, IOException{
         if(framesToBeSent.size() == 0 || currentServerWindow <= 0) return;
-        executorService.submit(()->{
+        sendQueue.execute(()->{
             if(state == StreamState.CLOSED) return;
             while(framesToBeSent.size() > 0 && currentServerWindow > 0){
                 try {
@@ -220,6 +246,13 @@ public class Http2Stream {
      * @see StreamState
      */
     private void transitionState(Http2Frame frame, boolean sending){
+        if(state == StreamState.CLOSED)
+            return;
+        // RST_STREAM closes the stream from any state
+        if(frame.payload instanceof RstStreamFrame){
+            onClosed();
+            return;
+        }
         // It is possible to idle -> open -> half closed in 1 frame
         if(state == StreamState.IDLE){
             if(frame.payload instanceof HeadersFrame){
@@ -236,29 +269,32 @@ public class Http2Stream {
             }
         }
         if(state == StreamState.HALF_CLOSED_REMOTE){
-            if(sending){
-                if((frame.flags & HeadersFrame.END_STREAM) > 0
-                || frame.payload instanceof RstStreamFrame){
-                    state = StreamState.CLOSED;
-                }
-            }else{
-                if(frame.payload instanceof RstStreamFrame){
-                    state = StreamState.CLOSED;
-                }
+            if(sending && (frame.flags & HeadersFrame.END_STREAM) > 0){
+                state = StreamState.CLOSED;
             }
         }
         if(state == StreamState.HALF_CLOSED_LOCAL){
-            if(sending){
-                if(frame.payload instanceof RstStreamFrame){
-                    state = StreamState.CLOSED;
-                }
-            }else{
-                if((frame.flags & HeadersFrame.END_STREAM) > 0
-                || frame.payload instanceof RstStreamFrame){
-                    state = StreamState.CLOSED;
-                }
+            if(!sending && (frame.flags & HeadersFrame.END_STREAM) > 0){
+                state = StreamState.CLOSED;
             }
         }
+        if(state == StreamState.CLOSED)
+            onClosed();
+    }
+
+    private void onClosed(){
+        state = StreamState.CLOSED;
+        sendQueue.shutdown();
+        if(closeListener != null)
+            closeListener.accept(this);
+    }
+
+    /**
+     * Frames held back by flow control are dropped. Nothing is sent
+     * to the client.
+     */
+    public void close(){
+        sendQueue.shutdown();
     }
 
     public String toString(){
@@ -1,31 +1,58 @@
 package com.vincentcodes.webserver.http2;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
-import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.http2.constants.StreamState;
 
 /**
- * Stores a bunch of streams in order
+ * Stores the streams of a connection by their id. Streams are removed
+ * once they are {@link StreamState#CLOSED closed} (see {@link #removeStream(Http2Stream)}),
+ * only the highest stream id ever added is remembered. Therefore, an id which
+ * is not larger than {@link #getHighestStreamId()} and cannot be found belongs
+ * to a closed stream.
+ * <p>
+ * It is an open addressing hash table (linear probing) keyed by the
+ * primitive stream id. All methods are thread-safe.
  */
 public class StreamStore {
-    private static final int MAX_CAP_INDEX = WebServer.MAX_HTTP2_STREAMS_INDEX;
-    private List<Http2Stream> streams;
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 16;
 
+    private final int maxConcurrentStreams;
+
+    private int[] ids;
+    private Http2Stream[] streams;
+    private int size = 0;
+    private int highestStreamId = EMPTY;
+
+    /**
+     * Unlimited number of concurrent streams
+     */
     public StreamStore(){
-        streams = new ArrayList<>();
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxConcurrentStreams streams (except stream 0) that can be
+     * stored at the same time. ie. SETTINGS_MAX_CONCURRENT_STREAMS sent to
+     * the client
+     */
+    public StreamStore(int maxConcurrentStreams){
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.ids = new int[INITIAL_CAPACITY];
+        this.streams = new Http2Stream[INITIAL_CAPACITY];
+        Arrays.fill(ids, EMPTY);
     }
 
     /**
      * @return empty there is none
      */
-    public Optional<Http2Stream> findStream(int id){
-        for(Http2Stream stream : streams){
-            if(stream.getStreamId() == id)
-                return Optional.of(stream);
-        }
-        return Optional.empty();
+    public synchronized Optional<Http2Stream> findStream(int id){
+        int slot = slotOf(id);
+        return slot == EMPTY? Optional.empty() : Optional.of(streams[slot]);
     }
 
     /**
@@ -35,32 +62,134 @@ public class StreamStore {
         return findStream(frame.streamIdentifier);
     }
 
-    public Http2Stream get(int i){
-        return streams.get(i);
+    /**
+     * @return true if a stream with this id was added and is removed already
+     */
+    public synchronized boolean isClosed(int id){
+        return id <= highestStreamId && slotOf(id) == EMPTY;
     }
 
     /**
+     * The id of the stream is remembered even if the stream is refused.
      * @param stream new stream
-     * @throws ArrayIndexOutOfBoundsException when list size > MAX capacity 
+     * @return false if the stream is refused, because there are already
+     * {@code maxConcurrentStreams} streams
      * @throws IllegalArgumentException new stream must have a larger stream id
      */
-    public void addStream(Http2Stream stream){
-        checkBounds();
-        checkIndex(stream);
-        streams.add(stream);
+    public synchronized boolean addStream(Http2Stream stream){
+        int id = stream.getStreamId();
+        if(id <= highestStreamId)
+            throw new IllegalArgumentException("New stream must have a larger stream id");
+        highestStreamId = id;
+        if(id != 0 && getActiveStreamCount() >= maxConcurrentStreams)
+            return false;
+
+        if((size+1) * 2 > ids.length)
+            resize(ids.length * 2);
+        int slot = hash(id) & (ids.length-1);
+        while(ids[slot] != EMPTY)
+            slot = (slot+1) & (ids.length-1);
+        ids[slot] = id;
+        streams[slot] = stream;
+        size++;
+        return true;
     }
-    
-    private void checkBounds(){
-        if(streams.size() > MAX_CAP_INDEX)
-            throw new ArrayIndexOutOfBoundsException("Cannot add more streams");
+
+    /**
+     * Nothing happens if the stream is not stored
+     */
+    public synchronized void removeStream(Http2Stream stream){
+        int slot = slotOf(stream.getStreamId());
+        if(slot == EMPTY || streams[slot] != stream)
+            return;
+        ids[slot] = EMPTY;
+        streams[slot] = null;
+        size--;
+
+        // shift back the entries after the slot, so that no entry is
+        // separated from its hash slot by an empty slot
+        int mask = ids.length-1;
+        int next = (slot+1) & mask;
+        while(ids[next] != EMPTY){
+            int home = hash(ids[next]) & mask;
+            // move it if its home is not within (slot, next] (cyclically)
+            if(((next - home) & mask) >= ((next - slot) & mask)){
+                ids[slot] = ids[next];
+                streams[slot] = streams[next];
+                ids[next] = EMPTY;
+                streams[next] = null;
+                slot = next;
+            }
+            next = (next+1) & mask;
+        }
     }
 
-    private void checkIndex(Http2Stream newStream){
-        if(streams.size() > 0){
-            boolean newStreamHasLargerId = newStream.getStreamId() > streams.get(streams.size()-1).getStreamId();
-            if(!newStreamHasLargerId){
-                throw new IllegalArgumentException("New stream must have a larger stream id");
+    /**
+     * @see Http2Stream#close()
+     */
+    public void closeAll(){
+        List<Http2Stream> toBeClosed = new ArrayList<>();
+        synchronized(this){
+            for(Http2Stream stream : streams){
+                if(stream != null)
+                    toBeClosed.add(stream);
             }
         }
+        for(Http2Stream stream : toBeClosed)
+            stream.close();
+    }
+
+    /**
+     * @return -1 if no stream is added yet
+     */
+    public synchronized int getHighestStreamId(){
+        return highestStreamId;
+    }
+
+    /**
+     * @return number of stored streams except stream 0
+     */
+    public synchronized int getActiveStreamCount(){
+        return slotOf(0) == EMPTY? size : size-1;
+    }
+
+    public synchronized int size(){
+        return size;
+    }
+
+    /**
+     * @return EMPTY if not found
+     */
+    private int slotOf(int id){
+        int mask = ids.length-1;
+        int slot = hash(id) & mask;
+        while(ids[slot] != EMPTY){
+            if(ids[slot] == id)
+                return slot;
+            slot = (slot+1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private void resize(int capacity){
+        int[] oldIds = ids;
+        Http2Stream[] oldStreams = streams;
+        ids = new int[capacity];
+        streams = new Http2Stream[capacity];
+        Arrays.fill(ids, EMPTY);
+        for(int i = 0; i < oldIds.length; i++){
+            if(oldIds[i] == EMPTY)
+                continue;
+            int slot = hash(oldIds[i]) & (capacity-1);
+            while(ids[slot] != EMPTY)
+                slot = (slot+1) & (capacity-1);
+            ids[slot] = oldIds[i];
+            streams[slot] = oldStreams[i];
+        }
+    }
+
+    private static int hash(int id){
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
 }
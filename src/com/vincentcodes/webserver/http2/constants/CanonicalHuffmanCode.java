@@ -1,97 +1,119 @@
 package com.vincentcodes.webserver.http2.constants;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
-import java.util.stream.IntStream;
 
 /**
+ * Encodes by packing the codes into a byte[] directly. Decodes with a
+ * state machine which consumes 4 bits (a nibble) at a time; the states
+ * are the internal nodes of the huffman tree. The tables are built once
+ * from {@link #huffmanCodes} and {@link #huffmanCodeLengths}.
  * @see https://tools.ietf.org/html/rfc7541#appendix-B
  */
 public class CanonicalHuffmanCode {
-    private final static Map<Integer, String> symToCode = new HashMap<>();
-    private final static Map<String, Integer> codeToSymSpecial = new HashMap<>(); // with leading zeros
-    private final static Map<Integer, Integer> codeToSym = new HashMap<>();
+    private static final int EOS = 256;
+    /**
+     * A huffman tree with 257 leaves has 256 internal nodes
+     */
+    private static final int STATE_COUNT = 256;
 
     /**
-     * @param symbol a value of 0-256 (inclusive)
+     * Indexed by (state*16 + nibble). Next state is -1 if EOS is found
+     * (which must not appear in a string literal). Emitted symbol is -1
+     * if no symbol is completed by the nibble. At most 1 symbol can be
+     * completed, since the shortest code has 5 bits.
      */
-    public static String getCodeFromSym(int symbol){
-        return symToCode.get(symbol);
-    }
-    
+    private static final short[] nextStates = new short[STATE_COUNT*16];
+    private static final short[] emittedSymbols = new short[STATE_COUNT*16];
     /**
-     * @param binSymbol eg. "100001" gives 'A'
-     * @return the corresponding character
+     * Whether a string may end in this state. ie. the bits after the last
+     * symbol are a prefix of EOS (all '1's) shorter than 8 bits.
+     */
+    private static final boolean[] acceptingStates = new boolean[STATE_COUNT];
+
+    /**
+     * @param symbol a value of 0-256 (inclusive)
+     * @return the code in binary with leading zeros (eg. "00000" for '0')
      */
-    public static Optional<Character> getCharFromBinSym(String binSymbol){
-        Integer c = codeToSym.get(Integer.parseInt(binSymbol, 2));
-        if(c == null) c = codeToSymSpecial.get(binSymbol);
-        if(c == null) return Optional.empty();
-        return Optional.of((char)c.intValue());
+    public static String getCodeFromSym(int symbol){
+        String bin = Integer.toBinaryString(huffmanCodes[symbol]);
+        StringBuilder sb = new StringBuilder();
+        for(int i = bin.length(); i < huffmanCodeLengths[symbol]; i++)
+            sb.append('0');
+        return sb.append(bin).toString();
     }
 
     /**
      * @return the decoded string
+     * @throws IllegalArgumentException if buf contains EOS or the padding 
+     * is invalid
+     * @see https://tools.ietf.org/html/rfc7541#section-5.2
      */
     public static String decode(byte[] buf){
-        String combinedBin = "";
-        for(byte b : buf){ 
-            combinedBin += padStart(Integer.toBinaryString(Byte.toUnsignedInt(b)), 8, "0");
-        }
-        String result = "";
-        Optional<Character> ch;
-        // endIndex arg of substring(int, int) is exclusive
-        for(int i = 1, j = 0; i <= combinedBin.length(); i++){
-            if(i-j > 4){
-                if((ch = CanonicalHuffmanCode.getCharFromBinSym(combinedBin.substring(j, i))).isPresent()){
-                    j += (i-j);
-                    result += ch.get();
-                }
-            }
+        // the shortest code has 5 bits
+        byte[] result = new byte[buf.length * 8 / 5];
+        int length = 0;
+        int state = 0;
+        for(byte b : buf){
+            int index = state*16 + ((b >>> 4) & 0xf);
+            if(emittedSymbols[index] >= 0)
+                result[length++] = (byte)emittedSymbols[index];
+            if((state = nextStates[index]) < 0)
+                throw new IllegalArgumentException("EOS is found in huffman encoded string");
+
+            index = state*16 + (b & 0xf);
+            if(emittedSymbols[index] >= 0)
+                result[length++] = (byte)emittedSymbols[index];
+            if((state = nextStates[index]) < 0)
+                throw new IllegalArgumentException("EOS is found in huffman encoded string");
         }
-        return result;
+        if(!acceptingStates[state])
+            throw new IllegalArgumentException("Invalid padding in huffman encoded string");
+        return new String(result, 0, length, StandardCharsets.UTF_8);
     }
 
     /**
      * @return the encoded string in bytes
      */
     public static byte[] encode(String str){
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        String combinedBin = "";
-        byte[] strBytes = str.getBytes(StandardCharsets.UTF_8);
-        for(int i = 0; i < strBytes.length; i++){
-            combinedBin += getCodeFromSym(strBytes[i] & 0xff);
-        }
-        if(combinedBin.length() % 8 != 0){
-            // pad the end with '1's, because it's very easy to reach '00000' which is '0'
-            combinedBin = padEnd(combinedBin, (int)Math.ceil((double)(combinedBin.length())/8)*8, "1");
-        }
-        for(int i = 1, j = 0; i <= combinedBin.length(); i++){
-            if(i - j >= 8){
-                os.write(Integer.parseInt(combinedBin.substring(j, i), 2));
-                j += (i - j);
-            }
-        }
-        return os.toByteArray();
+        return encode(str.getBytes(StandardCharsets.UTF_8));
     }
 
-    private static String padStart(String target, int maxLength, String padStr){
-        while(target.length() < maxLength){
-            target = padStr + target;
+    /**
+     * The last byte is padded with '1's (ie. the most significant bits of EOS)
+     * @return the encoded data
+     */
+    public static byte[] encode(byte[] data){
+        byte[] result = new byte[encodedLength(data)];
+        int length = 0;
+        // at most 7 bits are left in it before a code (30 bits max) is added
+        long bits = 0;
+        int bitCount = 0;
+        for(byte b : data){
+            int symbol = b & 0xff;
+            bits = (bits << huffmanCodeLengths[symbol]) | huffmanCodes[symbol];
+            bitCount += huffmanCodeLengths[symbol];
+            while(bitCount >= 8){
+                bitCount -= 8;
+                result[length++] = (byte)(bits >>> bitCount);
+            }
         }
-        return target;
+        if(bitCount > 0)
+            result[length] = (byte)((bits << (8-bitCount)) | (0xff >>> bitCount));
+        return result;
     }
-    private static String padEnd(String target, int maxLength, String padStr){
-        while(target.length() < maxLength){
-            target += padStr;
+
+    /**
+     * @return number of bytes {@link #encode(byte[])} gives
+     */
+    public static int encodedLength(byte[] data){
+        long bitCount = 0;
+        for(byte b : data){
+            bitCount += huffmanCodeLengths[b & 0xff];
         }
-        return target;
+        return (int)((bitCount + 7) / 8);
     }
 
-    private static int[] huffmanCodes = new int[]{
+    private static final int[] huffmanCodes = new int[]{
         0x1ff8,
         0x7fffd8,
         0xfffffe2,
@@ -351,45 +373,307 @@ public class CanonicalHuffmanCode {
         0x3fffffff
     };
 
-    static{
-        IntStream asciiNum = IntStream.range(0, 257);
-        asciiNum.forEach(num -> {
-            symToCode.put(num, Integer.toBinaryString(huffmanCodes[num]));
-            codeToSym.put(huffmanCodes[num], num);
-        });
-        huffmanCodes = null;
+    private static final byte[] huffmanCodeLengths = new byte[]{
+        13,
+        23,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        24,
+        30,
+        28,
+        28,
+        30,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        30,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        28,
+        6,
+        10,
+        10,
+        12,
+        13,
+        6,
+        8,
+        11,
+        10,
+        10,
+        8,
+        11,
+        8,
+        6,
+        6,
+        6,
+        5,
+        5,
+        5,
+        6,
+        6,
+        6,
+        6,
+        6,
+        6,
+        6,
+        7,
+        8,
+        15,
+        6,
+        12,
+        10,
+        13,
+        6,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        7,
+        8,
+        7,
+        8,
+        13,
+        19,
+        13,
+        14,
+        6,
+        15,
+        5,
+        6,
+        5,
+        6,
+        5,
+        6,
+        6,
+        6,
+        5,
+        7,
+        7,
+        6,
+        6,
+        6,
+        5,
+        6,
+        7,
+        6,
+        5,
+        5,
+        6,
+        7,
+        7,
+        7,
+        7,
+        7,
+        15,
+        11,
+        14,
+        13,
+        28,
+        20,
+        22,
+        20,
+        20,
+        22,
+        22,
+        22,
+        23,
+        22,
+        23,
+        23,
+        23,
+        23,
+        23,
+        24,
+        23,
+        24,
+        24,
+        22,
+        23,
+        24,
+        23,
+        23,
+        23,
+        23,
+        21,
+        22,
+        23,
+        22,
+        23,
+        23,
+        24,
+        22,
+        21,
+        20,
+        22,
+        22,
+        23,
+        23,
+        21,
+        23,
+        22,
+        22,
+        24,
+        21,
+        22,
+        23,
+        23,
+        21,
+        21,
+        22,
+        21,
+        23,
+        22,
+        23,
+        23,
+        20,
+        22,
+        22,
+        22,
+        23,
+        22,
+        22,
+        23,
+        26,
+        26,
+        20,
+        19,
+        22,
+        23,
+        22,
+        25,
+        26,
+        26,
+        26,
+        27,
+        27,
+        26,
+        24,
+        25,
+        19,
+        21,
+        26,
+        27,
+        27,
+        26,
+        27,
+        24,
+        21,
+        21,
+        26,
+        26,
+        28,
+        27,
+        27,
+        27,
+        20,
+        24,
+        20,
+        21,
+        22,
+        21,
+        21,
+        23,
+        22,
+        22,
+        25,
+        25,
+        24,
+        24,
+        26,
+        23,
+        26,
+        27,
+        26,
+        26,
+        27,
+        27,
+        27,
+        27,
+        27,
+        28,
+        27,
+        27,
+        27,
+        27,
+        27,
+        26,
+        30
+    };
 
-        // Commented hexes are code value
-        codeToSymSpecial.put("010100", 32); // 0x14
-        codeToSymSpecial.put("010101", 37); // 0x15
-        codeToSymSpecial.put("010110", 45); // 0x16
-        codeToSymSpecial.put("010111", 46); // 0x17
-        codeToSymSpecial.put("011000", 47); // 0x18
-        codeToSymSpecial.put("00000", 48); // 0x0
-        codeToSymSpecial.put("00001", 49); // 0x1
-        codeToSymSpecial.put("00010", 50); // 0x2
-        codeToSymSpecial.put("011001", 51); // 0x19
-        codeToSymSpecial.put("011010", 52); // 0x1a
-        codeToSymSpecial.put("011011", 53); // 0x1b
-        codeToSymSpecial.put("011100", 54); // 0x1c
-        codeToSymSpecial.put("011101", 55); // 0x1d
-        codeToSymSpecial.put("011110", 56); // 0x1e
-        codeToSymSpecial.put("011111", 57); // 0x1f
-        codeToSymSpecial.put("00011", 97); // 0x3
-        codeToSymSpecial.put("00100", 99); // 0x4
-        codeToSymSpecial.put("00101", 101); // 0x5
-        codeToSymSpecial.put("00110", 105); // 0x6
-        codeToSymSpecial.put("00111", 111); // 0x7
-        codeToSymSpecial.put("01000", 115); // 0x8
-        codeToSymSpecial.put("01001", 116); // 0x9
+    static{
+        // Build the huffman tree. Nodes are internal nodes (root is 0),
+        // leaves are stored as -(symbol+1) in the children of a node.
+        int[] children = new int[STATE_COUNT*2];
+        int nodeCount = 1;
+        for(int symbol = 0; symbol <= EOS; symbol++){
+            int code = huffmanCodes[symbol];
+            int node = 0;
+            for(int i = huffmanCodeLengths[symbol]-1; i > 0; i--){
+                int bit = (code >>> i) & 1;
+                if(children[node*2 + bit] == 0)
+                    children[node*2 + bit] = nodeCount++;
+                node = children[node*2 + bit];
+            }
+            children[node*2 + (code & 1)] = -(symbol+1);
+        }
 
-        codeToSymSpecial.forEach((k, v) -> {
-            symToCode.put(v, k);
-        });
+        for(int state = 0; state < STATE_COUNT; state++){
+            for(int nibble = 0; nibble < 16; nibble++){
+                int node = state;
+                int symbol = -1;
+                for(int i = 3; i >= 0 && node >= 0; i--){
+                    int child = children[node*2 + ((nibble >>> i) & 1)];
+                    if(child >= 0){
+                        node = child;
+                    }else if(-child-1 == EOS){
+                        node = -1;
+                    }else{
+                        symbol = -child-1;
+                        node = 0;
+                    }
+                }
+                nextStates[state*16 + nibble] = (short)node;
+                emittedSymbols[state*16 + nibble] = (short)symbol;
+            }
+        }
 
-        for(String b : codeToSymSpecial.keySet()){
-            int val = Integer.parseInt(b, 2);
-            codeToSym.remove(val);
+        // padding: up to 7 '1's
+        for(int node = 0, depth = 0; depth < 8; depth++){
+            acceptingStates[node] = true;
+            node = children[node*2 + 1];
         }
     }
 }
@@ -0,0 +1,36 @@
+package com.vincentcodes.webserver.http2.hpack;
+
+import com.vincentcodes.webserver.http2.Http2TableEntry;
+
+/**
+ * Decides how {@link HpackEncoder} represents a header field which is
+ * not found in the static table nor the dynamic table.
+ * @see https://tools.ietf.org/html/rfc7541#section-6.2
+ * @see https://tools.ietf.org/html/rfc7541#section-7.1
+ */
+@FunctionalInterface
+public interface HeaderIndexingPolicy {
+    enum Representation {
+        /**
+         * The field is added to the dynamic table
+         */
+        INCREMENTAL_INDEXING,
+        WITHOUT_INDEXING,
+        /**
+         * Intermediaries must not index the field either (eg. secrets)
+         */
+        NEVER_INDEXED
+    }
+
+    Representation representationOf(Http2TableEntry entry);
+
+    /**
+     * Nothing is added to the dynamic table
+     */
+    HeaderIndexingPolicy NONE = entry -> Representation.WITHOUT_INDEXING;
+
+    /**
+     * @see ResponseHeaderIndexingPolicy
+     */
+    HeaderIndexingPolicy RESPONSE = new ResponseHeaderIndexingPolicy();
+}
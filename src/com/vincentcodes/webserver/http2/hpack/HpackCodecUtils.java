@@ -11,6 +11,7 @@ import com.vincentcodes.webserver.http2.DynamicTable;
 import com.vincentcodes.webserver.http2.Http2TableEntry;
 import com.vincentcodes.webserver.http2.StaticTable;
 import com.vincentcodes.webserver.http2.constants.CanonicalHuffmanCode;
+import com.vincentcodes.webserver.http2.errors.DecodeError;
 
 /**
  * This util is used specifically for HPACK, so it will not be put into util package.
@@ -89,8 +90,9 @@ public class HpackCodecUtils {
     // For decoder //
     /////////////////
     /**
-     * String Literal (huffman code is not yet implemented; ignores it)
+     * String Literal
      * @param is [will be modified]
+     * @throws DecodeError if the huffman encoded string is invalid
      * @see https://tools.ietf.org/html/rfc7541#section-5.2
      */
     public static String decodeString(InputStream is) throws IOException{
@@ -100,7 +102,11 @@ public class HpackCodecUtils {
         byte[] data = new byte[length];
         is.read(data);
         if(isHuffmanCodeEnabled == 1){
-            return CanonicalHuffmanCode.decode(data);
+            try{
+                return CanonicalHuffmanCode.decode(data);
+            }catch(IllegalArgumentException e){
+                throw new DecodeError(e.getMessage(), e);
+            }
         }
         return new String(data).intern();
     }
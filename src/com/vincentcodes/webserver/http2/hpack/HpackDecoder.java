@@ -69,11 +69,12 @@ public class HpackDecoder {
         }else if((identifierByte & 0b11100000) == 0b00100000){
             // 6.3 Dynamic Table Size Update
             int maxSize = HpackCodecUtils.decodeInteger(identifierByte, is, 5)[1];
-            if(maxSize > dynamicTable.getConfig().getMaxHeaderListSize()){
-                throw new DecodeError("Cannot update table size: It's over the limit of " + dynamicTable.getConfig().getMaxHeaderListSize());
+            if(maxSize > dynamicTable.getMaxSizeLimit()){
+                throw new DecodeError("Cannot update table size: It's over the limit of " + dynamicTable.getMaxSizeLimit());
             }
-            dynamicTable.trimToSize(maxSize);
-            // this update frame may cause problems
+            dynamicTable.setMaxSize(maxSize);
+            // it is not a header, continue with the next one
+            return decodeHeaderModifyTable(is);
         }
         throw new DecodeError("Invalid header");
     }
@@ -9,36 +9,64 @@ import com.vincentcodes.webserver.http2.DynamicTable;
 import com.vincentcodes.webserver.http2.Http2Configuration;
 import com.vincentcodes.webserver.http2.Http2TableEntry;
 import com.vincentcodes.webserver.http2.StaticTable;
+import com.vincentcodes.webserver.util.HttpDate;
 
 /**
  * For the specifications see {@link com.vincentcodes.
  * webserver.http2.hpack.HpackDecoder here}
  */
 public class HpackEncoder {
+    // the date header only changes once per second, its encoding is shared by all connections
+    private static volatile EncodedField cachedDateField;
+
     private DynamicTable dynamicTable;
+    private HeaderIndexingPolicy indexingPolicy;
+    /**
+     * Max table sizes set since the last header block, -1 if not changed
+     */
+    private int smallestMaxTableSize = -1;
+    private int lastMaxTableSize = -1;
 
     /**
      * Create HpackDecoder using default configuration/settings of a stream
      */
     public HpackEncoder(){
-        this.dynamicTable = new DynamicTable(new Http2Configuration(), StaticTable.instance.size()+1);
+        this(new DynamicTable(new Http2Configuration(), StaticTable.instance.size()+1));
     }
+    /**
+     * Fields are never added to the dynamic table by {@link #encode(List, boolean)}
+     */
     public HpackEncoder(DynamicTable dynamicTable){
+        this(dynamicTable, HeaderIndexingPolicy.NONE);
+    }
+    /**
+     * If the policy adds fields to the dynamic table, header blocks must
+     * be encoded in the order they are sent.
+     */
+    public HpackEncoder(DynamicTable dynamicTable, HeaderIndexingPolicy indexingPolicy){
         this.dynamicTable = dynamicTable;
+        this.indexingPolicy = indexingPolicy;
     }
 
     /**
+     * Fields not found in the tables are represented according to the
+     * {@link HeaderIndexingPolicy}
      * @see https://tools.ietf.org/html/rfc7541#section-6
      */
-    public byte[] encode(List<Http2TableEntry> headers, boolean huffmanEncoded){
+    public synchronized byte[] encode(List<Http2TableEntry> headers, boolean huffmanEncoded){
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         try{
+            writeTableSizeUpdates(os);
             byte[] bytes;
             for(Http2TableEntry header : headers){
                 if((bytes = encodeIndexedHeaderField(header)) != null){
                     os.write(bytes);
-                }else{
-                    os.write(encodeLiteralWithoutIndexing(header, huffmanEncoded));
+                    continue;
+                }
+                switch(indexingPolicy.representationOf(header)){
+                    case INCREMENTAL_INDEXING: os.write(encodeLiteralWithIndexing(header, huffmanEncoded)); break;
+                    case NEVER_INDEXED: os.write(encodeLiteralNeverIndexed(header, huffmanEncoded)); break;
+                    default: os.write(encodeLiteralWithoutIndexing(header, huffmanEncoded));
                 }
             }
         }catch(IOException e){}
@@ -46,11 +74,13 @@ public class HpackEncoder {
     }
 
     /**
-     * Not recommended to alter the dynamic table
+     * Every field not found in the tables is added to the dynamic table
+     * @see #encode(List, boolean)
      */
-    public byte[] encodeWithIncremental(List<Http2TableEntry> headers, boolean huffmanEncoded){
+    public synchronized byte[] encodeWithIncremental(List<Http2TableEntry> headers, boolean huffmanEncoded){
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         try{
+            writeTableSizeUpdates(os);
             byte[] bytes;
             for(Http2TableEntry header : headers){
                 if((bytes = encodeIndexedHeaderField(header)) != null){
@@ -63,6 +93,35 @@ public class HpackEncoder {
         return os.toByteArray();
     }
     
+    /**
+     * Apply SETTINGS_HEADER_TABLE_SIZE of the peer. The table never grows 
+     * over the size it is created with. If the size of the table changes, 
+     * Dynamic Table Size Updates are put at the beginning of the next 
+     * header block.
+     * @see https://tools.ietf.org/html/rfc7541#section-4.2
+     */
+    public synchronized void setMaxTableSize(int maxSize){
+        int newSize = Math.min(maxSize, dynamicTable.getMaxSizeLimit());
+        if(newSize == dynamicTable.getMaxSize() && lastMaxTableSize == -1)
+            return;
+        dynamicTable.setMaxSize(newSize);
+        smallestMaxTableSize = smallestMaxTableSize == -1? newSize : Math.min(smallestMaxTableSize, newSize);
+        lastMaxTableSize = newSize;
+    }
+
+    /**
+     * 6.3 Dynamic Table Size Update. The smallest size is signaled 
+     * first if the size is changed more than once.
+     */
+    private void writeTableSizeUpdates(ByteArrayOutputStream os) throws IOException{
+        if(lastMaxTableSize == -1)
+            return;
+        if(smallestMaxTableSize < lastMaxTableSize)
+            os.write(HpackCodecUtils.encodeInteger(1, smallestMaxTableSize, 5));
+        os.write(HpackCodecUtils.encodeInteger(1, lastMaxTableSize, 5));
+        smallestMaxTableSize = lastMaxTableSize = -1;
+    }
+
     // Encode Header Fields
     public byte[] encodeIndexedHeaderField(Http2TableEntry entry){
         Optional<Integer> entryIndex = HpackCodecUtils.findEntryIndexFromBothTables(dynamicTable, entry.getName(), entry.getValue());
@@ -77,7 +136,7 @@ public class HpackEncoder {
     }
 
     /**
-     * Not recommended to alter the dynamic table
+     * The field is added to the dynamic table
      */
     public byte[] encodeLiteralWithIndexing(Http2TableEntry entry, boolean huffmanEncoded){
         ByteArrayOutputStream os = new ByteArrayOutputStream();
@@ -104,6 +163,12 @@ public class HpackEncoder {
     }
 
     public byte[] encodeLiteralWithoutIndexing(Http2TableEntry entry, boolean huffmanEncoded){
+        boolean isDate = entry.getName().equals("date");
+        if(isDate){
+            EncodedField cached = cachedDateField;
+            if(cached != null && cached.huffmanEncoded == huffmanEncoded && cached.value.equals(entry.getValue()))
+                return cached.bytes.clone();
+        }
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         try{
             Optional<Integer> entryIndex = HpackCodecUtils.findEntryIndexFromBothTables(dynamicTable, entry.getName());
@@ -122,22 +187,47 @@ public class HpackEncoder {
                 }
             }
         }catch(IOException e){}
-        return os.toByteArray();
+        byte[] bytes = os.toByteArray();
+        // "date" is in the static table, so the encoding does not depend on this connection
+        if(isDate && entry.getValue().equals(HttpDate.now()))
+            cachedDateField = new EncodedField(entry.getValue(), huffmanEncoded, bytes.clone());
+        return bytes;
     }
     
     public byte[] encodeLiteralNeverIndexed(Http2TableEntry entry){
+        return encodeLiteralNeverIndexed(entry, false);
+    }
+    public byte[] encodeLiteralNeverIndexed(Http2TableEntry entry, boolean huffmanEncoded){
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         try{
             Optional<Integer> entryIndex = HpackCodecUtils.findEntryIndexFromBothTables(dynamicTable, entry.getName());
             if(entryIndex.isPresent()){
                 os.write(HpackCodecUtils.encodeInteger(1, entryIndex.get(), 4));
-                os.write(HpackCodecUtils.encodeString(entry.getValue()));
+                if(!huffmanEncoded) os.write(HpackCodecUtils.encodeString(entry.getValue()));
+                else os.write(HpackCodecUtils.encodeStringHuffman(entry.getValue()));
             }else{
                 os.write(HpackCodecUtils.encodeInteger(1, 0, 4));
-                os.write(HpackCodecUtils.encodeString(entry.getName()));
-                os.write(HpackCodecUtils.encodeString(entry.getValue()));
+                if(!huffmanEncoded){
+                    os.write(HpackCodecUtils.encodeString(entry.getName()));
+                    os.write(HpackCodecUtils.encodeString(entry.getValue()));
+                }else{
+                    os.write(HpackCodecUtils.encodeStringHuffman(entry.getName()));
+                    os.write(HpackCodecUtils.encodeStringHuffman(entry.getValue()));
+                }
             }
         }catch(IOException e){}
         return os.toByteArray();
     }
+
+    private static class EncodedField {
+        final String value;
+        final boolean huffmanEncoded;
+        final byte[] bytes;
+
+        EncodedField(String value, boolean huffmanEncoded, byte[] bytes){
+            this.value = value;
+            this.huffmanEncoded = huffmanEncoded;
+            this.bytes = bytes;
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package com.vincentcodes.webserver.http2.hpack;
+
+import java.util.Set;
+
+import com.vincentcodes.webserver.http2.Http2TableEntry;
+
+/**
+ * Indexes the header fields of responses which are likely to be repeated
+ * on the same connection (eg. server, content-type, cache-control).
+ * <p>
+ * Fields which change on almost every response (eg. date, content-length)
+ * or have long values are not indexed, since they would only push the
+ * useful entries out of the table. Credentials and cookies are never
+ * indexed.
+ */
+public class ResponseHeaderIndexingPolicy implements HeaderIndexingPolicy {
+    /**
+     * Longer values are not indexed
+     */
+    public static final int MAX_INDEXED_VALUE_LENGTH = 128;
+
+    private static final Set<String> NOT_INDEXED = Set.of(
+        "date", "content-length", "content-range", "etag", "last-modified", 
+        "expires", "age", "location", "content-disposition", "retry-after"
+    );
+    private static final Set<String> NEVER_INDEXED = Set.of(
+        "authorization", "proxy-authorization", "cookie", "set-cookie"
+    );
+
+    @Override
+    public Representation representationOf(Http2TableEntry entry){
+        if(NEVER_INDEXED.contains(entry.getName()))
+            return Representation.NEVER_INDEXED;
+        if(NOT_INDEXED.contains(entry.getName()) || entry.getValue().length() > MAX_INDEXED_VALUE_LENGTH)
+            return Representation.WITHOUT_INDEXING;
+        return Representation.INCREMENTAL_INDEXING;
+    }
+}
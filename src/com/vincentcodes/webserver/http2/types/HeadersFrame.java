@@ -46,6 +46,7 @@ public class HeadersFrame implements Http2FrameType {
 
     private Http2Frame parent;
     private HpackEncoder encoder;
+    private byte[] encoded;
 
     public HeadersFrame(){}
 
@@ -71,9 +72,15 @@ public class HeadersFrame implements Http2FrameType {
 
     /**
      * Not fully implemented (priority part)
+     * <p>
+     * The header block is encoded once, the same bytes are returned 
+     * afterwards. Since HPACK is stateful, it should happen when the 
+     * frame is sent (see {@link Http2Frame#LAZY_LENGTH}).
      */
     @Override
     public byte[] toBytes(){
+        if(encoded != null)
+            return encoded;
         ByteArrayOutputStream os = new ByteArrayOutputStream(); 
         byte paddingLength = (byte)(Math.random()*15);
         boolean padded = false;
@@ -94,30 +101,15 @@ public class HeadersFrame implements Http2FrameType {
                 os.write(new byte[paddingLength]);
             }
         }catch(IOException e){}
-        return os.toByteArray();
+        encoded = os.toByteArray();
+        return encoded;
     }
 
     @Override
     public void streamBytesTo(OutputStream stream) throws IOException{
-        byte paddingLength = (byte)(Math.random()*15);
-        boolean padded = false;
-        if(parent != null){
-            if((parent.flags & PADDED) != 0){
-                stream.write(paddingLength);
-                padded = true;
-            }
-            if((parent.flags & PRIORITY) != 0){
-                // error may occur if the value gets too large
-                stream.write(ByteUtils.intToByteArray((priorityBit << 31) & streamDependency));
-                stream.write((byte)priorityWeight);
-            }
-        }
-        stream.write(encoder.encode(headers, true));
-        if(padded){
-            stream.write(new byte[paddingLength]);
-        }
+        stream.write(toBytes());
     }
-    
+
     public static Http2FrameType parse(Http2Frame frame, InputStream is, HpackDecoder hpackDecoder) throws UncheckedIOException{
         try{
             HeadersFrame headersFrame = new HeadersFrame();
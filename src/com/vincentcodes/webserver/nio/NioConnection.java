@@ -0,0 +1,511 @@
+package com.vincentcodes.webserver.nio;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import com.vincentcodes.net.UpgradableSocket;
+import com.vincentcodes.webserver.ServerThreadUtils;
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.body.HttpBodyChunkedStream;
+import com.vincentcodes.webserver.component.body.HttpBodyFileStream;
+import com.vincentcodes.webserver.component.body.HttpBodyLazyStream;
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.request.RequestHeadParser;
+import com.vincentcodes.webserver.component.request.RequestParser;
+import com.vincentcodes.webserver.component.response.HttpResponses;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+import com.vincentcodes.webserver.component.response.ResponseWriter;
+import com.vincentcodes.webserver.helper.IOContainer;
+import com.vincentcodes.webserver.util.FutureUtils;
+
+/**
+ * One HTTP/1.1 connection served by a {@link NioEventLoop}. Bytes are
+ * read and written by the event loop, whereas requests are parsed and
+ * dispatched by a worker.
+ * <p>
+ * A request is dispatched as soon as its head is received. Its body is
+ * read by the worker through {@link NioInputStream}, only a window of it
+ * is kept in memory; large bodies are spilled to disk the same way as
+ * on the thread-per-connection front end (ie. by {@link HttpBodyLazyStream}).
+ * <p>
+ * A connection has at most 1 request in flight. Pipelined requests
+ * wait in the input buffer until the previous response is queued.
+ */
+class NioConnection {
+    /**
+     * Also the max number of bytes received but not consumed yet
+     */
+    private static final int MAX_REQUEST_HEAD_SIZE = RequestHeadParser.MAX_HEAD_SIZE;
+    /**
+     * A worker writing a response waits once this many bytes are queued
+     */
+    private static final int MAX_QUEUED_BYTES = 262144; // 256KB
+
+    private final NioServer server;
+    private final NioEventLoop eventLoop;
+    private final SocketChannel channel;
+    private final String clientIpWithPort;
+    private SelectionKey key;
+
+    // appended by the event loop, read by the worker handling the request in flight
+    private final NioInputStream input = new NioInputStream(MAX_REQUEST_HEAD_SIZE);
+
+    // owned by the event loop
+    private boolean requestInFlight = false;
+    private boolean closeAfterWrite = false;
+    private Runnable pendingTakeover;
+    private int answeredRequests = 0;
+    private long lastActivity = System.currentTimeMillis();
+
+    // owned by the worker handling the request in flight
+    private int servedRequests = 0;
+
+    // shared, guarded by outgoing
+    private final Deque<PendingWrite> outgoing = new ArrayDeque<>();
+    /**
+     * Bytes held in memory, file regions are excluded
+     */
+    private long queuedBytes = 0;
+    private boolean flushScheduled = false;
+    private volatile boolean closed = false;
+
+    NioConnection(NioServer server, NioEventLoop eventLoop, SocketChannel channel) throws IOException{
+        this.server = server;
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        Socket socket = channel.socket();
+        this.clientIpWithPort = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+    }
+
+    void register(Selector selector) throws IOException{
+        WebServer.logger.debug("Connection incoming from " + clientIpWithPort);
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * @param readBuffer temporary buffer, its content is copied
+     */
+    void onReadable(ByteBuffer readBuffer) throws IOException{
+        readBuffer.clear();
+        readBuffer.limit(Math.min(readBuffer.capacity(), input.space()));
+        int read = channel.read(readBuffer);
+        if(read == -1){
+            // requests received before are still answered
+            input.endOfInput();
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            tryDispatch();
+            return;
+        }
+        if(read > 0){
+            lastActivity = System.currentTimeMillis();
+            readBuffer.flip();
+            input.append(readBuffer);
+        }
+        if(input.space() == 0){
+            // the worker has to consume some first
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            input.onSpaceAvailable(() -> eventLoop.execute(this::resumeReading));
+        }
+        tryDispatch();
+    }
+
+    private void resumeReading(){
+        if(closed || closeAfterWrite || input.isEndOfInput())
+            return;
+        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+    }
+
+    /**
+     * Hand a request over to a worker once its head is received
+     */
+    private void tryDispatch(){
+        if(requestInFlight || closeAfterWrite || closed)
+            return;
+        if(input.headLength() == -1){
+            if(input.space() == 0)
+                reject();
+            else if(input.isEndOfInput()){
+                closeAfterWrite = true;
+                closeIfDrained();
+            }
+            return;
+        }
+        requestInFlight = true;
+        server.getWorkers().execute(this::handleRequest);
+    }
+
+    private void reject(){
+        closeAfterWrite = true;
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        ResponseBuilder response = HttpResponses.generate400Response();
+        ServerThreadUtils.prepareConnectionHeaders(response, false, null, server.getConfiguration());
+        try{
+            writeResponse(response, new NioOutputStream(this, false), true);
+        }catch(UncheckedIOException e){
+            close();
+        }
+    }
+
+    /**
+     * Runs on a worker. Handlers which complete later (eg. return a 
+     * CompletableFuture) do not keep the worker; the response is queued 
+     * by another worker once they complete.
+     */
+    private void handleRequest(){
+        HttpRequest request = RequestParser.parse(input, server.getConfiguration().getRequestBodySpillThreshold(), true);
+        try{
+            if(!server.getRequestValidator().requestIsValid(request))
+                request.invalid();
+
+            servedRequests++;
+            if(!request.isValid()){
+                respond(request, HttpResponses.generate400Response(), false, false);
+                return;
+            }
+            boolean isHeadRequest = request.getBasicInfo().getMethod().equals("HEAD");
+            boolean keepAlive = ServerThreadUtils.canKeepAlive(request, servedRequests, server.getConfiguration());
+            CompletableFuture<ResponseBuilder> pendingResponse = server.getRequestDispatcher().dispatchAsync(request);
+            BiConsumer<ResponseBuilder, Throwable> onComplete = (response, error) -> {
+                if(error != null)
+                    onRequestFailed(request, FutureUtils.unwrap(error));
+                else respond(request, response, keepAlive, isHeadRequest);
+            };
+            if(pendingResponse.isDone())
+                pendingResponse.whenComplete(onComplete);
+            else pendingResponse.whenCompleteAsync(onComplete, server.getWorkers());
+        }catch(Exception e){
+            onRequestFailed(request, e);
+        }
+    }
+
+    /**
+     * Runs on a worker
+     * @param request [be closed] unless the connection is taken over
+     */
+    private void respond(HttpRequest request, ResponseBuilder response, boolean keepAlive, boolean isHeadRequest){
+        boolean takenOver = false;
+        try{
+            if(request.isValid() && isTakeover(request, response)){
+                takenOver = true;
+                eventLoop.execute(() -> takeover(() -> runBlocking(request, response)));
+                return;
+            }
+            // the unread body lies between this request and the next one
+            boolean reusable = keepAlive && ServerThreadUtils.discardUnreadBody(request);
+            String version = request.isValid()? request.getBasicInfo().getVersion() : null;
+            ServerThreadUtils.prepareConnectionHeaders(response, reusable, version, server.getConfiguration());
+            queueResponse(response, !isHeadRequest);
+            eventLoop.execute(() -> onResponseQueued(reusable));
+        }catch(Exception e){
+            logException(e);
+            close();
+        }finally{
+            if(!takenOver)
+                closeQuietly(request);
+        }
+    }
+
+    /**
+     * @param request [be closed]
+     */
+    private void onRequestFailed(HttpRequest request, Throwable e){
+        logException(e);
+        close();
+        closeQuietly(request);
+    }
+
+    private static void logException(Throwable e){
+        WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+        if(!(e instanceof Exception) || !WebServer.canIgnoreException((Exception)e))
+            e.printStackTrace();
+    }
+
+    /**
+     * Tunnels and websocket connections are long-lived, they do not fit
+     * into the request / response cycle of the event loop.
+     */
+    private static boolean isTakeover(HttpRequest request, ResponseBuilder response){
+        if(response.getHeaders().getHeader("X-Vws-Raw-Tunnel") != null)
+            return true;
+        String responseUpgradeHeader = response.getHeaders().getHeader("upgrade");
+        String requestUpgradeHeader = request.getHeaders().getHeader("upgrade");
+        return "websocket".equals(responseUpgradeHeader) && "websocket".equals(requestUpgradeHeader);
+    }
+
+    /**
+     * @param response [be closed]
+     * @param os [be closed]
+     */
+    private static void writeResponse(ResponseBuilder response, OutputStream os, boolean withBody){
+        try(response; os){
+            boolean bodyWritten = ResponseWriter.write(response, os, withBody);
+            WebServer.logger.debug(() -> "\n" + response.asString());
+
+            if(bodyWritten)
+                return;
+            if(response.getBody() instanceof HttpBodyChunkedStream)
+                ServerThreadUtils.streamChunkedBodyTo(response, os);
+            else if(response.getBody().length() > 0)
+                response.getBody().streamBytesTo(os);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * File bodies are queued as regions, which the event loop sends 
+     * with zero-copy.
+     * @param response [be closed]
+     */
+    private void queueResponse(ResponseBuilder response, boolean withBody) throws IOException{
+        if(!withBody || !(response.getBody() instanceof HttpBodyFileStream)){
+            writeResponse(response, new NioOutputStream(this, true), withBody);
+            return;
+        }
+        try(response){
+            HttpBodyFileStream body = (HttpBodyFileStream)response.getBody();
+            queue(PendingWrite.of(ByteBuffer.wrap(ResponseWriter.encode(response))), true);
+            WebServer.logger.debug(() -> "\n" + response.asString());
+
+            if(body.remainingLength() > 0)
+                queue(new PendingWrite.FileRegion(body.getFile().toPath(), body.position(), body.remainingLength()), true);
+        }
+    }
+
+    private void onResponseQueued(boolean keepAlive){
+        requestInFlight = false;
+        answeredRequests++;
+        lastActivity = System.currentTimeMillis();
+        input.shrink();
+        if(closed)
+            return;
+        if(!keepAlive){
+            closeAfterWrite = true;
+            closeIfDrained();
+            return;
+        }
+        tryDispatch();
+    }
+
+    /**
+     * Queue data to be written by the event loop
+     * @param waitIfFull block the caller until the client has read enough data
+     */
+    void queue(PendingWrite write, boolean waitIfFull) throws IOException{
+        synchronized(outgoing){
+            if(closed){
+                write.close();
+                throw new IOException("Socket is closed");
+            }
+            outgoing.add(write);
+            if(!(write instanceof PendingWrite.FileRegion))
+                queuedBytes += write.remaining();
+            if(!flushScheduled){
+                flushScheduled = true;
+                eventLoop.execute(this::flushOrClose);
+            }
+            while(waitIfFull && queuedBytes > MAX_QUEUED_BYTES && !closed){
+                try{
+                    outgoing.wait();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the client to read", e);
+                }
+            }
+            if(closed)
+                throw new IOException("Socket is closed");
+        }
+    }
+
+    private void flushOrClose(){
+        try{
+            flush();
+        }catch(IOException e){
+            WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Write as much queued data as the socket accepts right now
+     */
+    void flush() throws IOException{
+        if(closed)
+            return;
+        synchronized(outgoing){
+            while(!outgoing.isEmpty()){
+                PendingWrite write = outgoing.peek();
+                long written = write.writeTo(channel);
+                if(!(write instanceof PendingWrite.FileRegion))
+                    queuedBytes -= written;
+                if(written > 0)
+                    lastActivity = System.currentTimeMillis();
+                if(write.remaining() > 0)
+                    break;
+                outgoing.poll();
+            }
+            outgoing.notifyAll();
+            if(!outgoing.isEmpty()){
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            flushScheduled = false;
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        closeIfDrained();
+        if(pendingTakeover != null){
+            Runnable task = pendingTakeover;
+            pendingTakeover = null;
+            eventLoop.execute(() -> takeover(task));
+        }
+    }
+
+    private void closeIfDrained(){
+        if(!closeAfterWrite || requestInFlight)
+            return;
+        synchronized(outgoing){
+            if(!outgoing.isEmpty())
+                return;
+        }
+        close();
+    }
+
+    /**
+     * Remove the connection from the event loop, switch it to blocking
+     * mode and let task run on a separate thread. Responses queued
+     * before are sent first.
+     */
+    private void takeover(Runnable task){
+        synchronized(outgoing){
+            if(!outgoing.isEmpty()){
+                pendingTakeover = task;
+                return;
+            }
+        }
+        try{
+            input.endOfInput(); // the rest is read from the socket directly
+            key.cancel();
+            key.selector().selectNow(); // deregister before switching to blocking mode
+            channel.configureBlocking(true);
+            server.getBlockingExecutor().execute(task);
+        }catch(IOException e){
+            WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Serve a websocket or tunnel the same way ServerThread does
+     */
+    private void runBlocking(HttpRequest request, ResponseBuilder response){
+        try(request){
+            Socket socket = channel.socket();
+            socket.setSoTimeout(0);
+            // bytes which arrived after the request belong to the new protocol
+            InputStream is = new SequenceInputStream(input, socket.getInputStream());
+            IOContainer container = new IOContainer(new UpgradableSocket(socket), new BufferedInputStream(is), socket.getOutputStream());
+            request.setSocket(container);
+
+            if(response.getHeaders().getHeader("X-Vws-Raw-Tunnel") != null){
+                ServerThreadUtils.socketTunnelInitialization(request, response, (res, os) -> writeResponse(res, new NonClosingOutputStream(os), true));
+            }else{
+                writeResponse(response, new NonClosingOutputStream(container.getOutputStream()), true);
+                ServerThreadUtils.websocketInitialization(request, container);
+            }
+        }catch(Exception e){
+            WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+            if(!WebServer.canIgnoreException(e))
+                e.printStackTrace();
+        }finally{
+            close();
+        }
+    }
+
+    /**
+     * Called by the event loop periodically
+     */
+    void closeIfIdle(long now){
+        if(requestInFlight)
+            return;
+        int timeout;
+        synchronized(outgoing){
+            if(!outgoing.isEmpty())
+                timeout = WebServer.CONNECTION_WRITE_TIMEOUT_MILSEC;
+            else if(input.unreadLength() == 0 && answeredRequests > 0)
+                timeout = server.getConfiguration().getKeepAliveTimeout();
+            else timeout = WebServer.CONNECTION_READ_TIMEOUT_MILSEC;
+        }
+        if(now - lastActivity > timeout){
+            WebServer.logger.debug("Idle timeout reached for host " + clientIpWithPort);
+            close();
+        }
+    }
+
+    /**
+     * Can be called from any thread
+     */
+    void close(){
+        synchronized(outgoing){
+            if(closed)
+                return;
+            closed = true;
+            for(PendingWrite write : outgoing)
+                write.close();
+            outgoing.clear();
+            queuedBytes = 0;
+            outgoing.notifyAll();
+        }
+        input.close();
+        try{
+            channel.close();
+            WebServer.logger.debug("Connection with host " + clientIpWithPort + " closed");
+        }catch(IOException e){
+            WebServer.logger.err("Cannot close connection with host " + clientIpWithPort);
+        }
+    }
+
+    private static void closeQuietly(HttpRequest request){
+        try{
+            request.close();
+        }catch(IOException ignored){}
+    }
+
+    /**
+     * The socket must stay open after a response is written to it directly
+     */
+    private static class NonClosingOutputStream extends OutputStream{
+        private final OutputStream os;
+
+        NonClosingOutputStream(OutputStream os){
+            this.os = os;
+        }
+
+        @Override
+        public void write(int b) throws IOException{
+            os.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException{
+            os.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException{
+            os.flush();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.vincentcodes.webserver.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.vincentcodes.webserver.WebServer;
+
+/**
+ * A selector thread. Every {@link NioConnection} registered here is
+ * read from and written to by this thread only. Other threads hand
+ * work over using {@link #execute(Runnable)}.
+ */
+class NioEventLoop extends Thread implements Closeable{
+    private static final int SELECT_TIMEOUT_MILSEC = 1000;
+    private static final int READ_BUFFER_SIZE = 16384;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * Shared by all connections of this loop, data is copied out right after a read
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private volatile boolean running = true;
+
+    NioEventLoop(int id) throws IOException{
+        super("NIO Event Loop " + id);
+        this.selector = Selector.open();
+        setDaemon(true);
+    }
+
+    /**
+     * Run the task on this event loop. Tasks run in the order they are added.
+     */
+    void execute(Runnable task){
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void register(NioConnection connection){
+        execute(() -> {
+            try{
+                connection.register(selector);
+            }catch(IOException e){
+                WebServer.logger.err("Cannot register connection: " + e.getMessage());
+                connection.close();
+            }
+        });
+    }
+
+    @Override
+    public void run(){
+        long lastIdleCheck = System.currentTimeMillis();
+        while(running){
+            try{
+                selector.select(SELECT_TIMEOUT_MILSEC);
+                handleSelectedKeys();
+                runTasks();
+
+                long now = System.currentTimeMillis();
+                if(now - lastIdleCheck >= SELECT_TIMEOUT_MILSEC){
+                    lastIdleCheck = now;
+                    for(SelectionKey key : new ArrayList<>(selector.keys()))
+                        ((NioConnection)key.attachment()).closeIfIdle(now);
+                }
+            }catch(IOException e){
+                WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+            }
+        }
+
+        for(SelectionKey key : selector.keys())
+            ((NioConnection)key.attachment()).close();
+        try{
+            selector.close();
+        }catch(IOException e){
+            WebServer.logger.err("Cannot close selector: " + e.getMessage());
+        }
+    }
+
+    private void handleSelectedKeys(){
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while(iterator.hasNext()){
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            NioConnection connection = (NioConnection)key.attachment();
+            try{
+                if(key.isValid() && key.isReadable())
+                    connection.onReadable(readBuffer);
+                if(key.isValid() && key.isWritable())
+                    connection.flush();
+            }catch(IOException | CancelledKeyException e){
+                WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+                connection.close();
+            }
+        }
+    }
+
+    private void runTasks(){
+        Runnable task;
+        while((task = tasks.poll()) != null){
+            try{
+                task.run();
+            }catch(RuntimeException e){
+                WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close(){
+        running = false;
+        selector.wakeup();
+    }
+}
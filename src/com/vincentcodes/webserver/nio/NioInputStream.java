@@ -0,0 +1,278 @@
+package com.vincentcodes.webserver.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.vincentcodes.webserver.WebServer;
+
+/**
+ * Bytes received by a {@link NioConnection} which are not consumed yet.
+ * The event loop appends what it reads from the socket, the worker
+ * handling the request reads it as the connection. Only the part of a
+ * body which is being read is kept in memory, at most capacity bytes;
+ * the event loop stops reading the socket while it is full.
+ * <p>
+ * Reading blocks until bytes arrive, for at most
+ * {@link WebServer#CONNECTION_READ_TIMEOUT_MILSEC}.
+ */
+class NioInputStream extends InputStream{
+    private static final int INITIAL_SIZE = 8192;
+    private static final byte[] HEAD_END = {'\r', '\n', '\r', '\n'};
+
+    private final int capacity;
+    private byte[] buffer = new byte[INITIAL_SIZE];
+    /**
+     * Unread bytes are in [start, end)
+     */
+    private int start = 0;
+    private int end = 0;
+    private int markPos = -1;
+    private int markLimit = 0;
+    private int headSearchStart = 0;
+    private boolean endOfInput = false;
+    private boolean closed = false;
+    /**
+     * Run once bytes are consumed from a full buffer
+     */
+    private Runnable onSpaceAvailable;
+
+    /**
+     * @param capacity max number of unread bytes
+     */
+    NioInputStream(int capacity){
+        this.capacity = capacity;
+    }
+
+    /**
+     * Called by the event loop
+     * @param src bytes read from the socket, at most {@link #space()} bytes
+     */
+    synchronized void append(ByteBuffer src){
+        int length = src.remaining();
+        int keepFrom = keepFrom();
+        if(end + length > buffer.length){
+            int kept = end - keepFrom;
+            byte[] target = kept + length > buffer.length?
+                new byte[Math.min(capacity, Math.max(buffer.length * 2, kept + length))] : buffer;
+            System.arraycopy(buffer, keepFrom, target, 0, kept);
+            buffer = target;
+            start -= keepFrom;
+            end -= keepFrom;
+            headSearchStart = Math.max(0, headSearchStart - keepFrom);
+            if(markPos != -1)
+                markPos -= keepFrom;
+        }
+        src.get(buffer, end, length);
+        end += length;
+        notifyAll();
+    }
+
+    /**
+     * @return number of bytes which can be appended
+     */
+    synchronized int space(){
+        return capacity - (end - keepFrom());
+    }
+
+    /**
+     * Called by the event loop once {@link #space()} is 0
+     * @param task runs (on the reading thread) as soon as bytes are consumed
+     */
+    void onSpaceAvailable(Runnable task){
+        synchronized(this){
+            if(space() == 0){
+                onSpaceAvailable = task;
+                return;
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * No more bytes will be appended, reads return -1 once the unread
+     * bytes are consumed.
+     */
+    synchronized void endOfInput(){
+        endOfInput = true;
+        notifyAll();
+    }
+
+    synchronized boolean isEndOfInput(){
+        return endOfInput;
+    }
+
+    /**
+     * Unlike {@link #available()}, it does not throw once closed
+     */
+    synchronized int unreadLength(){
+        return end - start;
+    }
+
+    /**
+     * The search resumes where the previous one stopped, so a head
+     * received in many small reads is only scanned once.
+     * @return length of the head of the next request, -1 if its head
+     * has not been fully received
+     */
+    synchronized int headLength(){
+        outer:
+        for(int i = Math.max(start, headSearchStart); i <= end - HEAD_END.length; i++){
+            for(int j = 0; j < HEAD_END.length; j++){
+                if(buffer[i+j] != HEAD_END[j])
+                    continue outer;
+            }
+            headSearchStart = start;
+            return i + HEAD_END.length - start;
+        }
+        headSearchStart = Math.max(start, end - HEAD_END.length + 1);
+        return -1;
+    }
+
+    /**
+     * Gives the memory of a large request back. Called by the event
+     * loop once a request is answered.
+     */
+    synchronized void shrink(){
+        if(buffer.length <= INITIAL_SIZE || end - keepFrom() > INITIAL_SIZE)
+            return;
+        int keepFrom = keepFrom();
+        buffer = Arrays.copyOfRange(buffer, keepFrom, keepFrom + INITIAL_SIZE);
+        start -= keepFrom;
+        end -= keepFrom;
+        headSearchStart = Math.max(0, headSearchStart - keepFrom);
+        if(markPos != -1)
+            markPos -= keepFrom;
+    }
+
+    @Override
+    public int read() throws IOException{
+        Runnable task;
+        int b;
+        synchronized(this){
+            if(!awaitBytes())
+                return -1;
+            b = buffer[start] & 0xff;
+            task = consume(1);
+        }
+        if(task != null)
+            task.run();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException{
+        if(len == 0)
+            return 0;
+        Runnable task;
+        int bytesRead;
+        synchronized(this){
+            if(!awaitBytes())
+                return -1;
+            bytesRead = Math.min(len, end - start);
+            System.arraycopy(buffer, start, b, off, bytesRead);
+            task = consume(bytesRead);
+        }
+        if(task != null)
+            task.run();
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException{
+        if(n <= 0)
+            return 0;
+        Runnable task;
+        int skipped;
+        synchronized(this){
+            if(!awaitBytes())
+                return 0;
+            skipped = (int)Math.min(n, end - start);
+            task = consume(skipped);
+        }
+        if(task != null)
+            task.run();
+        return skipped;
+    }
+
+    @Override
+    public synchronized int available() throws IOException{
+        if(closed)
+            throw new IOException("Socket is closed");
+        return end - start;
+    }
+
+    @Override
+    public boolean markSupported(){
+        return true;
+    }
+
+    /**
+     * The marked bytes count towards the capacity until readlimit
+     * bytes are read after them
+     */
+    @Override
+    public synchronized void mark(int readlimit){
+        markPos = start;
+        markLimit = readlimit;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException{
+        if(markPos == -1 || start - markPos > markLimit)
+            throw new IOException("Resetting to invalid mark");
+        start = markPos;
+    }
+
+    /**
+     * Wakes up the reader, it fails from now on
+     */
+    @Override
+    public synchronized void close(){
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return false if the input ended
+     */
+    private boolean awaitBytes() throws IOException{
+        long deadline = System.currentTimeMillis() + WebServer.CONNECTION_READ_TIMEOUT_MILSEC;
+        while(start == end && !endOfInput && !closed){
+            long timeout = deadline - System.currentTimeMillis();
+            if(timeout <= 0)
+                throw new SocketTimeoutException("Read timed out");
+            try{
+                wait(timeout);
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the client to send data", e);
+            }
+        }
+        if(closed)
+            throw new IOException("Socket is closed");
+        return start != end;
+    }
+
+    /**
+     * @return the task waiting for space, to be run without the lock
+     */
+    private Runnable consume(int length){
+        start += length;
+        Runnable task = onSpaceAvailable;
+        onSpaceAvailable = null;
+        return task;
+    }
+
+    /**
+     * Bytes before it can be dropped
+     */
+    private int keepFrom(){
+        if(markPos != -1 && start - markPos <= markLimit)
+            return markPos;
+        markPos = -1;
+        return start;
+    }
+}
@@ -0,0 +1,62 @@
+package com.vincentcodes.webserver.nio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Collects bytes into chunks and queues them on a {@link NioConnection}.
+ * The event loop does the actual writing.
+ */
+class NioOutputStream extends OutputStream{
+    private static final int CHUNK_SIZE = 16384;
+
+    private final NioConnection connection;
+    private final boolean waitIfFull;
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int count = 0;
+
+    /**
+     * @param waitIfFull false if the caller is the event loop itself
+     * @see NioConnection#queue(PendingWrite, boolean)
+     */
+    NioOutputStream(NioConnection connection, boolean waitIfFull){
+        this.connection = connection;
+        this.waitIfFull = waitIfFull;
+    }
+
+    @Override
+    public void write(int b) throws IOException{
+        if(count == chunk.length)
+            flush();
+        chunk[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException{
+        while(len > 0){
+            if(count == chunk.length)
+                flush();
+            int size = Math.min(len, chunk.length - count);
+            System.arraycopy(b, off, chunk, count, size);
+            count += size;
+            off += size;
+            len -= size;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException{
+        if(count == 0)
+            return;
+        // the queued chunk is owned by the connection from now on
+        connection.queue(PendingWrite.of(ByteBuffer.wrap(chunk, 0, count)), waitIfFull);
+        chunk = new byte[CHUNK_SIZE];
+        count = 0;
+    }
+
+    @Override
+    public void close() throws IOException{
+        flush();
+    }
+}
@@ -0,0 +1,108 @@
+package com.vincentcodes.webserver.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+
+import com.vincentcodes.webserver.WebServer;
+import com.vincentcodes.webserver.component.request.HttpRequestValidator;
+import com.vincentcodes.webserver.dispatcher.HttpRequestDispatcher;
+import com.vincentcodes.webserver.helper.ThreadProvider;
+
+/**
+ * Event-loop front end for plain HTTP/1.1. A few {@link NioEventLoop
+ * selector threads} do non-blocking reads and writes, while workers
+ * only run the dispatcher. An idle or slow client does not hold any
+ * thread.
+ * <p>
+ * Connections which are taken over by another protocol (websocket,
+ * tunnel) leave the event loop and are served by a blocking thread
+ * just like {@link com.vincentcodes.webserver.ServerThread}.
+ */
+public class NioServer implements Closeable{
+    private final ServerSocketChannel serverChannel;
+    private final WebServer.Configuration configuration;
+    private final HttpRequestValidator requestValidator;
+    private final HttpRequestDispatcher requestDispatcher;
+
+    private final ExecutorService workers;
+    private final ExecutorService blockingExecutor = ThreadProvider.newCachedThreadPool();
+    private final NioEventLoop[] eventLoops;
+
+    /**
+     * @param serverChannel a bound server channel
+     * @param workers runs the dispatcher
+     */
+    public NioServer(ServerSocketChannel serverChannel, WebServer.Configuration configuration, HttpRequestValidator requestValidator, HttpRequestDispatcher requestDispatcher, ExecutorService workers) throws IOException{
+        this.serverChannel = serverChannel;
+        this.configuration = configuration;
+        this.requestValidator = requestValidator;
+        this.requestDispatcher = requestDispatcher;
+        this.workers = workers;
+
+        this.eventLoops = new NioEventLoop[WebServer.NIO_SELECTOR_THREADS];
+        for(int i = 0; i < eventLoops.length; i++)
+            eventLoops[i] = new NioEventLoop(i);
+    }
+
+    /**
+     * Accepts connections until the server channel is closed.
+     * This is a blocking method.
+     */
+    public void start(){
+        for(NioEventLoop eventLoop : eventLoops)
+            eventLoop.start();
+
+        int next = 0;
+        while(serverChannel.isOpen()){
+            try{
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                NioEventLoop eventLoop = eventLoops[next];
+                next = (next + 1) % eventLoops.length;
+                eventLoop.register(new NioConnection(this, eventLoop, channel));
+            }catch(ClosedChannelException e){
+                break;
+            }catch(IOException e){
+                WebServer.logger.err("Catching a "+e.getClass().getName()+": " + e.getMessage());
+            }
+        }
+    }
+
+    WebServer.Configuration getConfiguration(){
+        return configuration;
+    }
+
+    HttpRequestValidator getRequestValidator(){
+        return requestValidator;
+    }
+
+    HttpRequestDispatcher getRequestDispatcher(){
+        return requestDispatcher;
+    }
+
+    ExecutorService getWorkers(){
+        return workers;
+    }
+
+    /**
+     * Runs connections which left the event loop (eg. websocket)
+     */
+    ExecutorService getBlockingExecutor(){
+        return blockingExecutor;
+    }
+
+    /**
+     * Workers are owned by the caller and are not shut down here
+     */
+    @Override
+    public void close() throws IOException{
+        serverChannel.close();
+        for(NioEventLoop eventLoop : eventLoops)
+            eventLoop.close();
+        blockingExecutor.shutdownNow();
+    }
+}
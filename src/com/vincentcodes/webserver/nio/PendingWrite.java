@@ -0,0 +1,80 @@
+package com.vincentcodes.webserver.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Data queued on a {@link NioConnection}, written by the event loop
+ * whenever the socket accepts more
+ */
+interface PendingWrite {
+    /**
+     * @return number of bytes written, may be 0 if the socket is full
+     */
+    long writeTo(WritableByteChannel channel) throws IOException;
+
+    long remaining();
+
+    default void close(){}
+
+    static PendingWrite of(ByteBuffer buffer){
+        return new PendingWrite(){
+            @Override
+            public long writeTo(WritableByteChannel channel) throws IOException{
+                return channel.write(buffer);
+            }
+
+            @Override
+            public long remaining(){
+                return buffer.remaining();
+            }
+        };
+    }
+
+    /**
+     * A region of a file, sent with zero-copy
+     */
+    static class FileRegion implements PendingWrite{
+        private final FileChannel fileChannel;
+        private long position;
+        private long remaining;
+
+        /**
+         * The file is opened separately, the region does not depend on
+         * the response body which closes once it is queued.
+         */
+        FileRegion(Path file, long position, long count) throws IOException{
+            this.fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+            this.position = position;
+            this.remaining = count;
+        }
+
+        @Override
+        public long writeTo(WritableByteChannel channel) throws IOException{
+            long count = fileChannel.transferTo(position, remaining, channel);
+            if(count == 0 && position >= fileChannel.size())
+                throw new IOException("File is truncated while being sent");
+            position += count;
+            remaining -= count;
+            if(remaining == 0)
+                close();
+            return count;
+        }
+
+        @Override
+        public long remaining(){
+            return remaining;
+        }
+
+        @Override
+        public void close(){
+            try{
+                fileChannel.close();
+            }catch(IOException ignored){}
+        }
+    }
+}
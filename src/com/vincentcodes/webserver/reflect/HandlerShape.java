@@ -0,0 +1,21 @@
+package com.vincentcodes.webserver.reflect;
+
+/**
+ * Shape of the parameters of a handler method, which is determined once
+ * when the method is registered.
+ * @see MethodDecorator#getShape()
+ */
+public enum HandlerShape {
+    /**
+     * <code>handle(HttpRequest req)</code>
+     */
+    REQUEST,
+    /**
+     * <code>handle(HttpRequest req, ResponseBuilder res)</code>
+     */
+    REQUEST_RESPONSE,
+    /**
+     * Any other parameters (eg. methods of &#64;SimplerHttpHandler)
+     */
+    OTHER
+}
@@ -1,20 +1,86 @@
 package com.vincentcodes.webserver.reflect;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 
+import com.vincentcodes.webserver.component.request.HttpRequest;
+import com.vincentcodes.webserver.component.response.ResponseBuilder;
+
+/**
+ * Handlers are invoked through {@link MethodHandle}s bound to the owner,
+ * which are created once here instead of going through {@link Method#invoke}
+ * (access checks and boxing into a new array) for every call. Handlers
+ * in the form of {@link HandlerShape#REQUEST} or {@link HandlerShape#REQUEST_RESPONSE}
+ * get a handle of that exact type.
+ */
 // I can't think of a good name, help.
 public class MethodDecorator {
+    private static final MethodType REQUEST_TYPE = MethodType.methodType(Object.class, HttpRequest.class);
+    private static final MethodType REQUEST_RESPONSE_TYPE = MethodType.methodType(Object.class, HttpRequest.class, ResponseBuilder.class);
+
     private Object owner;
     private Method method;
     private ClassDecorator parent;
 
+    private final Parameter[] parameters;
+    private final Class<?>[] parameterTypes;
+    // primitive types are replaced by their wrappers
+    private final Class<?>[] boxedParameterTypes;
+    private final boolean returnsVoid;
+    private final HandlerShape shape;
+    // (Object[])Object, null if the method cannot be accessed with a MethodHandle
+    private final MethodHandle spreadHandle;
+    // typed handle according to the shape
+    private final MethodHandle shapeHandle;
+
     public MethodDecorator(Object owner, Method method) {
         this.owner = owner;
         this.method = method;
         parent = new ClassDecorator(owner, owner.getClass());
+
+        parameters = method.getParameters();
+        parameterTypes = method.getParameterTypes();
+        boxedParameterTypes = new Class<?>[parameterTypes.length];
+        for(int i = 0; i < parameterTypes.length; i++)
+            boxedParameterTypes[i] = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+        returnsVoid = method.getReturnType().equals(Void.TYPE);
+        shape = parametersInFormOf(HttpRequest.class)? HandlerShape.REQUEST 
+            : parametersInFormOf(HttpRequest.class, ResponseBuilder.class)? HandlerShape.REQUEST_RESPONSE 
+            : HandlerShape.OTHER;
+
+        MethodHandle handle = createBoundHandle();
+        if(handle != null){
+            spreadHandle = handle.asType(handle.type().generic()).asSpreader(Object[].class, parameterTypes.length);
+            shapeHandle = shape == HandlerShape.REQUEST? handle.asType(REQUEST_TYPE)
+                : shape == HandlerShape.REQUEST_RESPONSE? handle.asType(REQUEST_RESPONSE_TYPE) : null;
+        }else{
+            spreadHandle = null;
+            shapeHandle = null;
+        }
+    }
+
+    /**
+     * @return null if it is not accessible
+     */
+    private MethodHandle createBoundHandle(){
+        MethodHandle handle;
+        try{
+            handle = MethodHandles.lookup().unreflect(method);
+        }catch(IllegalAccessException e){
+            try{
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method);
+            }catch(RuntimeException | IllegalAccessException ignored){
+                return null;
+            }
+        }
+        return Modifier.isStatic(method.getModifiers())? handle : handle.bindTo(owner);
     }
 
     public Object getOwner(){
@@ -33,22 +99,80 @@ public class MethodDecorator {
         method.setAccessible(flag);
     }
 
-    // quicker (not much though)
+    /**
+     * Same as {@link #invoke(Object...)}, accessibility is resolved
+     * when this decorator is created.
+     */
     public Object quickInvoke(Object... args) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException{
-        setAccessible(true);
         return invoke(args);
     }
 
+    /**
+     * @throws IllegalArgumentException if the arguments do not match the parameters
+     * @throws InvocationTargetException if the method throws an exception
+     */
     public Object invoke(Object... args) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException{
-        return method.invoke(owner, args);
+        if(spreadHandle == null)
+            return method.invoke(owner, args);
+        checkArguments(args);
+        try{
+            return (Object)spreadHandle.invokeExact(args);
+        }catch(Throwable e){
+            throw new InvocationTargetException(e);
+        }
     }
 
+    private void checkArguments(Object[] args){
+        if(args.length != parameterTypes.length)
+            throw new IllegalArgumentException("Wrong number of arguments: expected " + parameterTypes.length + ", got " + args.length);
+        for(int i = 0; i < args.length; i++){
+            if(args[i] == null? parameterTypes[i].isPrimitive() : !boxedParameterTypes[i].isInstance(args[i]))
+                throw new IllegalArgumentException("Argument " + i + " of " + method.getName() + " is not of type " + parameterTypes[i].getName() 
+                    + ": " + (args[i] == null? "null" : args[i].getClass().getName()));
+        }
+    }
+
+    /**
+     * Invokes a handler of {@link HandlerShape#REQUEST}
+     * @return null for void methods
+     */
+    public Object invoke(HttpRequest request) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException{
+        if(shape != HandlerShape.REQUEST || shapeHandle == null)
+            return invoke(new Object[]{request});
+        try{
+            return (Object)shapeHandle.invokeExact(request);
+        }catch(Throwable e){
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * Invokes a handler of {@link HandlerShape#REQUEST_RESPONSE}
+     * @return null for void methods
+     */
+    public Object invoke(HttpRequest request, ResponseBuilder response) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException{
+        if(shape != HandlerShape.REQUEST_RESPONSE || shapeHandle == null)
+            return invoke(new Object[]{request, response});
+        try{
+            return (Object)shapeHandle.invokeExact(request, response);
+        }catch(Throwable e){
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    public HandlerShape getShape(){
+        return shape;
+    }
+
+    /**
+     * @return parameters of the method. Do not modify the array, it is shared.
+     */
     public Parameter[] getParameter(){
-        return method.getParameters();
+        return parameters;
     }
 
     public int getParameterCount(){
-        return method.getParameterCount();
+        return parameterTypes.length;
     }
 
     /**
@@ -62,12 +186,11 @@ public class MethodDecorator {
      * @return
      */
     public boolean parametersInFormOf(Class<?>... types){
-        if(types.length != method.getParameterCount())
+        if(types.length != parameterTypes.length)
             return false;
         
-        Class<?>[] clazzes = method.getParameterTypes();
-        for(int i = 0; i < clazzes.length; i++){
-            if(!clazzes[i].equals(types[i]))
+        for(int i = 0; i < parameterTypes.length; i++){
+            if(!parameterTypes[i].equals(types[i]))
                 return false;
         }
         return true;
@@ -81,8 +204,8 @@ public class MethodDecorator {
      * @return parameter position / index of that parameter. -1 if not found
      */
     public int positionOfParameter(Class<? extends Annotation> annotationType){
-        for(int i = 0; i < method.getParameterCount(); i++){
-            Parameter parameter = method.getParameters()[i];
+        for(int i = 0; i < parameters.length; i++){
+            Parameter parameter = parameters[i];
             if(parameter.isAnnotationPresent(annotationType)){
                 return i;
             }
@@ -98,7 +221,7 @@ public class MethodDecorator {
     }
 
     public boolean returnsVoid(){
-        return method.getReturnType().equals(Void.TYPE);
+        return returnsVoid;
     }
     
     /**
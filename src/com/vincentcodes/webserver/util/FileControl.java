@@ -55,7 +55,7 @@ public class FileControl {
             }
             file.createNewFile();
             try(FileOutputStream outputStream = new FileOutputStream(file)){
-                outputStream.write(req.getBody().getBytes());
+                req.getBody().streamBytesTo(outputStream);
             }
         }catch(IOException e){
             e.printStackTrace();
@@ -0,0 +1,57 @@
+package com.vincentcodes.webserver.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+public class FutureUtils {
+    /**
+     * Waits for the result. Unchecked exceptions are rethrown as they
+     * are, checked ones are wrapped in {@link InvocationTargetException}.
+     */
+    public static <T> T await(Future<T> future) throws InvocationTargetException{
+        try{
+            return future.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InvocationTargetException(e, "Interrupted while waiting for the result");
+        }catch(ExecutionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof InvocationTargetException)
+                throw (InvocationTargetException)cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if(cause instanceof Error)
+                throw (Error)cause;
+            throw new InvocationTargetException(cause);
+        }
+    }
+
+    /**
+     * Unlike {@link CompletionStage#toCompletableFuture()}, this works for
+     * any implementation of {@link CompletionStage}.
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(CompletionStage<T> stage){
+        if(stage instanceof CompletableFuture)
+            return (CompletableFuture<T>)stage;
+        CompletableFuture<T> future = new CompletableFuture<>();
+        stage.whenComplete((value, error) -> {
+            if(error != null)
+                future.completeExceptionally(error);
+            else future.complete(value);
+        });
+        return future;
+    }
+
+    /**
+     * @return the exception thrown inside a stage of a {@link CompletableFuture}
+     */
+    public static Throwable unwrap(Throwable error){
+        while((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null)
+            error = error.getCause();
+        return error;
+    }
+}
@@ -0,0 +1,70 @@
+package com.vincentcodes.webserver.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Formats dates for HTTP headers (eg. "Sun, 06 Nov 1994 08:49:37 GMT").
+ * It is thread-safe.
+ * <p>
+ * The current date (for the "date" header) is formatted at most once per
+ * second. Every response sent within the same second shares the same
+ * String and bytes.
+ * @see https://tools.ietf.org/html/rfc7231#section-7.1.1.1
+ */
+public class HttpDate {
+    // HTTP dates are always expressed in GMT, never in local time -- MDN
+    public static final DateTimeFormatter FORMATTER = DateTimeFormatter
+        .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+        .withZone(ZoneOffset.UTC);
+
+    private static volatile CurrentDate current = new CurrentDate(System.currentTimeMillis() / 1000);
+
+    /**
+     * @return the current date, formatted within the current second
+     */
+    public static String now(){
+        return currentDate().string;
+    }
+
+    /**
+     * @return US-ASCII bytes of {@link #now()}. Do not modify the array,
+     * it is shared.
+     */
+    public static byte[] nowBytes(){
+        return currentDate().bytes;
+    }
+
+    /**
+     * @param epochMillis eg. {@link java.io.File#lastModified()}
+     */
+    public static String format(long epochMillis){
+        return FORMATTER.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    private static CurrentDate currentDate(){
+        CurrentDate date = current;
+        long second = System.currentTimeMillis() / 1000;
+        if(date.second != second){
+            // threads racing here format the same value, any of them can win
+            date = new CurrentDate(second);
+            current = date;
+        }
+        return date;
+    }
+
+    private static class CurrentDate {
+        final long second;
+        final String string;
+        final byte[] bytes;
+
+        CurrentDate(long second){
+            this.second = second;
+            this.string = FORMATTER.format(Instant.ofEpochSecond(second));
+            this.bytes = string.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -1,33 +1,36 @@
 package com.vincentcodes.webserver.util;
 
+import java.util.function.Function;
+
 public class ObjectMappingUtil {
     public static Object mapStringToCorrectValue(Class<?> clazz, String value){
+        return converterFor(clazz).apply(value);
+    }
+
+    /**
+     * Find the conversion used by {@link #mapStringToCorrectValue(Class, String)}
+     * once, so that it can be applied to many values.
+     * @return a function that never throws on null (eg. -1 is given for numbers)
+     */
+    public static Function<String, Object> converterFor(Class<?> clazz){
         // primitives
         if(clazz.equals(int.class) || clazz.equals(Integer.class)){
-            if(value == null) return -1;
-            return Integer.parseInt(value);
+            return value -> value == null? -1 : Integer.parseInt(value);
         }else if(clazz.equals(double.class) || clazz.equals(Double.class)){
-            if(value == null) return -1.0;
-            return Double.parseDouble(value);
+            return value -> value == null? -1.0 : Double.parseDouble(value);
         }else if(clazz.equals(byte.class) || clazz.equals(Byte.class)){
-            if(value == null) return (byte)-1;
-            return Byte.parseByte(value);
+            return value -> value == null? (byte)-1 : Byte.parseByte(value);
         }else if(clazz.equals(short.class) || clazz.equals(Short.class)){
-            if(value == null) return (short)-1;
-            return Short.parseShort(value);
+            return value -> value == null? (short)-1 : Short.parseShort(value);
         }else if(clazz.equals(long.class) || clazz.equals(Long.class)){
-            if(value == null) return (long)-1;
-            return Long.parseLong(value);
+            return value -> value == null? (long)-1 : Long.parseLong(value);
         }else if(clazz.equals(float.class) || clazz.equals(Float.class)){
-            if(value == null) return (float)-1;
-            return Float.parseFloat(value);
+            return value -> value == null? (float)-1 : Float.parseFloat(value);
         }else if(clazz.equals(boolean.class) || clazz.equals(Boolean.class)){
-            if(value == null) return false;
-            return Boolean.parseBoolean(value);
+            return value -> value == null? false : Boolean.parseBoolean(value);
         }else if(clazz.equals(char.class) || clazz.equals(Character.class)){
-            if(value == null) return null;
-            return value.charAt(0);
+            return value -> value == null? null : value.charAt(0);
         }
-        return value;
+        return value -> value;
     }
 }
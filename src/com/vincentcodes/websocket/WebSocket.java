@@ -7,6 +7,7 @@ import com.vincentcodes.net.UpgradableSocket;
 import com.vincentcodes.webserver.WebServer;
 import com.vincentcodes.webserver.component.request.HttpRequestPath;
 import com.vincentcodes.webserver.helper.IOContainer;
+import com.vincentcodes.webserver.helper.ThreadProvider;
 import com.vincentcodes.websocket.constants.OpCode;
 import com.vincentcodes.websocket.handler.OnJsonRpcReceive;
 import com.vincentcodes.websocket.handler.OnMessageReceive;
@@ -74,7 +75,7 @@ public class WebSocket {
         WebSocketFrame frame = WebSocketFrameParser.parse(ioContainer.getInputStream());
 
         if(WebServer.lowLevelDebugMode)
-            WebServer.logger.debug("Ws Recv: " + frame.toString());
+            WebServer.logger.debug(() -> "Ws Recv: " + frame.toString());
 
         return frame;
     }
@@ -99,7 +100,7 @@ public class WebSocket {
 
     public void send(WebSocketFrame frame) throws IOException{
         if(WebServer.lowLevelDebugMode)
-            WebServer.logger.debug("Ws Send: " + frame.toString());
+            WebServer.logger.debug(() -> "Ws Send: " + frame.toString());
 
         ioContainer.getOutputStream().write(frame.toBytes());
     }
@@ -123,22 +124,18 @@ public class WebSocket {
      * </pre>
      */
     public void initConnectionChecker(){
-        Thread connectionChecker = new Thread("WebSocket Connection Checker"){
-            public void run(){
-                try{
-                    UpgradableSocket socket = ioContainer.getSocket();
-                    while(!socket.isClosed()){
-                        if(pingSent) socket.close();
-                        sendPing();
-                        Thread.sleep(WebServer.WEBSOCKET_PING_INTERVAL_MILSEC);
-                    }
-                }catch(Exception e){
-                    e.printStackTrace();
+        Thread connectionChecker = ThreadProvider.newThread("WebSocket Connection Checker", () -> {
+            try{
+                UpgradableSocket socket = ioContainer.getSocket();
+                while(!socket.isClosed()){
+                    if(pingSent) socket.close();
+                    sendPing();
+                    Thread.sleep(WebServer.WEBSOCKET_PING_INTERVAL_MILSEC);
                 }
-                return;
+            }catch(Exception e){
+                e.printStackTrace();
             }
-        };
-        connectionChecker.setDaemon(true);
+        });
         connectionChecker.start();
     }
 